@@ -0,0 +1,165 @@
+package com.weighttracker.app.ui.graph;
+
+import com.github.mikephil.charting.data.Entry;
+
+import java.util.ArrayList;
+
+/**
+ * Cuts a long weight series down to about as many points as the chart
+ * has pixels, using Largest-Triangle-Three-Buckets (LTTB).
+ * The part of the graph on screen keeps every point. Only the parts
+ * off screen are thinned out, so the line keeps its shape when the
+ * user pans without drawing thousands of points.
+ * Picking the points is plain Java with no chart classes, so it can be
+ * run and timed on its own.
+ */
+public final class ChartDownsampler {
+
+    private ChartDownsampler() {
+    }
+
+    /**
+     * Builds the points to draw. Points from visibleFrom to visibleTo
+     * are all kept, and the rest are downsampled to fit the budget.
+     * The x value of each point is its index in the full series.
+     *
+     * @param weights every weight in the series, oldest first
+     * @param visibleFrom first index on screen
+     * @param visibleTo last index on screen
+     * @param budget about how many points to draw in total
+     * @return the points to draw, in x order
+     */
+    public static ArrayList<Entry> sample(float[] weights, int visibleFrom, int visibleTo, int budget) {
+        int[] kept = sampleIndexes(weights, visibleFrom, visibleTo, budget);
+        ArrayList<Entry> points = new ArrayList<>(kept.length);
+        for (int i : kept) {
+            points.add(new Entry(i, weights[i]));
+        }
+        return points;
+    }
+
+    /**
+     * Picks which indexes to draw. Same rules as sample, without making chart points.
+     *
+     * @param weights every weight in the series, oldest first
+     * @param visibleFrom first index on screen
+     * @param visibleTo last index on screen
+     * @param budget about how many points to draw in total
+     * @return the kept indexes, in order
+     */
+    public static int[] sampleIndexes(float[] weights, int visibleFrom, int visibleTo, int budget) {
+        int n = weights.length;
+        if (n == 0) {
+            return new int[0];
+        }
+
+        visibleFrom = Math.max(0, Math.min(visibleFrom, n - 1));
+        visibleTo = Math.max(visibleFrom, Math.min(visibleTo, n - 1));
+
+        // Small enough to draw everything
+        if (n <= budget) {
+            return range(0, n);
+        }
+
+        // Split what is left of the budget between the two sides by size
+        int visibleCount = visibleTo - visibleFrom + 1;
+        int leftCount = visibleFrom;
+        int rightCount = n - visibleTo - 1;
+        int spare = Math.max(0, budget - visibleCount);
+        int leftBudget = leftCount + rightCount == 0 ? 0
+                : (int) ((long) spare * leftCount / (leftCount + rightCount));
+        int rightBudget = spare - leftBudget;
+
+        int[] left = visibleFrom > 0 ? lttb(weights, 0, visibleFrom, leftBudget) : new int[0];
+        int[] right = visibleTo + 1 < n ? lttb(weights, visibleTo + 1, n, rightBudget) : new int[0];
+
+        int[] kept = new int[left.length + visibleCount + right.length];
+        System.arraycopy(left, 0, kept, 0, left.length);
+        for (int i = 0; i < visibleCount; i++) {
+            kept[left.length + i] = visibleFrom + i;
+        }
+        System.arraycopy(right, 0, kept, left.length + visibleCount, right.length);
+        return kept;
+    }
+
+    /**
+     * Picks which points of weights[from, to) to keep with LTTB.
+     * The first and last points are always kept.
+     *
+     * @param weights the full series
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param threshold how many points to keep
+     * @return the kept indexes, in order
+     */
+    public static int[] lttb(float[] weights, int from, int to, int threshold) {
+        int count = to - from;
+        if (threshold >= count) {
+            // Nothing to cut
+            return range(from, to);
+        }
+
+        // Too few points to make buckets, keep the ends
+        if (threshold <= 0) return new int[0];
+        if (threshold == 1) return new int[]{from};
+        if (threshold == 2) return new int[]{from, to - 1};
+
+        int[] kept = new int[threshold];
+        int k = 0;
+        kept[k++] = from;
+
+        // Every bucket but the first and last point
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+        int a = from;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = from + 1 + (int) Math.floor(bucket * bucketSize);
+            int end = from + 1 + (int) Math.floor((bucket + 1) * bucketSize);
+
+            // Average point of the next bucket
+            int nextStart = end;
+            int nextEnd = Math.min(to, from + 1 + (int) Math.floor((bucket + 2) * bucketSize));
+            if (bucket == threshold - 3) {
+                nextStart = to - 1;
+                nextEnd = to;
+            }
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += i;
+                avgY += weights[i];
+            }
+            int nextCount = Math.max(1, nextEnd - nextStart);
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            // Keep the point in this bucket that makes the biggest triangle
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((a - avgX) * (weights[i] - weights[a])
+                        - (a - i) * (avgY - weights[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            kept[k++] = chosen;
+            a = chosen;
+        }
+
+        kept[k] = to - 1;
+        return kept;
+    }
+
+    /**
+     * Gets every index in [from, to).
+     */
+    private static int[] range(int from, int to) {
+        int[] all = new int[to - from];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = from + i;
+        }
+        return all;
+    }
+}
@@ -1,13 +1,13 @@
 package com.weighttracker.app.ui.graph;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.os.Bundle;
+import android.view.MotionEvent;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.res.ResourcesCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -21,16 +21,26 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.highlight.Highlight;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
 import com.github.mikephil.charting.utils.MPPointF;
+import com.google.android.material.button.MaterialButtonToggleGroup;
 import com.weighttracker.app.R;
-import com.weighttracker.app.data.GoalDatabase;
+import com.weighttracker.app.data.DataChanges;
+import com.weighttracker.app.data.UserSession;
 import com.weighttracker.app.data.WeightDatabase;
+import com.weighttracker.app.data.WeightRepository;
+import com.weighttracker.app.util.BackgroundLoader;
+import com.weighttracker.app.util.EntryFormat;
+import com.weighttracker.app.util.WeightStats;
 
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import model.WeightEntry;
+import java.util.Locale;
+import java.util.function.IntFunction;
+import model.WeightRollup;
+import model.WeightSeries;
 
 /**
  * This class shows a line graph for the weight entries,
@@ -39,18 +49,37 @@ import model.WeightEntry;
 public class GraphFragment extends Fragment {
 
     private LineChart chart;
-    private WeightDatabase weightDatabase;
-    private static final String PREFS = "myprefs";
-    private static final String KEY_USERNAME = "logged_in_username";
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("M/d/yyyy", java.util.Locale.US);
-    private static java.time.LocalDate parseDate(String s) {
-        try {
-            return java.time.LocalDate.parse(s, FORMATTER);
-        }
-        catch (Exception e) {
-            return java.time.LocalDate.MIN;
-        }
-    }
+    private GraphViewModel viewModel;
+    private WeightRepository weightRepository;
+    private UserSession session;
+    private BackgroundLoader.Load pendingLoad;
+
+    // Number of entries shown on screen at once
+    private static final int VISIBLE_POINTS = 6;
+    // Number of weeks or months shown on screen at once
+    private static final int VISIBLE_PERIODS = 12;
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MMM yyyy", Locale.US);
+    // Fewest points to draw, used before the chart knows its width
+    private static final int MIN_POINT_BUDGET = 300;
+
+    // Full series behind the chart, the drawn points may be downsampled
+    private float[] weights = new float[0];
+    private LineDataSet dataSet;
+
+    // Thin lines behind the weights, one value per point like weights.
+    // Trend and moving averages for entries, lowest and highest weight for weeks and months.
+    private float[][] lineValues = new float[0][];
+    private LineDataSet[] lineSets = new LineDataSet[0];
+    // Range of indexes currently drawn at full detail
+    private int fullFrom = 0;
+    private int fullTo = -1;
+
+    // What the chart was last drawn with, so resuming can skip a redraw
+    private int drawnVersion = -1;
+    private float drawnGoal = -1f;
+    private GraphViewModel.Zoom drawnZoom;
+
+    private final DataChanges.Observer changeObserver = this::onDataChanged;
 
     @Nullable
     @Override
@@ -64,50 +93,288 @@ public class GraphFragment extends Fragment {
         chart.getAxisRight().setEnabled(false);
         chart.getLegend().setEnabled(false);
 
-        weightDatabase = new WeightDatabase(requireContext());
+        // Redraw at full detail wherever the user pans or zooms to
+        chart.setOnChartGestureListener(new OnChartGestureListener() {
+            @Override
+            public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) { }
+
+            @Override
+            public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+                resample(false);
+            }
+
+            @Override
+            public void onChartLongPressed(MotionEvent me) { }
+
+            @Override
+            public void onChartDoubleTapped(MotionEvent me) { }
 
-        // setup chart view and load data
-        setData();
+            @Override
+            public void onChartSingleTapped(MotionEvent me) { }
+
+            @Override
+            public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) { }
+
+            @Override
+            public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+                resample(true);
+            }
+
+            @Override
+            public void onChartTranslate(MotionEvent me, float dX, float dY) {
+                resample(true);
+            }
+        });
+
+        // The loaded series and stats are kept by the view model through a rotation
+        viewModel = new ViewModelProvider(this).get(GraphViewModel.class);
+        viewModel.init(requireContext());
+        session = viewModel.getSession();
+        weightRepository = viewModel.getRepository();
+
+        // Entries, weeks or months, weeks and months are read from the rollups
+        MaterialButtonToggleGroup zoomGroup = view.findViewById(R.id.zoom_group);
+        zoomGroup.check(zoomButton(viewModel.getZoom()));
+        zoomGroup.addOnButtonCheckedListener((group, checkedId, isChecked) -> {
+            if (!isChecked) return;
+            GraphViewModel.Zoom zoom = checkedId == R.id.zoom_months ? GraphViewModel.Zoom.MONTHS
+                    : checkedId == R.id.zoom_weeks ? GraphViewModel.Zoom.WEEKS
+                    : GraphViewModel.Zoom.ENTRIES;
+            if (zoom != viewModel.getZoom()) {
+                viewModel.setZoom(zoom);
+                loadData();
+            }
+        });
+
+        // Redraw what was already loaded, anything newer is loaded in onResume
+        drawnVersion = -1;
+        GraphViewModel.ChartData data = viewModel.getData();
+        if (data != null) {
+            draw(data);
+        }
+        DataChanges.observe(changeObserver);
         return view;
     }
 
     @Override
     public void onResume() {
         super.onResume();
-        // reload data when visible
-        setData();
+        // reload data when visible, only if something changed while away
+        if (viewModel.isStale()) {
+            loadData();
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        DataChanges.remove(changeObserver);
+        // Stop any load still running before the chart goes away, the next view loads it again
+        if (pendingLoad != null) {
+            pendingLoad.cancel();
+            pendingLoad = null;
+            viewModel.setStale(true);
+        }
+        chart = null;
+        dataSet = null;
+        lineSets = new LineDataSet[0];
     }
 
     /**
-     * Gets data and builds the points and line on the graph
+     * Gets the button for a zoom level.
+     *
+     * @param zoom the zoom level
+     * @return the ID of its button
      */
-    private void setData() {
-        ArrayList<WeightEntry> list = getWeights();
-        if (list.isEmpty()) {
-            chart.clear();
-            return;
+    private static int zoomButton(GraphViewModel.Zoom zoom) {
+        switch (zoom) {
+            case WEEKS:
+                return R.id.zoom_weeks;
+            case MONTHS:
+                return R.id.zoom_months;
+            default:
+                return R.id.zoom_entries;
         }
+    }
 
-        // list of dates used by the marker bubble
-        ArrayList<String> dates = new ArrayList<>(list.size());
+    /**
+     * Loads the chart right away if it is on screen and the view model
+     * marked it out of date.
+     *
+     * @param change what was written
+     */
+    private void onDataChanged(DataChanges.Change change) {
+        if (isResumed() && viewModel.isStale()) {
+            loadData();
+        }
+    }
 
-        // Builds the points on the graph
-        ArrayList<Entry> points = new ArrayList<>();
-        for (int i = 0; i < list.size(); i++) {
-            dates.add(list.get(i).getDate());
+    /**
+     * Reads the weights and goal in the background, then redraws
+     * the graph only if the entries, goal or zoom changed.
+     * Weeks and months only read the rollups, not every entry.
+     */
+    private void loadData() {
+        viewModel.setStale(false);
+        if (pendingLoad != null) pendingLoad.cancel();
+        WeightRepository repository = weightRepository;
+        UserSession user = session;
+        GraphViewModel.Zoom zoom = viewModel.getZoom();
+        pendingLoad = BackgroundLoader.load(() -> {
+            GraphViewModel.ChartData data = new GraphViewModel.ChartData();
+            data.zoom = zoom;
+            // Hold the repository so a save can't land between the entries and the stats
+            synchronized (repository) {
+                data.version = repository.getVersion();
+                if (zoom == GraphViewModel.Zoom.ENTRIES) {
+                    data.series = repository.getSeries();
+                    data.stats = repository.getStats();
+                } else {
+                    data.rollup = repository.getRollup(zoom == GraphViewModel.Zoom.WEEKS
+                            ? WeightDatabase.Rollup.WEEK : WeightDatabase.Rollup.MONTH);
+                }
+            }
+            // Kept by the session, so only the first load reads the goal database
+            data.goal = user.getGoalWeight();
+            return data;
+        }, data -> {
+            pendingLoad = null;
+            viewModel.setData(data);
+            draw(data);
+        });
+    }
 
-            float y = 0f;
-            try {
-                y = Float.parseFloat(list.get(i).getWeight().replace(" lbs","").trim());
+    /**
+     * Draws loaded data unless the chart already shows the same entries, goal and zoom.
+     *
+     * @param data the series or rollup, stats and goal
+     */
+    private void draw(GraphViewModel.ChartData data) {
+        if (data.version != drawnVersion || data.goal != drawnGoal || data.zoom != drawnZoom) {
+            drawnVersion = data.version;
+            drawnGoal = data.goal;
+            drawnZoom = data.zoom;
+            if (data.zoom == GraphViewModel.Zoom.ENTRIES) {
+                setData(data.series, data.stats, data.goal);
+            } else {
+                setData(data.rollup, data.zoom, data.goal);
             }
-            catch (Exception ignore) {
+        }
+    }
+
+    /**
+     * Builds the points and line on the graph from every entry.
+     *
+     * @param series weight entries, oldest first
+     * @param stats trend and averages for the same entries
+     * @param goal goal weight in lbs, or -1f if not set
+     */
+    private void setData(WeightSeries series, WeightStats stats, float goal) {
+        if (series.isEmpty()) {
+            clearData();
+            return;
+        }
+
+        int n = series.size();
+        weights = new float[n];
+        for (int i = 0; i < n; i++) {
+            weights[i] = series.getPounds(i);
+        }
+
+        // Thin lines for the trend and moving averages behind the weights
+        int blue = getResources().getColor(R.color.blue, null);
+        int gray = getResources().getColor(R.color.gray, null);
+        lineValues = new float[][]{stats.getAverage30(), stats.getAverage7(), stats.getTrend()};
+        int[] colors = {gray, gray, blue};
+        float[] dashes = {20f, 8f, 0f};
+
+        // Set bubble that shows date on tap, it reads the dates from the series
+        showData(goal, VISIBLE_POINTS, colors, dashes, n,
+                i -> EntryFormat.formatDate(series.getEpochDay(i)));
+    }
 
+    /**
+     * Builds the points and line on the graph from weekly or monthly rollups.
+     * Each point is the average of the period, with thin lines for the
+     * lowest and highest weight in it.
+     *
+     * @param rollup weeks or months, oldest first
+     * @param zoom WEEKS or MONTHS
+     * @param goal goal weight in lbs, or -1f if not set
+     */
+    private void setData(WeightRollup rollup, GraphViewModel.Zoom zoom, float goal) {
+        if (rollup.isEmpty()) {
+            clearData();
+            return;
+        }
+
+        int n = rollup.size();
+        weights = new float[n];
+        float[] low = new float[n];
+        float[] high = new float[n];
+        for (int i = 0; i < n; i++) {
+            weights[i] = rollup.getAveragePounds(i);
+            low[i] = rollup.getMinPounds(i);
+            high[i] = rollup.getMaxPounds(i);
+        }
+
+        int gray = getResources().getColor(R.color.gray, null);
+        lineValues = new float[][]{low, high};
+        int[] colors = {gray, gray};
+        float[] dashes = {8f, 8f};
+
+        // The bubble shows the week or month of the point
+        IntFunction<String> labels = zoom == GraphViewModel.Zoom.WEEKS
+                ? i -> "Week of " + EntryFormat.formatDate(rollup.getStartDay(i))
+                : i -> LocalDate.ofEpochDay(rollup.getStartDay(i)).format(MONTH_FORMAT);
+        showData(goal, VISIBLE_PERIODS, colors, dashes, n, labels);
+    }
+
+    /**
+     * Empties the graph when there is nothing to show.
+     */
+    private void clearData() {
+        weights = new float[0];
+        lineValues = new float[0][];
+        dataSet = null;
+        lineSets = new LineDataSet[0];
+        chart.clear();
+    }
+
+    /**
+     * Draws weights and lineValues with the goal line and date bubble.
+     *
+     * @param goal goal weight in lbs, or -1f if not set
+     * @param visible how many points are on screen at once
+     * @param colors color of each line in lineValues
+     * @param dashes dash length of each line in lineValues, or 0f for solid
+     * @param size how many points there are
+     * @param labels the date text for each point
+     */
+    private void showData(float goal, int visible, int[] colors, float[] dashes, int size, IntFunction<String> labels) {
+        int n = weights.length;
+
+        // Min and max for the goal line
+        float dataMin = Float.MAX_VALUE;
+        float dataMax = -Float.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            dataMin = Math.min(dataMin, weights[i]);
+            dataMax = Math.max(dataMax, weights[i]);
+        }
+        for (float[] line : lineValues) {
+            for (float value : line) {
+                dataMin = Math.min(dataMin, value);
+                dataMax = Math.max(dataMax, value);
             }
-            points.add(new Entry(i, y));
         }
 
+        // Builds the points on the graph, the first screen at full detail
+        fullFrom = 0;
+        fullTo = visible * 2;
+        List<Entry> points = ChartDownsampler.sample(weights, fullFrom, fullTo, pointBudget());
+
         // For adjusting the line and circles
-        LineDataSet dataSet = new LineDataSet(points, "");
+        dataSet = new LineDataSet(points, "");
         dataSet.setLineWidth(2f);
         dataSet.setCircleRadius(4.0f);
         dataSet.setCircleHoleRadius(3f);
@@ -136,6 +403,15 @@ public class GraphFragment extends Fragment {
         dataSet.setHighlightEnabled(true);
         chart.setDrawMarkers(true);
 
+        // Thin lines go behind the weights
+        lineSets = new LineDataSet[lineValues.length];
+        LineDataSet[] allSets = new LineDataSet[lineValues.length + 1];
+        for (int k = 0; k < lineValues.length; k++) {
+            lineSets[k] = statLine(lineValues[k], colors[k], dashes[k]);
+            allSets[k] = lineSets[k];
+        }
+        allSets[lineValues.length] = dataSet;
+
         // For the y axis
         YAxis yAxis = chart.getAxisLeft();
         yAxis.setSpaceTop(30f);
@@ -146,19 +422,16 @@ public class GraphFragment extends Fragment {
         // Clear any old goal line first
         yAxis.removeAllLimitLines();
 
-        // Adds a goal line to y axis and get the value
-        float goal = goalLine(yAxis);
+        // Adds a goal line to y axis
+        goalLine(yAxis, goal);
 
-        chart.setData(new LineData(dataSet));
+        chart.setData(new LineData(allSets));
 
         // Gives more room for the date bubble at the top
         chart.setExtraTopOffset(30f);
 
         // Keep the goal line always in view
         if (goal > 0f) {
-            float dataMin = dataSet.getYMin();
-            float dataMax = dataSet.getYMax();
-
             float low  = Math.min(goal, dataMin);
             float high = Math.max(goal, dataMax);
 
@@ -178,23 +451,23 @@ public class GraphFragment extends Fragment {
         }
 
         // Set bubble that shows date on tap
-        DateBubble bubble = new DateBubble(requireContext(), R.layout.date_bubble, dates);
+        DateBubble bubble = new DateBubble(requireContext(), R.layout.date_bubble, size, labels);
         chart.setMarker(bubble);
 
         // Animates chart drawing
         chart.animateX(800);
 
         // Show limited number of entries at once
-        chart.setVisibleXRangeMaximum(6);
+        chart.setVisibleXRangeMaximum(visible);
 
         // For the x axis
+        int gray = getResources().getColor(R.color.gray, null);
         XAxis xAxis = chart.getXAxis();
         xAxis.setAxisMinimum(-0.9f);
-        xAxis.setAxisMaximum(points.size() - 1f + 0.9f);
+        xAxis.setAxisMaximum(n - 1f + 0.9f);
         xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
         xAxis.setDrawGridLines(true);
         xAxis.enableGridDashedLine(20f, 20f, 0f);
-        int gray = getResources().getColor(R.color.gray, null);
         xAxis.setGridColor(gray);
 
         // Hide labels on the bottom
@@ -202,54 +475,74 @@ public class GraphFragment extends Fragment {
     }
 
     /**
-     * Reads the weights of the user
+     * Rebuilds the drawn points so the part of the graph on screen, plus
+     * one screen on each side, has every point and the rest is downsampled.
      *
-     * @return list of WeightEntry objects, newest first. empty if none
+     * @param onlyIfNeeded true to skip the rebuild while the screen is still
+     * inside the part already drawn at full detail
      */
-    private ArrayList<WeightEntry> getWeights() {
-        ArrayList<WeightEntry> out = new ArrayList<>();
-
-        SharedPreferences prefs = requireActivity().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        String user = prefs.getString(KEY_USERNAME, "");
-
-        try (Cursor cursor = weightDatabase.getUserWeights(user)) {
-            int colId = cursor.getColumnIndexOrThrow("_id");
-            int colDate = cursor.getColumnIndexOrThrow("date");
-            int colWeight = cursor.getColumnIndexOrThrow("weight");
-            while (cursor.moveToNext()) {
-                out.add(new WeightEntry(
-                        cursor.getInt(colId),
-                        cursor.getString(colDate),
-                        cursor.getString(colWeight)
-                ));
-            }
+    private void resample(boolean onlyIfNeeded) {
+        if (chart == null || dataSet == null || weights.length <= pointBudget()) {
+            return;
+        }
+
+        int low = (int) Math.floor(chart.getLowestVisibleX());
+        int high = (int) Math.ceil(chart.getHighestVisibleX());
+        if (onlyIfNeeded && low >= fullFrom && high <= fullTo) {
+            return;
         }
 
-        // Sets the graph from oldest to newest
-        out.sort(Comparator.comparing(a -> parseDate(a.getDate())));
-        return out;
+        int span = Math.max(1, high - low);
+        fullFrom = Math.max(0, low - span);
+        fullTo = Math.min(weights.length - 1, high + span);
+
+        dataSet.setValues(ChartDownsampler.sample(weights, fullFrom, fullTo, pointBudget()));
+        for (int k = 0; k < lineSets.length; k++) {
+            lineSets[k].setValues(ChartDownsampler.sample(lineValues[k], fullFrom, fullTo, pointBudget()));
+        }
+        chart.getData().notifyDataChanged();
+        chart.notifyDataSetChanged();
+        chart.invalidate();
     }
 
     /**
-     * Adds a goal line to the graph if the user set it
+     * Makes a thin line for the trend, a moving average, or a low or high.
+     * It can't be tapped so the date bubble always goes to a real weight.
      *
-     * @param yAxis left axis to draw the line on
-     * @return goal weight in lbs, or -1f if not set
+     * @param values one value per point
+     * @param color color of the line
+     * @param dash dash length, or 0f for a solid line
+     * @return the line to add to the chart
      */
-    private float goalLine(YAxis yAxis) {
-        float goal = -1f;
-
-        SharedPreferences prefs = requireActivity().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        String user = prefs.getString(KEY_USERNAME, "");
-
-        try (GoalDatabase goalDatabase = new GoalDatabase(requireContext())) {
-            goal = goalDatabase.getGoalWeight(user);
+    private LineDataSet statLine(float[] values, int color, float dash) {
+        LineDataSet line = new LineDataSet(ChartDownsampler.sample(values, fullFrom, fullTo, pointBudget()), "");
+        line.setColor(color);
+        line.setLineWidth(1.5f);
+        line.setDrawCircles(false);
+        line.setDrawValues(false);
+        line.setHighlightEnabled(false);
+        if (dash > 0f) {
+            line.enableDashedLine(dash, dash, 0f);
         }
+        return line;
+    }
 
-        catch (Exception ignore) {
-
-        }
+    /**
+     * About as many points as the chart is wide in pixels.
+     *
+     * @return how many points to draw
+     */
+    private int pointBudget() {
+        return Math.max(MIN_POINT_BUDGET, chart.getWidth());
+    }
 
+    /**
+     * Adds a goal line to the graph if the user set it
+     *
+     * @param yAxis left axis to draw the line on
+     * @param goal goal weight in lbs, or -1f if not set
+     */
+    private void goalLine(YAxis yAxis, float goal) {
         yAxis.removeAllLimitLines();
         if (goal > 0f) {
             // Sets the color and style of the goal line
@@ -261,8 +554,6 @@ public class GraphFragment extends Fragment {
             line.setTextSize(18f);
             yAxis.addLimitLine(line);
         }
-
-        return goal;
     }
 
     /**
@@ -270,22 +561,24 @@ public class GraphFragment extends Fragment {
      */
     private static class DateBubble extends MarkerView {
         private final TextView dateText;
-        private final List<String> dateList;
+        private final int size;
+        private final IntFunction<String> labels;
         private MPPointF offset;
 
-        // Sets up the bubble view and date list
-        DateBubble(Context context, int layoutRes, List<String> dates) {
+        // Sets up the bubble view and the date text for each point
+        DateBubble(Context context, int layoutRes, int size, IntFunction<String> labels) {
             super(context, layoutRes);
-            this.dateList = dates;
+            this.size = size;
+            this.labels = labels;
             dateText = findViewById(R.id.bubble);
         }
 
         @Override
         public void refreshContent(Entry e, Highlight highlight) {
             int i = Math.round(e.getX());
-            if (i >= 0 && i < dateList.size()) {
+            if (i >= 0 && i < size) {
                 // Set the date text for this point
-                dateText.setText(dateList.get(i));
+                dateText.setText(labels.apply(i));
             }
             super.refreshContent(e, highlight);
         }
@@ -0,0 +1,122 @@
+package com.weighttracker.app.ui.graph;
+
+import android.content.Context;
+
+import androidx.lifecycle.ViewModel;
+
+import com.weighttracker.app.data.DataChanges;
+import com.weighttracker.app.data.UserSession;
+import com.weighttracker.app.data.WeightRepository;
+import com.weighttracker.app.util.WeightStats;
+
+import model.WeightRollup;
+import model.WeightSeries;
+
+/**
+ * Holds what the graph was drawn from so it lives through a rotation.
+ * The series, its trend and averages, and the goal stay here while the
+ * fragment and chart are made again, so turning the phone only draws
+ * the chart again and never reads the database or redoes the stats.
+ * Changes to the weights or goal are heard here too, so one made while
+ * the screen is being rebuilt still marks the graph as out of date.
+ */
+public class GraphViewModel extends ViewModel {
+
+    /**
+     * How far out the graph is zoomed. Weeks and months draw one point
+     * per period from the rollups instead of one per entry.
+     */
+    enum Zoom { ENTRIES, WEEKS, MONTHS }
+
+    private UserSession session;
+    private WeightRepository weightRepository;
+
+    // What the chart was last loaded with, or null before the first load
+    private ChartData data;
+    // Set when the weights or goal change, the chart only loads again then
+    private boolean stale = true;
+    private Zoom zoom = Zoom.ENTRIES;
+
+    private final DataChanges.Observer changeObserver = this::onDataChanged;
+
+    /**
+     * Sets up the holder the first time the screen is shown.
+     * Does nothing when the screen is only being made again.
+     *
+     * @param context Any context of the app.
+     */
+    void init(Context context) {
+        if (session != null) {
+            return;
+        }
+        session = UserSession.get(context);
+        weightRepository = WeightRepository.get(context, session.getUsername());
+        DataChanges.observe(changeObserver);
+    }
+
+    UserSession getSession() {
+        return session;
+    }
+
+    WeightRepository getRepository() {
+        return weightRepository;
+    }
+
+    ChartData getData() {
+        return data;
+    }
+
+    void setData(ChartData data) {
+        this.data = data;
+    }
+
+    Zoom getZoom() {
+        return zoom;
+    }
+
+    void setZoom(Zoom zoom) {
+        this.zoom = zoom;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
+    /**
+     * Marks the chart as out of date when the users weights or goal change.
+     *
+     * @param change what was written
+     */
+    private void onDataChanged(DataChanges.Change change) {
+        String username = session.getUsername();
+        if (change.isFor(DataChanges.Table.WEIGHTS, username) || change.isFor(DataChanges.Table.GOALS, username)) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Called when the screen is gone for good, not just rotated.
+     */
+    @Override
+    protected void onCleared() {
+        DataChanges.remove(changeObserver);
+    }
+
+    /**
+     * Everything the graph needs, read together in the background
+     */
+    static class ChartData {
+        int version;
+        Zoom zoom;
+        // Set for ENTRIES
+        WeightSeries series;
+        WeightStats stats;
+        // Set for WEEKS and MONTHS
+        WeightRollup rollup;
+        float goal;
+    }
+}
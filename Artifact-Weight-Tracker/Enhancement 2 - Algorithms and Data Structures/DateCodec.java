@@ -0,0 +1,276 @@
+package com.weighttracker.app.util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Reads and writes dates as days since 1/1/1970 without making any
+ * LocalDate objects or throwing on bad text.
+ * Text is read one character at a time and turned into a day with plain
+ * math, so reading thousands of rows makes no garbage. Dates that can't
+ * be read come back as INVALID_DAY instead of an exception.
+ * Formatted dates are kept in a small cache, since a list or graph asks
+ * for the same few dates over and over.
+ */
+public final class DateCodec {
+
+    // Day used for dates that can't be read, sorts before every real date
+    public static final int INVALID_DAY = Integer.MIN_VALUE;
+
+    // Days from 3/1/0000 to 1/1/1970, the math below counts from March
+    private static final int DAYS_TO_EPOCH = 719468;
+    private static final int DAYS_PER_400_YEARS = 146097;
+
+    // Only used for years that don't fit in four digits
+    private static final DateTimeFormatter FALLBACK = DateTimeFormatter.ofPattern("M/d/yyyy", Locale.US);
+
+    // Must be a power of two, each day always goes in the same slot
+    private static final int CACHE_SIZE = 256;
+    private static final Formatted[] cache = new Formatted[CACHE_SIZE];
+
+    private DateCodec() {
+    }
+
+    /**
+     * Reads "M/d/yyyy" like the app saves. The month and day can have one
+     * or two digits and the year has four. A day past the end of the month,
+     * like 2/30, moves back to the last day the same way java.time does.
+     *
+     * @param text the date text
+     * @return the epoch day, or INVALID_DAY if it can't be read
+     */
+    public static int parseMonthDayYear(CharSequence text) {
+        if (text == null) {
+            return INVALID_DAY;
+        }
+        int n = text.length();
+
+        int month = 0;
+        int i = 0;
+        int start = i;
+        while (i < n && i - start < 2 && isDigit(text.charAt(i))) {
+            month = month * 10 + (text.charAt(i++) - '0');
+        }
+        if (i == start || i >= n || text.charAt(i++) != '/') {
+            return INVALID_DAY;
+        }
+
+        int day = 0;
+        start = i;
+        while (i < n && i - start < 2 && isDigit(text.charAt(i))) {
+            day = day * 10 + (text.charAt(i++) - '0');
+        }
+        if (i == start || i >= n || text.charAt(i++) != '/') {
+            return INVALID_DAY;
+        }
+
+        int year = 0;
+        start = i;
+        while (i < n && isDigit(text.charAt(i))) {
+            year = year * 10 + (text.charAt(i++) - '0');
+            if (i - start > 4) {
+                return INVALID_DAY;
+            }
+        }
+        if (i != n || i - start != 4) {
+            return INVALID_DAY;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Reads "yyyy-MM-dd" like most exports use. The month and day need
+     * two digits and the date has to be real.
+     *
+     * @param text the date text
+     * @return the epoch day, or INVALID_DAY if it can't be read
+     */
+    public static int parseIso(CharSequence text) {
+        if (text == null || text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return INVALID_DAY;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        if (year < 0 || month < 0 || day < 0 || day > lengthOfMonth(year, month)) {
+            return INVALID_DAY;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Turns an epoch day into "M/d/yyyy".
+     * Recent dates come from the cache, so the same date is only built once.
+     *
+     * @param epochDay days since 1/1/1970
+     * @return the date text, or an empty string for INVALID_DAY
+     */
+    public static String formatMonthDayYear(int epochDay) {
+        if (epochDay == INVALID_DAY) {
+            return "";
+        }
+        int slot = epochDay & (CACHE_SIZE - 1);
+        Formatted cached = cache[slot];
+        if (cached != null && cached.epochDay == epochDay) {
+            return cached.text;
+        }
+
+        int date = toDate(epochDay);
+        int year = date / 10000;
+        int month = date / 100 % 100;
+        int day = date % 100;
+        String text;
+        if (year < 1 || year > 9999) {
+            text = LocalDate.ofEpochDay(epochDay).format(FALLBACK);
+        } else {
+            char[] out = new char[10];
+            int k = 0;
+            k = writeNumber(out, k, month);
+            out[k++] = '/';
+            k = writeNumber(out, k, day);
+            out[k++] = '/';
+            out[k++] = (char) ('0' + year / 1000);
+            out[k++] = (char) ('0' + year / 100 % 10);
+            out[k++] = (char) ('0' + year / 10 % 10);
+            out[k++] = (char) ('0' + year % 10);
+            text = new String(out, 0, k);
+        }
+
+        // One write of a final object, so other threads see the whole entry or none of it
+        cache[slot] = new Formatted(epochDay, text);
+        return text;
+    }
+
+    /**
+     * Turns an epoch day into "yyyy-MM-dd", used in exported files.
+     *
+     * @param epochDay days since 1/1/1970
+     * @return the date text, or an empty string for INVALID_DAY
+     */
+    public static String formatIso(int epochDay) {
+        if (epochDay == INVALID_DAY) {
+            return "";
+        }
+        int date = toDate(epochDay);
+        int year = date / 10000;
+        // date is negative for years before 0, dividing alone would round those up to year 0
+        if (date < 0 || year > 9999) {
+            return LocalDate.ofEpochDay(epochDay).toString();
+        }
+        char[] out = new char[10];
+        out[0] = (char) ('0' + year / 1000);
+        out[1] = (char) ('0' + year / 100 % 10);
+        out[2] = (char) ('0' + year / 10 % 10);
+        out[3] = (char) ('0' + year % 10);
+        out[4] = '-';
+        out[5] = (char) ('0' + date / 1000 % 10);
+        out[6] = (char) ('0' + date / 100 % 10);
+        out[7] = '-';
+        out[8] = (char) ('0' + date / 10 % 10);
+        out[9] = (char) ('0' + date % 10);
+        return new String(out);
+    }
+
+    /**
+     * Turns a year, month and day into an epoch day.
+     * A day past the end of the month moves back to the last day.
+     *
+     * @return the epoch day, or INVALID_DAY if the month or day is out of range
+     */
+    private static int toEpochDay(int year, int month, int day) {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return INVALID_DAY;
+        }
+        day = Math.min(day, lengthOfMonth(year, month));
+
+        // Count years from March so the leap day is the last day of the year
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_TO_EPOCH;
+    }
+
+    /**
+     * Turns an epoch day into a date packed as yyyyMMdd, like 20240105.
+     *
+     * @param epochDay days since 1/1/1970
+     * @return the packed date
+     */
+    private static int toDate(int epochDay) {
+        long z = (long) epochDay + DAYS_TO_EPOCH;
+        long era = (z >= 0 ? z : z - (DAYS_PER_400_YEARS - 1)) / DAYS_PER_400_YEARS;
+        int dayOfEra = (int) (z - era * DAYS_PER_400_YEARS);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 10000 + month * 100 + day);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Reads the digits from start to end.
+     *
+     * @return the number, or -1 if something isn't a digit
+     */
+    private static int digits(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Writes a one or two digit number.
+     *
+     * @return the index after the number
+     */
+    private static int writeNumber(char[] out, int k, int value) {
+        if (value >= 10) {
+            out[k++] = (char) ('0' + value / 10);
+        }
+        out[k++] = (char) ('0' + value % 10);
+        return k;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * A formatted date in the cache.
+     */
+    private static final class Formatted {
+        final int epochDay;
+        final String text;
+
+        Formatted(int epochDay, String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+}
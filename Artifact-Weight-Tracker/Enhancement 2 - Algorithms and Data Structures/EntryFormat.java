@@ -0,0 +1,143 @@
+package com.weighttracker.app.util;
+
+import java.util.Locale;
+import model.WeightUnit;
+
+/**
+ * Converts weight entry dates and weights between the text shown
+ * on screen and the numbers saved in the database.
+ */
+public final class EntryFormat {
+
+    private static final String LBS = " lbs";
+    // Heavier than any real weight, bigger numbers are typos. Also stops the digits from overflowing.
+    private static final long MAX_POUNDS = 1500;
+
+    // Day used for dates that can't be read, sorts before every real date
+    public static final int INVALID_DAY = DateCodec.INVALID_DAY;
+
+    private EntryFormat() {
+    }
+
+    /**
+     * Turns "M/d/yyyy" into the number of days since 1/1/1970.
+     * Bad text gives INVALID_DAY without throwing, so it's cheap to call on every row.
+     *
+     * @param monthDayYear the date string from the entry
+     * @return the epoch day, or INVALID_DAY if it can't be read
+     */
+    public static int toEpochDay(String monthDayYear) {
+        return DateCodec.parseMonthDayYear(monthDayYear);
+    }
+
+    /**
+     * Turns an epoch day back into "M/d/yyyy".
+     * Recent dates are cached, so redrawing a list doesn't build them again.
+     *
+     * @param epochDay days since 1/1/1970
+     * @return the date text, or an empty string for INVALID_DAY
+     */
+    public static String formatDate(int epochDay) {
+        return DateCodec.formatMonthDayYear(epochDay);
+    }
+
+    /**
+     * Reads a weight like "182.4 lbs", "182.45" or "182" into tenths of a pound.
+     * The digits are read one at a time, so no strings or floats are made.
+     * A second decimal place rounds the tenths.
+     *
+     * @param weight the weight text
+     * @return the weight in tenths of a pound, or 0 if it can't be read or is over MAX_POUNDS
+     */
+    public static int parseTenths(String weight) {
+        if (weight == null) {
+            return 0;
+        }
+        int n = weight.length();
+        int i = 0;
+        while (i < n && weight.charAt(i) == ' ') i++;
+
+        long whole = 0;
+        int digits = 0;
+        while (i < n && isDigit(weight.charAt(i))) {
+            whole = whole * 10 + (weight.charAt(i++) - '0');
+            digits++;
+            if (whole > MAX_POUNDS) return 0;
+        }
+
+        int tenths = 0;
+        int round = 0;
+        if (i < n && weight.charAt(i) == '.') {
+            i++;
+            if (i < n && isDigit(weight.charAt(i))) {
+                tenths = weight.charAt(i++) - '0';
+                digits++;
+                if (i < n && isDigit(weight.charAt(i))) {
+                    round = weight.charAt(i++) - '0' >= 5 ? 1 : 0;
+                }
+                while (i < n && isDigit(weight.charAt(i))) i++;
+            }
+        }
+        if (digits == 0) {
+            return 0;
+        }
+
+        // Only spaces or "lbs" can come after the number
+        while (n > i && weight.charAt(n - 1) == ' ') n--;
+        while (i < n && weight.charAt(i) == ' ') i++;
+        if (i < n && (n - i != 3 || !weight.regionMatches(true, i, "lbs", 0, 3))) {
+            return 0;
+        }
+        return (int) (whole * 10 + tenths + round);
+    }
+
+    /**
+     * Reads a weight like "182.4 lbs" or "182.4".
+     *
+     * @param weight the weight text
+     * @return the weight in lbs, or 0 if it can't be read
+     */
+    public static float parseWeight(String weight) {
+        return parseTenths(weight) / 10f;
+    }
+
+    /**
+     * Turns tenths into a plain number like "182.4", used in exported files.
+     *
+     * @param tenths the weight in tenths
+     * @return the number text
+     */
+    public static String formatTenths(int tenths) {
+        StringBuilder text = new StringBuilder(8);
+        if (tenths < 0) {
+            text.append('-');
+            tenths = -tenths;
+        }
+        return text.append(tenths / 10).append('.').append(tenths % 10).toString();
+    }
+
+    /**
+     * Turns a saved weight into the text shown in the list, like "182.4 lbs" or "82.7 kg".
+     *
+     * @param tenthsOfPound the weight in tenths of a pound
+     * @param unit the unit to show
+     * @return the weight text
+     */
+    public static String formatWeight(int tenthsOfPound, WeightUnit unit) {
+        return formatTenths(unit.fromTenthsOfPound(tenthsOfPound)) + " " + unit.getLabel();
+    }
+
+    /**
+     * Turns a weight into the "182.4 lbs" text shown in the list.
+     *
+     * @param weight the weight in lbs
+     * @return the weight text
+     */
+    public static String formatWeight(float weight) {
+        return String.format(Locale.US, "%.1f", weight) + LBS;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,52 @@
+package com.weighttracker.app.ui.weight;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.List;
+
+import model.WeightEntry;
+
+/**
+ * Compares the old and new weight lists so only the rows that
+ * changed are redrawn. Rows match by ID and are the same if the
+ * date and weight didn't change.
+ */
+public class WeightDiffCallback extends DiffUtil.Callback {
+
+    private final List<WeightEntry> oldList;
+    private final List<WeightEntry> newList;
+
+    /**
+     * Sets up the compare between two lists.
+     *
+     * @param oldList the entries on screen now
+     * @param newList the entries that will replace them
+     */
+    public WeightDiffCallback(List<WeightEntry> oldList, List<WeightEntry> newList) {
+        this.oldList = oldList;
+        this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        return oldList.get(oldItemPosition).getId() == newList.get(newItemPosition).getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        WeightEntry oldEntry = oldList.get(oldItemPosition);
+        WeightEntry newEntry = newList.get(newItemPosition);
+        return oldEntry.getEpochDay() == newEntry.getEpochDay()
+                && oldEntry.getTenths() == newEntry.getTenths();
+    }
+}
@@ -0,0 +1,100 @@
+package model;
+
+import com.weighttracker.app.util.EntryFormat;
+
+/**
+ * One weight entry.
+ * The date and weight are kept as whole numbers, the weight in tenths
+ * of a pound, and only turned into text when shown on screen.
+ */
+public class WeightEntry {
+    private final int id;
+    private final int epochDay;
+    private final int tenths;
+
+    /**
+     * Makes a weight entry with id, date, and weight.
+     *
+     * @param id unique ID of the entry in the database
+     * @param epochDay the date in days since 1/1/1970
+     * @param tenths the weight in tenths of a pound, so 1824 is 182.4 lbs
+     */
+    public WeightEntry(int id, int epochDay, int tenths) {
+        this.id = id;
+        this.epochDay = epochDay;
+        this.tenths = tenths;
+    }
+
+    /**
+     * Makes a weight entry from the text shown on screen.
+     *
+     * @param id unique ID of the entry in the database
+     * @param date the date as "M/d/yyyy"
+     * @param weight the weight like "182.4 lbs"
+     */
+    public WeightEntry(int id, String date, String weight) {
+        this(id, EntryFormat.toEpochDay(date), EntryFormat.parseTenths(weight));
+    }
+
+    /**
+     * Gets the ID of this weight entry.
+     *
+     * @return the ID as an int
+     */
+    public int getId() { return id; }
+
+    /**
+     * Gets the date of this entry.
+     *
+     * @return days since 1/1/1970
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Gets the weight of this entry as saved.
+     *
+     * @return the weight in tenths of a pound
+     */
+    public int getTenths() {
+        return tenths;
+    }
+
+    /**
+     * Gets the weight of this entry for math and the graph.
+     *
+     * @return the weight in lbs
+     */
+    public float getPounds() {
+        return tenths / 10f;
+    }
+
+    /**
+     * Gets the date as text for the screen.
+     *
+     * @return the date as "M/d/yyyy"
+     */
+    public String getDate() {
+        return EntryFormat.formatDate(epochDay);
+    }
+
+    /**
+     * Gets the weight as text for the screen.
+     *
+     * @return the weight like "182.4 lbs"
+     */
+    public String getWeight() {
+        return getWeight(WeightUnit.LBS);
+    }
+
+    /**
+     * Gets the weight as text in the unit the user picked.
+     *
+     * @param unit the unit to show
+     * @return the weight like "182.4 lbs" or "82.7 kg"
+     */
+    public String getWeight(WeightUnit unit) {
+        return EntryFormat.formatWeight(tenths, unit);
+    }
+}
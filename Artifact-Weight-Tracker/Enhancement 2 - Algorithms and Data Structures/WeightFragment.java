@@ -1,8 +1,5 @@
 package com.weighttracker.app.ui.weight;
 
-import android.content.Context;
-import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -15,14 +12,18 @@ import androidx.annotation.NonNull;
 import androidx.core.view.MenuProvider;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.DividerItemDecoration;
 import com.weighttracker.app.R;
-import com.weighttracker.app.data.WeightDatabase;
+import com.weighttracker.app.data.DataChanges;
+import com.weighttracker.app.data.UserSession;
+import com.weighttracker.app.data.WeightRepository;
 import com.weighttracker.app.databinding.FragmentWeightBinding;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import com.weighttracker.app.util.BackgroundLoader;
+import com.weighttracker.app.util.EntryFormat;
+import com.weighttracker.app.util.PagedWindow;
+import com.weighttracker.app.util.WeightStats;
+import java.util.Locale;
 import model.WeightEntry;
 
 /**
@@ -32,14 +33,12 @@ import model.WeightEntry;
 public class WeightFragment extends Fragment implements AddWeightDialogFragment.AddWeightDialogListener {
 
     private FragmentWeightBinding binding;
-    private final List<WeightEntry> entryList = new ArrayList<>();
+    private WeightViewModel viewModel;
     private WeightAdapter adapter;
-    private WeightDatabase weightDatabase;
-    private boolean showOldestFirst = false;
-    private static final String KEY_SORT_OLDEST_FIRST = "sort_oldest_first";
-    private static final String KEY_USERNAME = "logged_in_username";
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("M/d/yyyy", java.util.Locale.US);
-    private static final String PREFS = "myprefs";
+    private WeightRepository weightRepository;
+    private PagedWindow<WeightEntry> window;
+    private BackgroundLoader.Load pendingSummary;
+    private final DataChanges.Observer changeObserver = this::onDataChanged;
 
 
     /**
@@ -50,19 +49,15 @@ public class WeightFragment extends Fragment implements AddWeightDialogFragment.
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
 
         binding = FragmentWeightBinding.inflate(inflater, container, false);
-        weightDatabase = new WeightDatabase(requireContext());
 
-        // Restore sort
-        showOldestFirst = requireActivity()
-                .getSharedPreferences(PREFS, Context.MODE_PRIVATE)
-                .getBoolean(KEY_SORT_OLDEST_FIRST, false);
-
-        // Load saved weight entries
-        loadEntries();
-        sortEntries();
+        // Rows, sort and summary are kept by the view model, so a rotation reads nothing
+        viewModel = new ViewModelProvider(this).get(WeightViewModel.class);
+        viewModel.init(requireContext());
+        weightRepository = viewModel.getRepository();
+        window = viewModel.getWindow();
 
         // Adapter and actions
-        adapter = new WeightAdapter(entryList, new WeightAdapter.WeightItemActionListener() {
+        adapter = new WeightAdapter(viewModel.entries, new WeightAdapter.WeightItemActionListener() {
             @Override
             public void onEditRequested(WeightEntry entry) {
                 AddWeightDialogFragment dialog = AddWeightDialogFragment.newInstance(entry);
@@ -78,6 +73,20 @@ public class WeightFragment extends Fragment implements AddWeightDialogFragment.
         // Attach adapter
         binding.weightList.setAdapter(adapter);
 
+        // First page only the first time, after a rotation the rows are already here
+        window.attach(binding.weightList, adapter);
+        if (!window.isStarted()) {
+            window.loadFirst();
+        }
+        if (viewModel.getSummary() == null) {
+            loadSummary();
+        } else {
+            showSummary(viewModel.getSummary());
+        }
+
+        // The view model updates the rows, this only redoes the summary
+        DataChanges.observe(changeObserver);
+
         // Add a line between each row in the list
         DividerItemDecoration divider = new DividerItemDecoration(
                 binding.weightList.getContext(),
@@ -104,10 +113,12 @@ public class WeightFragment extends Fragment implements AddWeightDialogFragment.
                     popup.getMenuInflater().inflate(R.menu.sort_order_popup, popup.getMenu());
 
                     // Set current choice
-                    popup.getMenu().findItem(R.id.menu_sort_oldest).setChecked(showOldestFirst);
-                    popup.getMenu().findItem(R.id.menu_sort_newest).setChecked(!showOldestFirst);
+                    boolean oldestFirst = viewModel.isOldestFirst();
+                    popup.getMenu().findItem(R.id.menu_sort_oldest).setChecked(oldestFirst);
+                    popup.getMenu().findItem(R.id.menu_sort_newest).setChecked(!oldestFirst);
 
                     popup.setOnMenuItemClickListener(menuItem -> {
+                        boolean showOldestFirst;
                         if (menuItem.getItemId() == R.id.menu_sort_oldest) {
                             showOldestFirst = true;
                         }
@@ -122,14 +133,8 @@ public class WeightFragment extends Fragment implements AddWeightDialogFragment.
                         popup.getMenu().findItem(R.id.menu_sort_oldest).setChecked(showOldestFirst);
                         popup.getMenu().findItem(R.id.menu_sort_newest).setChecked(!showOldestFirst);
 
-                        // Save
-                        requireActivity()
-                                .getSharedPreferences(PREFS, Context.MODE_PRIVATE)
-                                .edit()
-                                .putBoolean(KEY_SORT_OLDEST_FIRST, showOldestFirst)
-                                .apply();
-
-                        sortEntries();
+                        // Save and load the first page in the new order
+                        viewModel.setOldestFirst(showOldestFirst);
                         return true;
                     });
 
@@ -144,31 +149,6 @@ public class WeightFragment extends Fragment implements AddWeightDialogFragment.
         return binding.getRoot();
     }
 
-    /**
-     * Load all weight entries for the user
-     */
-    private void loadEntries() {
-        entryList.clear();
-
-        // Get the username of the logged-in user
-        SharedPreferences prefs = requireActivity().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        String username = prefs.getString(KEY_USERNAME, "");
-
-        // Grab the weights from the database for this user
-        try (Cursor cursor = weightDatabase.getUserWeights(username)) {
-            int idIdx = cursor.getColumnIndexOrThrow("_id");
-            int dateIdx = cursor.getColumnIndexOrThrow("date");
-            int wtIdx  = cursor.getColumnIndexOrThrow("weight");
-            while (cursor.moveToNext()) {
-                entryList.add(new WeightEntry(
-                        cursor.getInt(idIdx),
-                        cursor.getString(dateIdx),
-                        cursor.getString(wtIdx)
-                ));
-            }
-        }
-    }
-
     /**
      * Shows a confirm box before deleting an entry
      *
@@ -179,106 +159,100 @@ public class WeightFragment extends Fragment implements AddWeightDialogFragment.
                 .setTitle("Delete Entry")
                 .setMessage("Are you sure you want to delete this weight entry?")
                 .setPositiveButton("Yes", (dialog, which) -> {
-                    // Find by id
-                    int position = -1;
-                    for (int k = 0; k < entryList.size(); k++) {
-                        if (entryList.get(k).getId() == entry.getId()) {
-                            position = k;
-                            break;
-                        }
-                    }
-                    if (position >= 0) {
-                        weightDatabase.deleteWeight(entry.getId());
-                        entryList.remove(position);
-                        adapter.notifyItemRemoved(position);
-                    }
+                    // Deleted in the background, the row is taken off the list when the delete is published
+                    WeightRepository repository = weightRepository;
+                    BackgroundLoader.load(() -> {
+                        repository.deleteWeight(entry.getId());
+                        return null;
+                    }, done -> {});
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
     }
 
     /**
-     * This sorts the weight entries by date
-     * and refreshes the list on the screen.
+     * Loads the summary again after the view model dropped it because
+     * the weights or goal changed. The rows are updated by the view model.
+     *
+     * @param change what was written
      */
-    private void sortEntries() {
-        List<WeightEntry> sortedList = mergeSort(entryList); // oldest to newest
-        if (!showOldestFirst) {
-            java.util.Collections.reverse(sortedList);       // newest to oldest
-        }
-        entryList.clear();
-        entryList.addAll(sortedList);
-
-        if (adapter != null) {
-            adapter.notifyItemRangeChanged(0, entryList.size());
+    private void onDataChanged(DataChanges.Change change) {
+        if (binding != null && viewModel.getSummary() == null) {
+            loadSummary();
         }
     }
 
     /**
-     * Merge sort order over dates.
-     *
-     * @param arr the list of weight entries to sort
-     * @return a new list sorted by date
+     * Reads the trend, averages and goal in the background and shows
+     * them above the list. Hidden when there are no entries yet.
      */
-    private List<WeightEntry> mergeSort(List<WeightEntry> arr) {
-        if (arr == null || arr.size() <= 1) {
-            return arr == null ? new ArrayList<>() : new ArrayList<>(arr);
-        }
-        int mid = arr.size() / 2;
-        List<WeightEntry> left  = mergeSort(new ArrayList<>(arr.subList(0, mid)));
-        List<WeightEntry> right = mergeSort(new ArrayList<>(arr.subList(mid, arr.size())));
-        return merge(left, right);
+    private void loadSummary() {
+        if (pendingSummary != null) pendingSummary.cancel();
+        WeightRepository repository = weightRepository;
+        UserSession session = viewModel.getSession();
+        pendingSummary = BackgroundLoader.load(() -> {
+            WeightStats stats = repository.getStats();
+            if (stats.size() == 0) {
+                return "";
+            }
+            return summaryText(stats, session.getGoalWeight());
+        }, text -> {
+            viewModel.setSummary(text);
+            showSummary(text);
+        });
     }
 
     /**
-     * Merges two sorted lists into one.
+     * Shows the summary above the list, or hides it if it is empty.
      *
-     * @param left the left side list
-     * @param right the right side list
-     * @return a list in order
+     * @param text the summary text
      */
-    private List<WeightEntry> merge(List<WeightEntry> left, List<WeightEntry> right) {
-        ArrayList<WeightEntry> result = new ArrayList<>(left.size() + right.size());
-        int i = 0, j = 0;
-
-        while (i < left.size() && j < right.size()) {
-            LocalDate dateLeft  = convertDate(left.get(i).getDate());
-            LocalDate dateRight = convertDate(right.get(j).getDate());
-
-            // Keep order when dates match
-            if (!dateLeft.isAfter(dateRight)) {
-                result.add(left.get(i++));
-            } else {
-                result.add(right.get(j++));
-            }
-        }
-        // Add leftovers
-        while (i < left.size()) result.add(left.get(i++));
-        while (j < right.size()) result.add(right.get(j++));
-        return result;
+    private void showSummary(String text) {
+        binding.weightSummary.setText(text);
+        binding.weightSummary.setVisibility(text.isEmpty() ? View.GONE : View.VISIBLE);
     }
 
     /**
-     * Turns "M/d/yyyy" into a LocalDate.
+     * Builds the summary shown above the list.
      *
-     * @param monthDayYear the date string from the entry
-     * @return a LocalDate object
+     * @param stats stats for every entry
+     * @param goal goal weight in lbs, or -1f if not set
+     * @return the summary text
      */
-    private LocalDate convertDate(String monthDayYear) {
-        try {
-            return LocalDate.parse(monthDayYear, FORMATTER);
-        } catch (Exception ignore) {
-            return LocalDate.MIN;
+    private static String summaryText(WeightStats stats, float goal) {
+        StringBuilder text = new StringBuilder();
+        text.append("Trend ").append(EntryFormat.formatWeight(stats.getCurrentTrend()));
+
+        float rate = stats.getWeeklyRate();
+        if (!Float.isNaN(rate)) {
+            text.append(String.format(Locale.US, ", %+.1f lbs per week", rate));
+        }
+
+        text.append("\n7 day avg ").append(EntryFormat.formatWeight(stats.getCurrentAverage7()))
+                .append(", 30 day avg ").append(EntryFormat.formatWeight(stats.getCurrentAverage30()));
+
+        int goalDay = stats.getProjectedGoalDay(goal);
+        if (goalDay != WeightStats.NO_DAY) {
+            text.append("\nGoal by ").append(EntryFormat.formatDate(goalDay));
         }
+        return text.toString();
     }
 
     /**
      * Called when the screen is being destroyed.
-     * This clears the binding to avoid memory leaks.
+     * This lets go of the list on screen, stops the summary load and clears
+     * the binding to avoid memory leaks. The rows and any page still loading
+     * stay with the view model for the next view.
      */
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        DataChanges.remove(changeObserver);
+        window.detach();
+        if (pendingSummary != null) {
+            pendingSummary.cancel();
+            pendingSummary = null;
+        }
         binding = null;
     }
 
@@ -294,14 +268,14 @@ public class WeightFragment extends Fragment implements AddWeightDialogFragment.
 
     /**
      * This is called after a new weight entry is added.
-     * It reloads the list to show the new data.
+     * The save is published by the database, so the view model
+     * already updates the shared entries and the rows on screen.
      *
      * @param date the date of the new entry
      * @param weight the weight value
      */
     @Override
     public void onWeightEntry(String date, String weight) {
-        loadEntries();
-        sortEntries();
+        // Nothing to do, see WeightViewModel.onDataChanged
     }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package model;
+
+/**
+ * A users weights grouped into weeks or months, oldest first.
+ * Each period has how many entries it holds and their average, lowest
+ * and highest weight. Kept as plain number arrays like WeightSeries, and
+ * never changed after it is made.
+ */
+public final class WeightRollup {
+
+    // A rollup with no periods
+    public static final WeightRollup EMPTY = new Builder(0).build();
+
+    private final int[] starts;
+    private final int[] counts;
+    private final long[] totals;
+    private final int[] mins;
+    private final int[] maxes;
+    private final int size;
+
+    private WeightRollup(int[] starts, int[] counts, long[] totals, int[] mins, int[] maxes, int size) {
+        this.starts = starts;
+        this.counts = counts;
+        this.totals = totals;
+        this.mins = mins;
+        this.maxes = maxes;
+        this.size = size;
+    }
+
+    /**
+     * Gets how many periods there are.
+     *
+     * @return the number of weeks or months that have entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if there are no periods.
+     *
+     * @return true if the rollup is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the first day of a period.
+     *
+     * @param index the position, oldest first
+     * @return days since 1/1/1970
+     */
+    public int getStartDay(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    /**
+     * Gets how many entries are in a period.
+     *
+     * @param index the position, oldest first
+     * @return the number of entries
+     */
+    public int getCount(int index) {
+        checkIndex(index);
+        return counts[index];
+    }
+
+    /**
+     * Gets the average weight of a period.
+     *
+     * @param index the position, oldest first
+     * @return the average in lbs
+     */
+    public float getAveragePounds(int index) {
+        checkIndex(index);
+        return counts[index] == 0 ? 0f : totals[index] / (counts[index] * 10f);
+    }
+
+    /**
+     * Gets the lowest weight of a period.
+     *
+     * @param index the position, oldest first
+     * @return the lowest weight in lbs
+     */
+    public float getMinPounds(int index) {
+        checkIndex(index);
+        return mins[index] / 10f;
+    }
+
+    /**
+     * Gets the highest weight of a period.
+     *
+     * @param index the position, oldest first
+     * @return the highest weight in lbs
+     */
+    public float getMaxPounds(int index) {
+        checkIndex(index);
+        return maxes[index] / 10f;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+    /**
+     * Builds a rollup one period at a time, oldest first.
+     */
+    public static final class Builder {
+        private final int[] starts;
+        private final int[] counts;
+        private final long[] totals;
+        private final int[] mins;
+        private final int[] maxes;
+        private int size;
+
+        /**
+         * Makes room for the periods.
+         *
+         * @param capacity how many periods will be added
+         */
+        public Builder(int capacity) {
+            starts = new int[capacity];
+            counts = new int[capacity];
+            totals = new long[capacity];
+            mins = new int[capacity];
+            maxes = new int[capacity];
+        }
+
+        /**
+         * Adds the next period.
+         *
+         * @param startDay first day of the period in days since 1/1/1970
+         * @param count number of entries
+         * @param total sum of the weights in tenths of a pound
+         * @param min lowest weight in tenths of a pound
+         * @param max highest weight in tenths of a pound
+         * @return this builder
+         */
+        public Builder add(int startDay, int count, long total, int min, int max) {
+            starts[size] = startDay;
+            counts[size] = count;
+            totals[size] = total;
+            mins[size] = min;
+            maxes[size] = max;
+            size++;
+            return this;
+        }
+
+        /**
+         * Makes the rollup. The builder shouldn't be used after this.
+         *
+         * @return the rollup
+         */
+        public WeightRollup build() {
+            return new WeightRollup(starts, counts, totals, mins, maxes, size);
+        }
+    }
+}
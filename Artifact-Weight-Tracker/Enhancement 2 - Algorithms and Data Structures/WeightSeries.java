@@ -0,0 +1,320 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A users weight entries, oldest first, kept as plain number arrays.
+ * One array each for the IDs, dates and weights instead of one object
+ * per entry, so a log with years of entries is a few small arrays and
+ * the garbage collector has almost nothing to track.
+ * Never changed after it is made. Adding, updating or removing an entry
+ * gives back a new series.
+ */
+public final class WeightSeries {
+
+    // A series with no entries
+    public static final WeightSeries EMPTY = new WeightSeries(new int[0], new int[0], new int[0], 0);
+
+    private final int[] ids;
+    private final int[] days;
+    private final int[] tenths;
+    private final int size;
+
+    private WeightSeries(int[] ids, int[] days, int[] tenths, int size) {
+        this.ids = ids;
+        this.days = days;
+        this.tenths = tenths;
+        this.size = size;
+    }
+
+    /**
+     * Gets how many entries there are.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if there are no entries.
+     *
+     * @return true if the series is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the database ID of an entry.
+     *
+     * @param index the position, oldest first
+     * @return the ID
+     */
+    public int getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    /**
+     * Gets the date of an entry.
+     *
+     * @param index the position, oldest first
+     * @return days since 1/1/1970
+     */
+    public int getEpochDay(int index) {
+        checkIndex(index);
+        return days[index];
+    }
+
+    /**
+     * Gets the weight of an entry as saved.
+     *
+     * @param index the position, oldest first
+     * @return the weight in tenths of a pound
+     */
+    public int getTenths(int index) {
+        checkIndex(index);
+        return tenths[index];
+    }
+
+    /**
+     * Gets the weight of an entry for math and the graph.
+     *
+     * @param index the position, oldest first
+     * @return the weight in lbs
+     */
+    public float getPounds(int index) {
+        checkIndex(index);
+        return tenths[index] / 10f;
+    }
+
+    /**
+     * Makes an entry object for one position, for code that still works
+     * with WeightEntry. Nothing is kept, so only ask for the ones needed.
+     *
+     * @param index the position, oldest first
+     * @return a new entry
+     */
+    public WeightEntry getEntry(int index) {
+        checkIndex(index);
+        return new WeightEntry(ids[index], days[index], tenths[index]);
+    }
+
+    /**
+     * Gets the series as a list that can't be changed.
+     * Entries are made only when read, so the list itself costs nothing.
+     *
+     * @return a list view of this series
+     */
+    public List<WeightEntry> asList() {
+        return new EntryList(this);
+    }
+
+    /**
+     * Finds an entry by ID.
+     *
+     * @param id the ID to find
+     * @return the position, or -1 if it isn't there
+     */
+    public int indexOf(int id) {
+        for (int k = 0; k < size; k++) {
+            if (ids[k] == id) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds where an entry goes so the series stays ordered by date, then ID.
+     * Same order the database uses.
+     *
+     * @param epochDay the date of the entry
+     * @param id the ID of the entry
+     * @return the position to insert at
+     */
+    public int insertPosition(int epochDay, int id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            boolean before = days[mid] < epochDay || (days[mid] == epochDay && ids[mid] < id);
+            if (before) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Makes a copy of this series with one more entry in date order.
+     *
+     * @param id the ID of the new entry
+     * @param epochDay the date of the new entry
+     * @param weight the weight in tenths of a pound
+     * @return the new series
+     */
+    public WeightSeries withAdded(int id, int epochDay, int weight) {
+        return insert(this, insertPosition(epochDay, id), id, epochDay, weight);
+    }
+
+    /**
+     * Makes a copy of this series with one entry changed and moved to
+     * its new spot if the date changed.
+     *
+     * @param id the ID of the entry
+     * @param epochDay the new date
+     * @param weight the new weight in tenths of a pound
+     * @return the new series, with the entry added if it wasn't there
+     */
+    public WeightSeries withUpdated(int id, int epochDay, int weight) {
+        WeightSeries without = withRemoved(id);
+        return insert(without, without.insertPosition(epochDay, id), id, epochDay, weight);
+    }
+
+    /**
+     * Makes a copy of this series without one entry.
+     *
+     * @param id the ID of the entry to remove
+     * @return the new series, or this one if the ID isn't there
+     */
+    public WeightSeries withRemoved(int id) {
+        int position = indexOf(id);
+        if (position < 0) {
+            return this;
+        }
+        int[] nextIds = new int[size - 1];
+        int[] nextDays = new int[size - 1];
+        int[] nextTenths = new int[size - 1];
+        copyAround(ids, nextIds, position, size, 1);
+        copyAround(days, nextDays, position, size, 1);
+        copyAround(tenths, nextTenths, position, size, 1);
+        return new WeightSeries(nextIds, nextDays, nextTenths, size - 1);
+    }
+
+    /**
+     * Copies a series with a gap at position and fills it with one entry.
+     */
+    private static WeightSeries insert(WeightSeries from, int position, int id, int epochDay, int weight) {
+        int n = from.size;
+        int[] nextIds = new int[n + 1];
+        int[] nextDays = new int[n + 1];
+        int[] nextTenths = new int[n + 1];
+        copyAround(from.ids, nextIds, position, n, -1);
+        copyAround(from.days, nextDays, position, n, -1);
+        copyAround(from.tenths, nextTenths, position, n, -1);
+        nextIds[position] = id;
+        nextDays[position] = epochDay;
+        nextTenths[position] = weight;
+        return new WeightSeries(nextIds, nextDays, nextTenths, n + 1);
+    }
+
+    /**
+     * Copies everything before position as is and everything after it
+     * shifted. A shift of 1 drops the value at position, -1 leaves a gap there.
+     */
+    private static void copyAround(int[] from, int[] to, int position, int size, int shift) {
+        System.arraycopy(from, 0, to, 0, position);
+        if (shift > 0) {
+            System.arraycopy(from, position + 1, to, position, size - position - 1);
+        } else {
+            System.arraycopy(from, position, to, position + 1, size - position);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+    /**
+     * Fills a series one row at a time, like straight from a cursor.
+     * Rows have to be added oldest first.
+     */
+    public static final class Builder {
+        private int[] ids;
+        private int[] days;
+        private int[] tenths;
+        private int size = 0;
+
+        /**
+         * Makes a builder with room for some rows.
+         *
+         * @param capacity how many rows are expected, it grows past this if needed
+         */
+        public Builder(int capacity) {
+            capacity = Math.max(16, capacity);
+            ids = new int[capacity];
+            days = new int[capacity];
+            tenths = new int[capacity];
+        }
+
+        /**
+         * Adds the next row.
+         *
+         * @param id the ID of the entry
+         * @param epochDay the date in days since 1/1/1970
+         * @param weight the weight in tenths of a pound
+         * @return this builder
+         */
+        public Builder add(int id, int epochDay, int weight) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                days = Arrays.copyOf(days, capacity);
+                tenths = Arrays.copyOf(tenths, capacity);
+            }
+            ids[size] = id;
+            days[size] = epochDay;
+            tenths[size] = weight;
+            size++;
+            return this;
+        }
+
+        /**
+         * Makes the series. The builder shouldn't be used after this.
+         *
+         * @return the series
+         */
+        public WeightSeries build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            // Drop the spare room so a long lived series holds no extra space
+            if (size < ids.length) {
+                ids = Arrays.copyOf(ids, size);
+                days = Arrays.copyOf(days, size);
+                tenths = Arrays.copyOf(tenths, size);
+            }
+            return new WeightSeries(ids, days, tenths, size);
+        }
+    }
+
+    /**
+     * A list view that makes each WeightEntry when it is read.
+     */
+    private static final class EntryList extends AbstractList<WeightEntry> implements RandomAccess {
+        private final WeightSeries series;
+
+        EntryList(WeightSeries series) {
+            this.series = series;
+        }
+
+        @Override
+        public WeightEntry get(int index) {
+            return series.getEntry(index);
+        }
+
+        @Override
+        public int size() {
+            return series.size;
+        }
+    }
+}
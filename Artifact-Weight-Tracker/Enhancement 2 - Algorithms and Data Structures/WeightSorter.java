@@ -0,0 +1,140 @@
+package com.weighttracker.app.util;
+
+import java.util.Arrays;
+import java.util.List;
+import model.WeightEntry;
+
+/**
+ * Sorts weights by date.
+ * Every entry already has its date as an epoch day, so a bottom up merge
+ * sort runs over an index array using those numbers, without comparing
+ * objects or reading any date text.
+ * The buffers are kept and reused so sorting again does not allocate.
+ * The database gives saved entries back in order, this is for rows that
+ * come from somewhere else, like a chunk of an imported file.
+ */
+public class WeightSorter {
+
+    private int[] keys = new int[0];
+    private int[] order = new int[0];
+    private int[] buffer = new int[0];
+    private WeightEntry[] items = new WeightEntry[0];
+
+    /**
+     * Sorts the list in place by date.
+     * Entries with the same date keep the same order they had
+     * when sorting oldest first, and the reverse order when sorting
+     * newest first. This matches sorting oldest first and reversing.
+     *
+     * @param list the weight entries to sort
+     * @param oldestFirst true for oldest to newest, false for newest to oldest
+     */
+    public void sort(List<WeightEntry> list, boolean oldestFirst) {
+        int n = list.size();
+        if (n <= 1) {
+            return;
+        }
+        ensureCapacity(n);
+
+        // Read every date once
+        for (int i = 0; i < n; i++) {
+            WeightEntry entry = list.get(i);
+            items[i] = entry;
+            keys[i] = entry.getEpochDay();
+        }
+
+        sortOrder(keys, order, buffer, n, oldestFirst);
+
+        // Write the entries back in sorted order
+        for (int i = 0; i < n; i++) {
+            list.set(i, items[order[i]]);
+        }
+
+        // Don't hold on to entries after the sort
+        Arrays.fill(items, 0, n, null);
+    }
+
+    /**
+     * Gets the positions of the first n days in sorted order.
+     * The days are not moved. Same tie order as sort.
+     *
+     * @param days the epoch days to sort by
+     * @param n how many days to sort
+     * @param ascending true for the oldest day first
+     * @return the positions, only the first n are used. The array is
+     * reused by the next call, so read it before sorting again.
+     */
+    public int[] sortedOrder(int[] days, int n, boolean ascending) {
+        ensureCapacity(n);
+        sortOrder(days, order, buffer, n, ascending);
+        return order;
+    }
+
+    /**
+     * Fills order with the positions of keys in sorted order.
+     * Keys are not moved. Only the order array is changed.
+     *
+     * @param keys the sort keys
+     * @param order output array, at least n long
+     * @param buffer scratch array, at least n long
+     * @param n how many keys to sort
+     * @param ascending true for smallest key first
+     */
+    public static void sortOrder(int[] keys, int[] order, int[] buffer, int n, boolean ascending) {
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+
+        int[] src = order;
+        int[] dst = buffer;
+
+        // Merge runs of width 1, 2, 4, ... until the whole array is one run
+        for (int width = 1; width < n; width <<= 1) {
+            for (int lo = 0; lo < n; lo += width << 1) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + (width << 1), n);
+                merge(keys, src, dst, lo, mid, hi, ascending);
+            }
+            int[] swap = src;
+            src = dst;
+            dst = swap;
+        }
+
+        // Result ended up in the scratch array, copy it back
+        if (src != order) {
+            System.arraycopy(src, 0, order, 0, n);
+        }
+    }
+
+    /**
+     * Merges src[lo, mid) and src[mid, hi) into dst[lo, hi).
+     * When keys match, ascending takes the left side first and
+     * descending takes the right side first.
+     */
+    private static void merge(int[] keys, int[] src, int[] dst, int lo, int mid, int hi, boolean ascending) {
+        int i = lo, j = mid, k = lo;
+
+        while (i < mid && j < hi) {
+            int left = keys[src[i]];
+            int right = keys[src[j]];
+            boolean takeLeft = ascending ? left <= right : left > right;
+            dst[k++] = takeLeft ? src[i++] : src[j++];
+        }
+        // Add leftovers
+        while (i < mid) dst[k++] = src[i++];
+        while (j < hi) dst[k++] = src[j++];
+    }
+
+    /**
+     * Grows the reusable arrays when there are more rows than before.
+     */
+    private void ensureCapacity(int n) {
+        if (keys.length >= n) {
+            return;
+        }
+        keys = new int[n];
+        order = new int[n];
+        buffer = new int[n];
+        items = new WeightEntry[n];
+    }
+}
@@ -0,0 +1,257 @@
+package com.weighttracker.app.util;
+
+import java.util.Arrays;
+import model.WeightSeries;
+
+/**
+ * Running statistics over a weight series sorted oldest first.
+ * Each new entry updates the 7 and 30 day averages, the smoothed trend,
+ * and the weekly rate in O(1) time, so nothing is recomputed from the start.
+ * Every value is kept per entry so the graph can draw them as lines.
+ */
+public class WeightStats {
+
+    // Day used when there is no projected goal date
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    // How much of each day's weight goes into the trend
+    private static final double TREND_SMOOTHING = 0.1;
+    private static final int WEEK = 7;
+    private static final int MONTH = 30;
+    // Projections further out than this are not shown
+    private static final int MAX_PROJECTION_DAYS = 3650;
+
+    private int size = 0;
+    private int[] days;
+    private float[] weights;
+    private float[] average7;
+    private float[] average30;
+    private float[] trend;
+
+    // Start of each time window and the sum of the weights inside it
+    private int weekStart = 0;
+    private double weekSum = 0;
+    private int monthStart = 0;
+    private double monthSum = 0;
+    private int rateStart = 0;
+
+    /**
+     * Makes empty statistics.
+     */
+    public WeightStats() {
+        this(16);
+    }
+
+    private WeightStats(int capacity) {
+        days = new int[capacity];
+        weights = new float[capacity];
+        average7 = new float[capacity];
+        average30 = new float[capacity];
+        trend = new float[capacity];
+    }
+
+    /**
+     * Builds statistics for a whole series.
+     * Entries with a date that couldn't be read are left out.
+     *
+     * @param series weight entries, oldest first
+     * @return the statistics
+     */
+    public static WeightStats of(WeightSeries series) {
+        WeightStats stats = new WeightStats(Math.max(16, series.size()));
+        for (int i = 0; i < series.size(); i++) {
+            stats.append(series.getEpochDay(i), series.getPounds(i));
+        }
+        return stats;
+    }
+
+    /**
+     * Adds the next entry in the series.
+     *
+     * @param day the date in days since 1/1/1970, not before the last entry
+     * @param pounds the weight in lbs
+     * @return false if day is before the last entry or is INVALID_DAY, the stats are not changed then
+     */
+    public boolean append(int day, float pounds) {
+        if (day == EntryFormat.INVALID_DAY || (size > 0 && day < days[size - 1])) {
+            return false;
+        }
+        if (size == days.length) {
+            grow();
+        }
+
+        int i = size;
+        days[i] = day;
+        weights[i] = pounds;
+
+        // Slide each window forward to the new day, as longs so days near the int limits can't wrap
+        weekSum += pounds;
+        while (days[weekStart] <= (long) day - WEEK) {
+            weekSum -= weights[weekStart++];
+        }
+        monthSum += pounds;
+        while (days[monthStart] <= (long) day - MONTH) {
+            monthSum -= weights[monthStart++];
+        }
+        average7[i] = (float) (weekSum / (i + 1 - weekStart));
+        average30[i] = (float) (monthSum / (i + 1 - monthStart));
+
+        // Smoothed trend, a gap of several days counts as several steps
+        if (i == 0) {
+            trend[i] = pounds;
+        } else {
+            long gap = Math.max(1, (long) day - days[i - 1]);
+            double alpha = 1 - Math.pow(1 - TREND_SMOOTHING, gap);
+            trend[i] = (float) (trend[i - 1] + alpha * (pounds - trend[i - 1]));
+        }
+
+        // Oldest entry still inside the last week, used for the weekly rate
+        while (days[rateStart] < (long) day - WEEK) {
+            rateStart++;
+        }
+
+        size++;
+        return true;
+    }
+
+    /**
+     * Gets how many entries are in the series.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the 7 day average at every entry.
+     *
+     * @return a new array, one value per entry
+     */
+    public float[] getAverage7() {
+        return Arrays.copyOf(average7, size);
+    }
+
+    /**
+     * Gets the 30 day average at every entry.
+     *
+     * @return a new array, one value per entry
+     */
+    public float[] getAverage30() {
+        return Arrays.copyOf(average30, size);
+    }
+
+    /**
+     * Gets the smoothed trend at every entry.
+     *
+     * @return a new array, one value per entry
+     */
+    public float[] getTrend() {
+        return Arrays.copyOf(trend, size);
+    }
+
+    /**
+     * Gets the smoothed trend at the last entry.
+     *
+     * @return the trend in lbs, or NaN if there are no entries
+     */
+    public float getCurrentTrend() {
+        return size == 0 ? Float.NaN : trend[size - 1];
+    }
+
+    /**
+     * Gets the 7 day average at the last entry.
+     *
+     * @return the average in lbs, or NaN if there are no entries
+     */
+    public float getCurrentAverage7() {
+        return size == 0 ? Float.NaN : average7[size - 1];
+    }
+
+    /**
+     * Gets the 30 day average at the last entry.
+     *
+     * @return the average in lbs, or NaN if there are no entries
+     */
+    public float getCurrentAverage30() {
+        return size == 0 ? Float.NaN : average30[size - 1];
+    }
+
+    /**
+     * Gets how fast the trend changed over the last week.
+     * Negative means weight is going down.
+     *
+     * @return lbs per week, or NaN if the last week has only one day
+     */
+    public float getWeeklyRate() {
+        if (size == 0) {
+            return Float.NaN;
+        }
+        int last = size - 1;
+        long span = (long) days[last] - days[rateStart];
+        if (span <= 0) {
+            return Float.NaN;
+        }
+        return (trend[last] - trend[rateStart]) / span * WEEK;
+    }
+
+    /**
+     * Guesses the day the trend reaches the goal at the current weekly rate.
+     *
+     * @param goal goal weight in lbs
+     * @return the projected epoch day, or NO_DAY if the trend isn't heading toward the goal
+     */
+    public int getProjectedGoalDay(float goal) {
+        float rate = getWeeklyRate();
+        if (goal <= 0f || Float.isNaN(rate) || rate == 0f) {
+            return NO_DAY;
+        }
+
+        float remaining = goal - getCurrentTrend();
+        if (remaining == 0f) {
+            return days[size - 1];
+        }
+        if (Math.signum(remaining) != Math.signum(rate)) {
+            return NO_DAY;
+        }
+
+        double daysLeft = Math.ceil(remaining / rate * WEEK);
+        if (daysLeft > MAX_PROJECTION_DAYS) {
+            return NO_DAY;
+        }
+        return days[size - 1] + (int) daysLeft;
+    }
+
+    /**
+     * Makes a copy that won't change when more entries are added to this one.
+     *
+     * @return the copy
+     */
+    public WeightStats copy() {
+        WeightStats out = new WeightStats(Math.max(16, size));
+        System.arraycopy(days, 0, out.days, 0, size);
+        System.arraycopy(weights, 0, out.weights, 0, size);
+        System.arraycopy(average7, 0, out.average7, 0, size);
+        System.arraycopy(average30, 0, out.average30, 0, size);
+        System.arraycopy(trend, 0, out.trend, 0, size);
+        out.size = size;
+        out.weekStart = weekStart;
+        out.weekSum = weekSum;
+        out.monthStart = monthStart;
+        out.monthSum = monthSum;
+        out.rateStart = rateStart;
+        return out;
+    }
+
+    /**
+     * Doubles the room for entries.
+     */
+    private void grow() {
+        int capacity = days.length * 2;
+        days = Arrays.copyOf(days, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        average7 = Arrays.copyOf(average7, capacity);
+        average30 = Arrays.copyOf(average30, capacity);
+        trend = Arrays.copyOf(trend, capacity);
+    }
+}
@@ -0,0 +1,71 @@
+package model;
+
+/**
+ * The units a weight can be shown in.
+ * Weights are always saved as tenths of a pound, so switching units
+ * is one multiply when shown and never changes what is saved.
+ */
+public enum WeightUnit {
+    LBS("lbs", 1.0),
+    KG("kg", 0.45359237);
+
+    private final String label;
+    private final double perPound;
+
+    WeightUnit(String label, double perPound) {
+        this.label = label;
+        this.perPound = perPound;
+    }
+
+    /**
+     * Gets the short name shown after a weight.
+     *
+     * @return "lbs" or "kg"
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Converts a saved weight to this unit.
+     *
+     * @param tenthsOfPound the weight in tenths of a pound
+     * @return the weight in tenths of this unit
+     */
+    public int fromTenthsOfPound(int tenthsOfPound) {
+        if (this == LBS) {
+            return tenthsOfPound;
+        }
+        return (int) Math.round(tenthsOfPound * perPound);
+    }
+
+    /**
+     * Converts a weight in this unit to how it is saved.
+     *
+     * @param tenths the weight in tenths of this unit
+     * @return the weight in tenths of a pound
+     */
+    public int toTenthsOfPound(int tenths) {
+        if (this == LBS) {
+            return tenths;
+        }
+        return (int) Math.round(tenths / perPound);
+    }
+
+    /**
+     * Finds a unit by name, like one saved in the settings.
+     *
+     * @param name the enum name, or null
+     * @return the unit, or LBS if the name isn't known
+     */
+    public static WeightUnit fromName(String name) {
+        if (name != null) {
+            for (WeightUnit unit : values()) {
+                if (unit.name().equals(name)) {
+                    return unit;
+                }
+            }
+        }
+        return LBS;
+    }
+}
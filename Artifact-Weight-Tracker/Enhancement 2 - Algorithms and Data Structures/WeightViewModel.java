@@ -0,0 +1,152 @@
+package com.weighttracker.app.ui.weight;
+
+import android.content.Context;
+
+import androidx.lifecycle.ViewModel;
+
+import com.weighttracker.app.data.DataChanges;
+import com.weighttracker.app.data.UserSession;
+import com.weighttracker.app.data.WeightRepository;
+import com.weighttracker.app.util.PagedWindow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.WeightEntry;
+
+/**
+ * Holds what the weight list shows so it lives through a rotation.
+ * The rows in the window, the sort order and the summary text stay here
+ * while the fragment and its views are made again, so turning the phone
+ * doesn't read the database or sort anything.
+ * Changes to the weights are applied here too, so none are missed while
+ * the screen is being rebuilt.
+ */
+public class WeightViewModel extends ViewModel {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PAGES = 5;
+
+    // The rows the adapter shows
+    final List<WeightEntry> entries = new ArrayList<>();
+
+    private UserSession session;
+    private WeightRepository weightRepository;
+    private PagedWindow<WeightEntry> window;
+    private volatile boolean oldestFirst = false;
+
+    // Last summary shown, or null if it needs to be loaded
+    private String summary;
+
+    private final DataChanges.Observer changeObserver = this::onDataChanged;
+
+    /**
+     * Sets up the window the first time the screen is shown.
+     * Does nothing when the screen is only being made again.
+     *
+     * @param context Any context of the app.
+     */
+    void init(Context context) {
+        if (window != null) {
+            return;
+        }
+        session = UserSession.get(context);
+        oldestFirst = session.isOldestFirst();
+        weightRepository = WeightRepository.get(context, session.getUsername());
+
+        // Load saved weight entries a page at a time, already in date order
+        window = new PagedWindow<>(entries,
+                (anchor, forward, inclusive, limit) ->
+                        weightRepository.loadPage(oldestFirst, anchor, forward, inclusive, limit),
+                WeightDiffCallback::new, PAGE_SIZE, MAX_PAGES);
+
+        // Saves and deletes from anywhere update the rows they touched
+        DataChanges.observe(changeObserver);
+    }
+
+    PagedWindow<WeightEntry> getWindow() {
+        return window;
+    }
+
+    WeightRepository getRepository() {
+        return weightRepository;
+    }
+
+    UserSession getSession() {
+        return session;
+    }
+
+    boolean isOldestFirst() {
+        return oldestFirst;
+    }
+
+    /**
+     * Changes the sort order, saves it, and loads the first page in that order.
+     *
+     * @param value true for oldest first
+     */
+    void setOldestFirst(boolean value) {
+        oldestFirst = value;
+        session.setOldestFirst(value);
+        window.loadFirst();
+    }
+
+    String getSummary() {
+        return summary;
+    }
+
+    void setSummary(String summary) {
+        this.summary = summary;
+    }
+
+    /**
+     * Updates the rows after a weight entry changed.
+     * A deleted entry is just taken out. A new or edited entry can land
+     * anywhere in date order, so the rows in the window are read again
+     * and only the ones that changed are redrawn.
+     *
+     * @param change what was written
+     */
+    private void onDataChanged(DataChanges.Change change) {
+        String username = session.getUsername();
+        if (change.isFor(DataChanges.Table.WEIGHTS, username)) {
+            if (change.kind == DataChanges.Kind.DELETED) {
+                int position = positionOf(change.rowId);
+                if (position >= 0) {
+                    window.remove(position);
+                }
+            } else {
+                window.refresh();
+            }
+            summary = null;
+        } else if (change.isFor(DataChanges.Table.GOALS, username)) {
+            summary = null;
+        }
+    }
+
+    /**
+     * Finds an entry in the window by ID.
+     *
+     * @param id the ID of the entry
+     * @return the position, or -1 if it isn't in the window
+     */
+    private int positionOf(long id) {
+        for (int k = 0; k < entries.size(); k++) {
+            if (entries.get(k).getId() == id) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Called when the screen is gone for good, not just rotated.
+     */
+    @Override
+    protected void onCleared() {
+        DataChanges.remove(changeObserver);
+        if (window != null) {
+            window.cancel();
+        }
+    }
+}
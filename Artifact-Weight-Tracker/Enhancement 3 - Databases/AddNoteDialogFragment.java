@@ -14,7 +14,10 @@ import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 
 import com.weighttracker.app.R;
+import com.weighttracker.app.data.AppDatabases;
 import com.weighttracker.app.data.NotesDatabase;
+import com.weighttracker.app.data.UserSession;
+import com.weighttracker.app.util.BackgroundLoader;
 
 import model.NoteEntry;
 
@@ -27,6 +30,11 @@ public class AddNoteDialogFragment extends DialogFragment {
     private NotesDatabase noteDb;
     private NoteEntry existingNote;
 
+    // The list only has the preview, so the full body is read when editing
+    private static final String KEY_BODY_LOADED = "body_loaded";
+    private boolean bodyLoaded = true;
+    private BackgroundLoader.Load bodyLoad;
+
     /**
      * Lets the screen get the new note after its saved.
      */
@@ -43,7 +51,9 @@ public class AddNoteDialogFragment extends DialogFragment {
 
     /**
      * Creates the add and edit note dialog.
-     * If editing, it fills in the notes title and body.
+     * If editing, it fills in the notes title and reads the body in the
+     * background. Save stays off until the body is in so a note is never
+     * cut short. If the body can't be read the dialog closes with a message.
      *
      * @param savedInstanceState The last saved instance state of the Fragment,
      * or null if this is a freshly created Fragment.
@@ -53,14 +63,15 @@ public class AddNoteDialogFragment extends DialogFragment {
     @NonNull
     @Override
     public Dialog onCreateDialog(@Nullable Bundle savedInstanceState) {
-        noteDb = new NotesDatabase(requireContext());
+        noteDb = AppDatabases.notes(requireContext());
 
         // Check if editing a note
         if (getArguments() != null) {
             existingNote = new NoteEntry(
                     getArguments().getInt("id"),
                     getArguments().getString("title", ""),
-                    getArguments().getString("body", ""),
+                    getArguments().getString("preview", ""),
+                    getArguments().getLong("dateCreated", 0L),
                     getArguments().getLong("dateLastUpdated", 0L)
             );
         }
@@ -73,7 +84,23 @@ public class AddNoteDialogFragment extends DialogFragment {
         // Fill fields if we are editing an existing note
         if (existingNote != null) {
             titleEdit.setText(existingNote.getTitle());
-            bodyEdit.setText(existingNote.getBody());
+
+            // After a rotation the body typed so far comes back with the dialog
+            bodyLoaded = savedInstanceState != null && savedInstanceState.getBoolean(KEY_BODY_LOADED, false);
+            if (!bodyLoaded) {
+                bodyEdit.setText(existingNote.getPreview());
+                bodyEdit.setEnabled(false);
+                int id = existingNote.getId();
+                bodyLoad = BackgroundLoader.load(() -> noteDb.getNoteBody(id), body -> {
+                    bodyEdit.setText(body == null ? "" : body);
+                    bodyEdit.setEnabled(true);
+                    bodyLoaded = true;
+                    setSaveEnabled(true);
+                }, error -> {
+                    Toast.makeText(getContext(), R.string.note_open_failed, Toast.LENGTH_SHORT).show();
+                    dismissAllowingStateLoss();
+                });
+            }
         }
 
         // Create the dialog box
@@ -85,37 +112,63 @@ public class AddNoteDialogFragment extends DialogFragment {
 
         AlertDialog dialog = builder.create();
 
-        // Save button click
-        dialog.setOnShowListener(dialogInterface -> dialog.getButton(AlertDialog.BUTTON_POSITIVE).setOnClickListener(v -> {
-            String title = titleEdit.getText().toString().trim();
-            String body  = bodyEdit.getText().toString().trim();
+        // Save button click, off until the body is loaded
+        dialog.setOnShowListener(dialogInterface -> {
+            setSaveEnabled(bodyLoaded);
+            dialog.getButton(AlertDialog.BUTTON_POSITIVE).setOnClickListener(v -> save(dialog, titleEdit, bodyEdit));
+        });
 
-            if (title.isEmpty()) {
-                Toast.makeText(getContext(), "Please enter a title", Toast.LENGTH_SHORT).show();
-                return;
-            }
+        return dialog;
+    }
 
-            boolean saved;
-            if (existingNote == null) {
-                // create new note for the user
-                String username = requireActivity()
-                        .getSharedPreferences("myprefs", Context.MODE_PRIVATE)
-                        .getString("logged_in_username", "");
-                saved = noteDb.addNote(username, title, body) != -1;
-            } else {
-                // update note by id
-                saved = noteDb.updateNote(existingNote.getId(), title, body);
-            }
+    /**
+     * Saves the note when Save is pressed.
+     *
+     * @param dialog the dialog, closed once the note is saved
+     * @param titleEdit the title field
+     * @param bodyEdit the body field
+     */
+    private void save(AlertDialog dialog, EditText titleEdit, EditText bodyEdit) {
+        String title = titleEdit.getText().toString().trim();
+        String body  = bodyEdit.getText().toString().trim();
 
-            if (saved) {
-                if (listener != null) listener.onNoteSaved();
-                dialog.dismiss();
-            } else {
-                Toast.makeText(getContext(), "Could not save note", Toast.LENGTH_SHORT).show();
-            }
-        }));
+        if (!bodyLoaded) {
+            // Only the preview is showing, saving now would cut off the rest
+            return;
+        }
+        if (title.isEmpty()) {
+            Toast.makeText(getContext(), "Please enter a title", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-        return dialog;
+        boolean saved;
+        if (existingNote == null) {
+            // create new note for the user
+            String username = UserSession.get(requireContext()).getUsername();
+            saved = noteDb.addNote(username, title, body) != -1;
+        } else {
+            // update note by id
+            saved = noteDb.updateNote(existingNote.getId(), title, body);
+        }
+
+        if (saved) {
+            if (listener != null) listener.onNoteSaved();
+            dialog.dismiss();
+        } else {
+            Toast.makeText(getContext(), "Could not save note", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Turns the Save button on or off, if the dialog is showing.
+     *
+     * @param enabled true to let the user save
+     */
+    private void setSaveEnabled(boolean enabled) {
+        AlertDialog dialog = (AlertDialog) getDialog();
+        if (dialog != null && dialog.getButton(AlertDialog.BUTTON_POSITIVE) != null) {
+            dialog.getButton(AlertDialog.BUTTON_POSITIVE).setEnabled(enabled);
+        }
     }
 
     /**
@@ -129,12 +182,36 @@ public class AddNoteDialogFragment extends DialogFragment {
         Bundle args = new Bundle();
         args.putInt("id", note.getId());
         args.putString("title", note.getTitle());
-        args.putString("body", note.getBody());
+        args.putString("preview", note.getPreview());
+        args.putLong("dateCreated", note.getDateCreated());
         args.putLong("dateLastUpdated", note.getDateLastUpdated());
         fragment.setArguments(args);
         return fragment;
     }
 
+    /**
+     * Remembers if the full body was loaded, so it isn't read again
+     * over what the user typed.
+     *
+     * @param outState where the state is saved
+     */
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(KEY_BODY_LOADED, bodyLoaded);
+    }
+
+    /**
+     * Stops reading the body if the dialog closes first.
+     */
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (bodyLoad != null) {
+            bodyLoad.cancel();
+        }
+    }
+
     /**
      * Runs when the dialog connects to the screen.
      * Makes sure the screen can listen for saved notes.
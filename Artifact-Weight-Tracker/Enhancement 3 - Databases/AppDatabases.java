@@ -0,0 +1,72 @@
+package com.weighttracker.app.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * Holds one open copy of each database for the whole app.
+ * Screens get their database from here instead of making their own,
+ * so the connection is opened once and stays open until the app ends.
+ * Every database uses write-ahead logging so reads in the background
+ * don't wait on a write and a write doesn't wait on reads.
+ */
+public final class AppDatabases {
+
+    private static NotesDatabase notes;
+    private static WeightDatabase weights;
+    private static GoalDatabase goals;
+
+    private AppDatabases() {
+    }
+
+    /**
+     * Gets the shared notes database.
+     *
+     * @param context Any context of the app.
+     * @return the notes database
+     */
+    public static synchronized NotesDatabase notes(Context context) {
+        if (notes == null) {
+            notes = setUp(new NotesDatabase(context.getApplicationContext()));
+        }
+        return notes;
+    }
+
+    /**
+     * Gets the shared weights database.
+     *
+     * @param context Any context of the app.
+     * @return the weights database
+     */
+    public static synchronized WeightDatabase weights(Context context) {
+        if (weights == null) {
+            weights = setUp(new WeightDatabase(context.getApplicationContext()));
+        }
+        return weights;
+    }
+
+    /**
+     * Gets the shared goal database.
+     *
+     * @param context Any context of the app.
+     * @return the goal database
+     */
+    public static synchronized GoalDatabase goals(Context context) {
+        if (goals == null) {
+            goals = setUp(new GoalDatabase(context.getApplicationContext()));
+        }
+        return goals;
+    }
+
+    /**
+     * Turns on write-ahead logging before the database is first opened.
+     *
+     * @param helper the database
+     * @param <T> the type of database
+     * @return the same database
+     */
+    private static <T extends SQLiteOpenHelper> T setUp(T helper) {
+        helper.setWriteAheadLoggingEnabled(true);
+        return helper;
+    }
+}
@@ -0,0 +1,183 @@
+package com.weighttracker.app.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs database reads on a small pool of background threads and
+ * hands the result back on the main thread.
+ * Screens keep the returned Load and cancel it when their view is
+ * destroyed so a late result never touches a dead view.
+ */
+public final class BackgroundLoader {
+
+    private static final String TAG = "BackgroundLoader";
+
+    // SQLite only lets one writer in at a time, so a couple of threads is plenty
+    private static final int THREADS = 2;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "loader-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private BackgroundLoader() {
+    }
+
+    /**
+     * Gets the result of a load on the main thread.
+     *
+     * @param <T> the type of the result
+     */
+    public interface Callback<T> {
+        void onLoaded(T result);
+    }
+
+    /**
+     * Hears on the main thread that a load failed.
+     */
+    public interface ErrorCallback {
+        void onFailed(Exception error);
+    }
+
+    /**
+     * Long work that checks its Load to stop early when it is cancelled.
+     *
+     * @param <T> the type of the result
+     */
+    public interface Work<T> {
+        T run(Load load) throws Exception;
+    }
+
+    /**
+     * Runs work in the background, then gives the result to callback on
+     * the main thread unless the load was cancelled first.
+     * If the work throws, the error is logged and callback is not called.
+     *
+     * @param work the read to run in the background
+     * @param callback gets the result on the main thread
+     * @param <T> the type of the result
+     * @return a handle that can cancel the load
+     */
+    public static <T> Load load(Callable<T> work, Callback<T> callback) {
+        return run(load -> work.call(), callback, null);
+    }
+
+    /**
+     * Same as load, but if the work throws the error is also given to
+     * onError on the main thread, so the screen can show it or back out.
+     *
+     * @param work the read to run in the background
+     * @param callback gets the result on the main thread
+     * @param onError gets the error on the main thread
+     * @param <T> the type of the result
+     * @return a handle that can cancel the load
+     */
+    public static <T> Load load(Callable<T> work, Callback<T> callback, ErrorCallback onError) {
+        return run(load -> work.call(), callback, onError);
+    }
+
+    /**
+     * Same as load, but the work gets its own Load so a long job like an
+     * export can check isCancelled and stop partway.
+     *
+     * @param work the job to run in the background
+     * @param callback gets the result on the main thread
+     * @param <T> the type of the result
+     * @return a handle that can cancel the job
+     */
+    public static <T> Load run(Work<T> work, Callback<T> callback) {
+        return run(work, callback, null);
+    }
+
+    /**
+     * Same as run, but if the work throws the error is also given to
+     * onError on the main thread. Nothing is called after a cancel.
+     *
+     * @param work the job to run in the background
+     * @param callback gets the result on the main thread
+     * @param onError gets the error on the main thread, or null to only log it
+     * @param <T> the type of the result
+     * @return a handle that can cancel the job
+     */
+    public static <T> Load run(Work<T> work, Callback<T> callback, ErrorCallback onError) {
+        Load load = new Load();
+        load.future = EXECUTOR.submit(() -> {
+            if (load.cancelled) {
+                return;
+            }
+
+            T result;
+            try {
+                result = work.run(load);
+            }
+            catch (Exception e) {
+                // Work that stopped because it was cancelled isn't an error
+                if (!load.cancelled) {
+                    Log.e(TAG, "Background load failed", e);
+                    if (onError != null) {
+                        MAIN.post(() -> {
+                            if (!load.cancelled) {
+                                onError.onFailed(e);
+                            }
+                        });
+                    }
+                }
+                return;
+            }
+
+            MAIN.post(() -> {
+                if (!load.cancelled) {
+                    callback.onLoaded(result);
+                }
+            });
+        });
+        return load;
+    }
+
+    /**
+     * A load that is running or waiting to run.
+     */
+    public static final class Load {
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        private Load() {
+        }
+
+        /**
+         * Stops the result from being delivered.
+         * Work that has not started yet is skipped.
+         */
+        public void cancel() {
+            cancelled = true;
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(false);
+            }
+        }
+
+        /**
+         * Tells if this load was cancelled.
+         *
+         * @return true if cancel was called
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
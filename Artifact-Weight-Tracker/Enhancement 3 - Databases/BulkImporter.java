@@ -0,0 +1,512 @@
+package com.weighttracker.app.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.weighttracker.app.util.DateCodec;
+import com.weighttracker.app.util.EntryFormat;
+import com.weighttracker.app.util.WeightSorter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Brings weight and note history over from another app.
+ * The file is read one row at a time, so a big file never has to fit
+ * in memory, and rows are saved in transactions of CHUNK_SIZE rows
+ * instead of one transaction per row.
+ * Weights already saved for a date are skipped, and so are notes
+ * already saved with the same created time.
+ * Each chunk of weights is sorted by date before it is saved, so the
+ * date index and the weekly and monthly rollups are written in order
+ * instead of jumping around the file's order.
+ * Screens are told about the import once at the end, not once per row.
+ * Runs in the background.
+ *
+ * Weights need a "date" (M/d/yyyy or yyyy-MM-dd) and a "weight".
+ * Notes need a "title" and can have "body", "dateCreated" and
+ * "dateLastUpdated" (milliseconds). CSV files name the columns in the
+ * first row. JSON files are an array of objects with those names.
+ */
+public class BulkImporter {
+
+    // Rows saved per transaction
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * The kinds of file that can be imported.
+     */
+    public enum Format { CSV, JSON }
+
+    /**
+     * Hears how far along an import is. Called on the import thread after each chunk.
+     */
+    public interface ProgressListener {
+        void onProgress(int imported, int skipped, int invalid);
+    }
+
+    /**
+     * How many rows were saved, skipped as duplicates, or couldn't be read.
+     */
+    public static final class Result {
+        public final int imported;
+        public final int skipped;
+        public final int invalid;
+
+        Result(int imported, int skipped, int invalid) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.invalid = invalid;
+        }
+    }
+
+    private final Context context;
+    private final String username;
+
+    /**
+     * Sets up an importer for one user.
+     *
+     * @param context The context of the app.
+     * @param username The user the rows are saved for.
+     */
+    public BulkImporter(Context context, String username) {
+        this.context = context.getApplicationContext();
+        this.username = username;
+    }
+
+    /**
+     * Imports weight entries.
+     *
+     * @param in the file, read as UTF-8 and not closed
+     * @param format CSV or JSON
+     * @param listener hears progress, or null
+     * @return the counts
+     * @throws IOException if the file can't be read
+     */
+    public Result importWeights(InputStream in, Format format, ProgressListener listener) throws IOException {
+        WeightDatabase weightDatabase = AppDatabases.weights(context);
+
+        // Dates the user already has, plus dates added by this import
+        HashSet<Integer> days = new HashSet<>();
+        try (Cursor cursor = weightDatabase.getUserWeights(username)) {
+            int dateIdx = cursor.getColumnIndexOrThrow("date");
+            while (cursor.moveToNext()) {
+                days.add(cursor.getInt(dateIdx));
+            }
+        }
+
+        Counts counts = new Counts();
+        SQLiteDatabase db = weightDatabase.getWritableDatabase();
+        WeightChunk chunk = new WeightChunk();
+        DataChanges.beginBatch();
+        try (RowReader rows = open(in, format)) {
+            HashMap<String, String> row;
+            while ((row = rows.next()) != null) {
+                int day = parseDay(row.get("date"));
+                int tenths = EntryFormat.parseTenths(row.get("weight"));
+                if (day == EntryFormat.INVALID_DAY || tenths <= 0) {
+                    counts.invalid++;
+                    continue;
+                }
+                if (!days.add(day)) {
+                    counts.skipped++;
+                    continue;
+                }
+
+                if (chunk.add(day, tenths)) {
+                    chunk.save(weightDatabase, db, counts, listener);
+                }
+            }
+        } finally {
+            // Rows read before a bad spot in the file are still saved
+            try {
+                chunk.save(weightDatabase, db, counts, listener);
+            } finally {
+                counts.end(db, listener);
+            }
+            // The shared entries in memory are out of date now
+            WeightRepository.get(context, username).invalidate();
+            DataChanges.endBatch(DataChanges.Table.WEIGHTS, username);
+        }
+        return counts.result();
+    }
+
+    /**
+     * Imports notes.
+     *
+     * @param in the file, read as UTF-8 and not closed
+     * @param format CSV or JSON
+     * @param listener hears progress, or null
+     * @return the counts
+     * @throws IOException if the file can't be read
+     */
+    public Result importNotes(InputStream in, Format format, ProgressListener listener) throws IOException {
+        NotesDatabase notesDatabase = AppDatabases.notes(context);
+
+        // Created times the user already has, plus ones added by this import
+        HashSet<Long> created = new HashSet<>();
+        try (Cursor cursor = notesDatabase.getUserNoteDates(username)) {
+            while (cursor.moveToNext()) {
+                created.add(cursor.getLong(0));
+            }
+        }
+
+        Counts counts = new Counts();
+        SQLiteDatabase db = notesDatabase.getWritableDatabase();
+        long now = System.currentTimeMillis();
+        DataChanges.beginBatch();
+        try (RowReader rows = open(in, format)) {
+            HashMap<String, String> row;
+            while ((row = rows.next()) != null) {
+                String title = row.get("title");
+                if (title == null || title.trim().isEmpty()) {
+                    counts.invalid++;
+                    continue;
+                }
+                String body = row.get("body");
+                long dateCreated = parseMillis(row.get("datecreated"), now);
+                long dateLastUpdated = parseMillis(row.get("datelastupdated"), dateCreated);
+
+                // Only a note with its own created time can be matched to one already saved
+                if (row.get("datecreated") != null && !created.add(dateCreated)) {
+                    counts.skipped++;
+                    continue;
+                }
+
+                counts.begin(db);
+                if (notesDatabase.addNote(username, title.trim(), body == null ? "" : body.trim(),
+                        dateCreated, dateLastUpdated) != -1) {
+                    counts.imported++;
+                } else {
+                    counts.invalid++;
+                }
+                counts.endChunkIfFull(db, listener);
+            }
+        } finally {
+            counts.end(db, listener);
+            DataChanges.endBatch(DataChanges.Table.NOTES, username);
+        }
+        return counts.result();
+    }
+
+    /**
+     * Reads a date as M/d/yyyy like the app saves, or yyyy-MM-dd like most exports.
+     *
+     * @param date the date text
+     * @return the epoch day, or INVALID_DAY if it can't be read
+     */
+    private static int parseDay(String date) {
+        if (date == null) {
+            return EntryFormat.INVALID_DAY;
+        }
+        date = date.trim();
+        if (date.indexOf('-') > 0) {
+            return DateCodec.parseIso(date);
+        }
+        return EntryFormat.toEpochDay(date);
+    }
+
+    /**
+     * Reads a time in milliseconds.
+     *
+     * @param millis the time text, or null
+     * @param fallback used when the time is missing or can't be read
+     * @return the time
+     */
+    private static long parseMillis(String millis, long fallback) {
+        if (millis == null) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(millis.trim());
+        }
+        catch (NumberFormatException ignore) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Opens the right reader for the file.
+     */
+    private static RowReader open(InputStream in, Format format) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return format == Format.JSON ? new JsonRows(reader) : new CsvRows(reader);
+    }
+
+    /**
+     * Holds one chunk of weights as they are read, then saves them oldest first.
+     */
+    private final class WeightChunk {
+        private final int[] days = new int[CHUNK_SIZE];
+        private final int[] tenths = new int[CHUNK_SIZE];
+        private final WeightSorter sorter = new WeightSorter();
+        private int size = 0;
+
+        /**
+         * Adds a row to the chunk.
+         *
+         * @return true if the chunk is full and should be saved
+         */
+        boolean add(int day, int weight) {
+            days[size] = day;
+            tenths[size] = weight;
+            size++;
+            return size == CHUNK_SIZE;
+        }
+
+        /**
+         * Saves the rows in date order and empties the chunk.
+         * The chunk is emptied first, so rows that failed aren't saved twice.
+         */
+        void save(WeightDatabase weightDatabase, SQLiteDatabase db, Counts counts, ProgressListener listener) {
+            int n = size;
+            size = 0;
+            int[] order = sorter.sortedOrder(days, n, true);
+            for (int i = 0; i < n; i++) {
+                int k = order[i];
+                counts.begin(db);
+                if (weightDatabase.addWeight(username, days[k], tenths[k]) != -1) {
+                    counts.imported++;
+                } else {
+                    counts.invalid++;
+                }
+                counts.endChunkIfFull(db, listener);
+            }
+        }
+    }
+
+    /**
+     * Counts rows and keeps one transaction open for each chunk of rows.
+     */
+    private static final class Counts {
+        int imported = 0;
+        int skipped = 0;
+        int invalid = 0;
+        private int inChunk = 0;
+
+        /**
+         * Starts a transaction if one isn't open yet.
+         */
+        void begin(SQLiteDatabase db) {
+            if (inChunk == 0) {
+                // Lets the screens keep reading while the import writes
+                db.beginTransactionNonExclusive();
+            }
+            inChunk++;
+        }
+
+        /**
+         * Saves the chunk once it is full.
+         */
+        void endChunkIfFull(SQLiteDatabase db, ProgressListener listener) {
+            if (inChunk >= CHUNK_SIZE) {
+                end(db, listener);
+            }
+        }
+
+        /**
+         * Saves whatever is in the open chunk.
+         * If the import failed partway, the chunks already saved stay saved.
+         */
+        void end(SQLiteDatabase db, ProgressListener listener) {
+            if (inChunk == 0) {
+                return;
+            }
+            try {
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                inChunk = 0;
+            }
+            if (listener != null) {
+                listener.onProgress(imported, skipped, invalid);
+            }
+        }
+
+        Result result() {
+            return new Result(imported, skipped, invalid);
+        }
+    }
+
+    /**
+     * Gives the rows of a file one at a time, each as column name to value.
+     * Column names are lower case.
+     */
+    private interface RowReader extends AutoCloseable {
+        HashMap<String, String> next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Reads CSV with a header row. Quoted values can hold commas,
+     * new lines, and "" for a quote.
+     */
+    private static final class CsvRows implements RowReader {
+        private final Reader reader;
+        private final List<String> header;
+        private final StringBuilder field = new StringBuilder();
+        private int peeked = -2;
+
+        CsvRows(Reader reader) throws IOException {
+            this.reader = reader;
+            List<String> names = readRecord();
+            header = new ArrayList<>();
+            if (names != null) {
+                for (String name : names) {
+                    // Drop a byte order mark some apps put at the start
+                    header.add(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+
+        @Override
+        public HashMap<String, String> next() throws IOException {
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+            } while (values.size() == 1 && values.get(0).isEmpty()); // blank line
+
+            HashMap<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size() && i < values.size(); i++) {
+                row.put(header.get(i), values.get(i));
+            }
+            return row;
+        }
+
+        /**
+         * Reads one record, which may cover several lines if a value is quoted.
+         *
+         * @return the values, or null at the end of the file
+         */
+        private List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+
+            ArrayList<String> values = new ArrayList<>();
+            boolean quoted = false;
+            field.setLength(0);
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        break;
+                    }
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r' || c == -1) {
+                    if (c == '\r' && peek() == '\n') {
+                        read();
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            values.add(field.toString());
+            return values;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) {
+                peeked = reader.read();
+            }
+            return peeked;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The caller owns the stream
+        }
+    }
+
+    /**
+     * Reads a JSON array of objects one object at a time.
+     */
+    private static final class JsonRows implements RowReader {
+        private final JsonReader reader;
+        private boolean started = false;
+
+        JsonRows(Reader reader) {
+            this.reader = new JsonReader(reader);
+            this.reader.setLenient(true);
+        }
+
+        @Override
+        public HashMap<String, String> next() throws IOException {
+            if (!started) {
+                reader.beginArray();
+                started = true;
+            }
+            if (!reader.hasNext()) {
+                return null;
+            }
+
+            HashMap<String, String> row = new HashMap<>();
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                // Not an object, give back an empty row so it counts as invalid
+                reader.skipValue();
+                return row;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName().toLowerCase(Locale.ROOT);
+                JsonToken token = reader.peek();
+                if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                    // Numbers are read as text so they keep their exact digits
+                    row.put(name, reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The caller owns the stream
+        }
+    }
+}
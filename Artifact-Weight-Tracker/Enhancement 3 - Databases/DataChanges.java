@@ -0,0 +1,213 @@
+package com.weighttracker.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tells screens when rows are saved, changed or deleted.
+ * The databases publish a change for every write, with the table, the
+ * user and the row ID, and observers get it on the main thread.
+ * A screen only has to update the rows that changed instead of loading
+ * everything again, and can skip work when nothing it shows changed.
+ * Writes made in a transaction opened with beginTransaction here are
+ * only reported once it commits, so a rollback tells nobody anything.
+ */
+public final class DataChanges {
+
+    /**
+     * The tables that publish changes.
+     */
+    public enum Table { WEIGHTS, NOTES, GOALS }
+
+    /**
+     * What happened to the row. RELOADED means many rows changed at
+     * once, like an import, and the row ID is NO_ROW.
+     */
+    public enum Kind { INSERTED, UPDATED, DELETED, RELOADED }
+
+    // Row ID for changes that aren't about one row
+    public static final long NO_ROW = -1;
+
+    /**
+     * One change to one table.
+     */
+    public static final class Change {
+        public final Table table;
+        public final String username;
+        public final Kind kind;
+        public final long rowId;
+
+        Change(Table table, String username, Kind kind, long rowId) {
+            this.table = table;
+            this.username = username;
+            this.kind = kind;
+            this.rowId = rowId;
+        }
+
+        /**
+         * Checks if this change is to a table of a user.
+         *
+         * @param table the table
+         * @param username the user
+         * @return true if it is
+         */
+        public boolean isFor(Table table, String username) {
+            return this.table == table && this.username != null && this.username.equals(username);
+        }
+    }
+
+    /**
+     * Hears about changes on the main thread.
+     */
+    public interface Observer {
+        void onDataChanged(Change change);
+    }
+
+    private static final CopyOnWriteArrayList<Observer> observers = new CopyOnWriteArrayList<>();
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    // Set on a thread while it writes many rows, so one RELOADED goes out at the end instead
+    private static final ThreadLocal<Boolean> batching = new ThreadLocal<>();
+
+    // Set on a thread inside beginTransaction, holds its changes until endTransaction
+    private static final ThreadLocal<ArrayList<Change>> held = new ThreadLocal<>();
+
+    // Drops the held changes when any level rolls back, since the whole transaction then does
+    private static final SQLiteTransactionListener heldListener = new SQLiteTransactionListener() {
+        @Override
+        public void onBegin() {
+            if (held.get() == null) {
+                held.set(new ArrayList<>());
+            }
+        }
+
+        @Override
+        public void onCommit() {
+        }
+
+        @Override
+        public void onRollback() {
+            ArrayList<Change> changes = held.get();
+            if (changes != null) {
+                changes.clear();
+            }
+        }
+    };
+
+    private DataChanges() {
+    }
+
+    /**
+     * Starts hearing about changes. Observers are told in the order they were added.
+     *
+     * @param observer the observer
+     */
+    public static void observe(Observer observer) {
+        observers.addIfAbsent(observer);
+    }
+
+    /**
+     * Stops hearing about changes.
+     *
+     * @param observer the observer
+     */
+    public static void remove(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Reports a change. Can be called from any thread.
+     *
+     * @param table the table that changed
+     * @param username the user the row belongs to
+     * @param kind what happened
+     * @param rowId the ID of the row, or NO_ROW
+     */
+    public static void publish(Table table, String username, Kind kind, long rowId) {
+        if (Boolean.TRUE.equals(batching.get())) {
+            return;
+        }
+        Change change = new Change(table, username, kind, rowId);
+        ArrayList<Change> changes = held.get();
+        if (changes != null) {
+            changes.add(change);
+        } else {
+            post(change);
+        }
+    }
+
+    /**
+     * Starts a transaction whose changes are only reported if it commits.
+     * Use it instead of db.beginTransaction around writes made through the
+     * databases, and end it with endTransaction here.
+     * Inside a transaction opened some other way it only joins that one,
+     * and changes are reported as they are made like before.
+     * Changes are held per thread, so writes this thread makes to another
+     * database meanwhile are held with them.
+     *
+     * @param db the database to write to
+     */
+    public static void beginTransaction(SQLiteDatabase db) {
+        if (db.inTransaction() && held.get() == null) {
+            db.beginTransaction();
+        } else {
+            db.beginTransactionWithListener(heldListener);
+        }
+    }
+
+    /**
+     * Ends a transaction from beginTransaction. When the outermost one
+     * ends, the changes made in it are reported if it committed and
+     * dropped if it rolled back. They go out after the commit, so an
+     * observer that reads again sees the new rows.
+     *
+     * @param db the database the transaction is on
+     */
+    public static void endTransaction(SQLiteDatabase db) {
+        db.endTransaction();
+        ArrayList<Change> changes = held.get();
+        if (changes != null && !db.inTransaction()) {
+            held.remove();
+            for (Change change : changes) {
+                post(change);
+            }
+        }
+    }
+
+    /**
+     * Tells the observers about a change on the main thread.
+     *
+     * @param change what was written
+     */
+    private static void post(Change change) {
+        MAIN.post(() -> {
+            for (Observer observer : observers) {
+                observer.onDataChanged(change);
+            }
+        });
+    }
+
+    /**
+     * Holds back the changes of this thread until endBatch.
+     * Used when writing many rows so observers aren't told about each one.
+     */
+    public static void beginBatch() {
+        batching.set(Boolean.TRUE);
+    }
+
+    /**
+     * Ends a batch and reports one RELOADED change for it.
+     *
+     * @param table the table that was written
+     * @param username the user whose rows were written
+     */
+    public static void endBatch(Table table, String username) {
+        batching.remove();
+        publish(table, username, Kind.RELOADED, NO_ROW);
+    }
+}
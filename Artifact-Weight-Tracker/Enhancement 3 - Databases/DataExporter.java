@@ -0,0 +1,232 @@
+package com.weighttracker.app.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.JsonWriter;
+
+import com.weighttracker.app.util.BackgroundLoader;
+import com.weighttracker.app.util.DateCodec;
+import com.weighttracker.app.util.EntryFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a users weights or notes to a file as CSV or JSON.
+ * Rows go straight from the database cursor to the file one at a time,
+ * so memory use stays the same no matter how many rows there are.
+ * The files can be read back in with BulkImporter.
+ */
+public class DataExporter {
+
+    // Check for cancel this often
+    private static final int CANCEL_CHECK_ROWS = 256;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The kinds of file that can be written.
+     */
+    public enum Format { CSV, JSON }
+
+    private final Context context;
+    private final String username;
+
+    /**
+     * Sets up an exporter for one user.
+     *
+     * @param context The context of the app.
+     * @param username The user whose data is written.
+     */
+    public DataExporter(Context context, String username) {
+        this.context = context.getApplicationContext();
+        this.username = username;
+    }
+
+    /**
+     * Writes the users weights in the background.
+     * The stream is closed when the export ends, even if it was cancelled.
+     * Only one of done or failed is called. After a cancel neither is,
+     * and the partial file is left for the caller to delete.
+     *
+     * @param out where the file is written
+     * @param format CSV or JSON
+     * @param gzip true to compress the file
+     * @param done gets the number of rows written on the main thread
+     * @param failed gets the error on the main thread if the file couldn't be written
+     * @return a handle that can cancel the export
+     */
+    public BackgroundLoader.Load exportWeights(OutputStream out, Format format, boolean gzip,
+                                               BackgroundLoader.Callback<Integer> done,
+                                               BackgroundLoader.ErrorCallback failed) {
+        return BackgroundLoader.run(load -> {
+            try (OutputStream closing = out) {
+                return writeWeights(closing, format, gzip, load);
+            }
+        }, done, failed);
+    }
+
+    /**
+     * Writes the users notes in the background.
+     * The stream is closed when the export ends, even if it was cancelled.
+     * Only one of done or failed is called. After a cancel neither is,
+     * and the partial file is left for the caller to delete.
+     *
+     * @param out where the file is written
+     * @param format CSV or JSON
+     * @param gzip true to compress the file
+     * @param done gets the number of rows written on the main thread
+     * @param failed gets the error on the main thread if the file couldn't be written
+     * @return a handle that can cancel the export
+     */
+    public BackgroundLoader.Load exportNotes(OutputStream out, Format format, boolean gzip,
+                                             BackgroundLoader.Callback<Integer> done,
+                                             BackgroundLoader.ErrorCallback failed) {
+        return BackgroundLoader.run(load -> {
+            try (OutputStream closing = out) {
+                return writeNotes(closing, format, gzip, load);
+            }
+        }, done, failed);
+    }
+
+    /**
+     * Writes the users weights, oldest first, with columns date (yyyy-MM-dd) and weight (lbs).
+     *
+     * @param out where the file is written, not closed
+     * @param format CSV or JSON
+     * @param gzip true to compress the file
+     * @param load checked for cancel, or null
+     * @return the number of rows written
+     * @throws IOException if the file can't be written
+     */
+    public int writeWeights(OutputStream out, Format format, boolean gzip, BackgroundLoader.Load load) throws IOException {
+        WeightDatabase weightDatabase = AppDatabases.weights(context);
+        try (Cursor cursor = weightDatabase.getUserWeights(username, true)) {
+            int dateIdx = cursor.getColumnIndexOrThrow("date");
+            int wtIdx = cursor.getColumnIndexOrThrow("weight_tenths");
+            String[] names = {"date", "weight"};
+            String[] values = new String[2];
+
+            return write(out, format, gzip, load, cursor, names, values, () -> {
+                values[0] = DateCodec.formatIso(cursor.getInt(dateIdx));
+                values[1] = EntryFormat.formatTenths(cursor.getInt(wtIdx));
+            });
+        }
+    }
+
+    /**
+     * Writes the users notes, newest first, with columns title, body,
+     * dateCreated and dateLastUpdated (milliseconds).
+     *
+     * @param out where the file is written, not closed
+     * @param format CSV or JSON
+     * @param gzip true to compress the file
+     * @param load checked for cancel, or null
+     * @return the number of rows written
+     * @throws IOException if the file can't be written
+     */
+    public int writeNotes(OutputStream out, Format format, boolean gzip, BackgroundLoader.Load load) throws IOException {
+        NotesDatabase notesDatabase = AppDatabases.notes(context);
+        try (Cursor cursor = notesDatabase.getUserNotes(username)) {
+            int titleIdx = cursor.getColumnIndexOrThrow("title");
+            int bodyIdx = cursor.getColumnIndexOrThrow("body");
+            int createdIdx = cursor.getColumnIndexOrThrow("dateCreated");
+            int updatedIdx = cursor.getColumnIndexOrThrow("dateLastUpdated");
+            String[] names = {"title", "body", "dateCreated", "dateLastUpdated"};
+            String[] values = new String[4];
+
+            return write(out, format, gzip, load, cursor, names, values, () -> {
+                values[0] = cursor.getString(titleIdx);
+                values[1] = cursor.getString(bodyIdx);
+                values[2] = String.valueOf(cursor.getLong(createdIdx));
+                values[3] = String.valueOf(cursor.getLong(updatedIdx));
+            });
+        }
+    }
+
+    /**
+     * Fills the values array from the row the cursor is on.
+     */
+    private interface RowFiller {
+        void fill();
+    }
+
+    /**
+     * Walks the cursor and writes each row. The same values array is
+     * reused for every row so nothing builds up.
+     */
+    private static int write(OutputStream out, Format format, boolean gzip, BackgroundLoader.Load load,
+                             Cursor cursor, String[] names, String[] values, RowFiller filler) throws IOException {
+        GZIPOutputStream zip = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(zip != null ? zip : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        int rows = 0;
+        if (format == Format.JSON) {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginArray();
+            while (cursor.moveToNext()) {
+                checkCancelled(load, rows);
+                filler.fill();
+                json.beginObject();
+                for (int i = 0; i < names.length; i++) {
+                    json.name(names[i]).value(values[i]);
+                }
+                json.endObject();
+                rows++;
+            }
+            json.endArray();
+            json.flush();
+        } else {
+            writeCsvRow(writer, names);
+            while (cursor.moveToNext()) {
+                checkCancelled(load, rows);
+                filler.fill();
+                writeCsvRow(writer, values);
+                rows++;
+            }
+        }
+
+        // Flush everything but leave the callers stream open
+        writer.flush();
+        if (zip != null) {
+            zip.finish();
+        }
+        return rows;
+    }
+
+    /**
+     * Writes one CSV line. Values with commas, quotes or new lines are quoted.
+     */
+    private static void writeCsvRow(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i] == null ? "" : values[i];
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (quote) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Stops the export if it was cancelled.
+     */
+    private static void checkCancelled(BackgroundLoader.Load load, int rows) {
+        if (load != null && rows % CANCEL_CHECK_ROWS == 0 && load.isCancelled()) {
+            throw new CancellationException("Export cancelled");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.weighttracker.app.ui.notes;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.List;
+import java.util.Objects;
+
+import model.NoteEntry;
+
+/**
+ * Compares the old and new note lists so only the rows that
+ * changed are redrawn. Rows match by ID and are the same if the
+ * title, preview, and last updated time didn't change.
+ */
+public class NoteDiffCallback extends DiffUtil.Callback {
+
+    private final List<NoteEntry> oldList;
+    private final List<NoteEntry> newList;
+
+    /**
+     * Sets up the compare between two lists.
+     *
+     * @param oldList the notes on screen now
+     * @param newList the notes that will replace them
+     */
+    public NoteDiffCallback(List<NoteEntry> oldList, List<NoteEntry> newList) {
+        this.oldList = oldList;
+        this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        return oldList.get(oldItemPosition).getId() == newList.get(newItemPosition).getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        NoteEntry oldNote = oldList.get(oldItemPosition);
+        NoteEntry newNote = newList.get(newItemPosition);
+        return oldNote.getDateLastUpdated() == newNote.getDateLastUpdated()
+                && Objects.equals(oldNote.getTitle(), newNote.getTitle())
+                && Objects.equals(oldNote.getPreview(), newNote.getPreview());
+    }
+}
@@ -1,27 +1,57 @@
 package model;
 
 /**
- * One note entry.
+ * One note entry as the list shows it.
+ * Only the start of the body is kept here, the full body is read from
+ * the database when the note is opened.
  */
 public class NoteEntry {
     private final int id;
     private final String title;
-    private final String body;
+    private final String preview;
+    private final long dateCreated;
     private final long dateLastUpdated;
+    private final String titleMatch;
+    private final String bodyMatch;
+
+    // What the list shows, made in the background when the note is loaded
+    private CharSequence displayTitle;
+    private CharSequence displayBody;
+    private String displayTime;
 
     /**
-     * Makes a note with id, title, body, and last updated time.
+     * Makes a note with id, title, preview, and created and last updated times.
      *
      * @param id unique ID of the note in the database
      * @param title the title text of the note
-     * @param body the body text of the note
+     * @param preview the start of the body text of the note
+     * @param dateCreated the time the note was made in milliseconds
      * @param dateLastUpdated the last updated time in milliseconds
      */
-    public NoteEntry(int id, String title, String body, long dateLastUpdated) {
+    public NoteEntry(int id, String title, String preview, long dateCreated, long dateLastUpdated) {
+        this(id, title, preview, dateCreated, dateLastUpdated, null, null);
+    }
+
+    /**
+     * Makes a note found by a search, with the matched words marked.
+     *
+     * @param id unique ID of the note in the database
+     * @param title the title text of the note
+     * @param preview the start of the body text of the note
+     * @param dateCreated the time the note was made in milliseconds
+     * @param dateLastUpdated the last updated time in milliseconds
+     * @param titleMatch the title with matched words marked, or null
+     * @param bodyMatch the part of the body around the matched words, or null
+     */
+    public NoteEntry(int id, String title, String preview, long dateCreated, long dateLastUpdated,
+                     String titleMatch, String bodyMatch) {
         this.id = id;
         this.title = title;
-        this.body = body;
+        this.preview = preview;
+        this.dateCreated = dateCreated;
         this.dateLastUpdated = dateLastUpdated;
+        this.titleMatch = titleMatch;
+        this.bodyMatch = bodyMatch;
     }
 
     /**
@@ -41,12 +71,21 @@ public class NoteEntry {
     }
 
     /**
-     * Gets the body text of this note.
+     * Gets the start of the body text of this note.
      *
-     * @return the body as a String
+     * @return the preview as a String
      */
-    public String getBody() {
-        return body;
+    public String getPreview() {
+        return preview;
+    }
+
+    /**
+     * Gets the time this note was made.
+     *
+     * @return the time in milliseconds
+     */
+    public long getDateCreated() {
+        return dateCreated;
     }
 
     /**
@@ -57,4 +96,72 @@ public class NoteEntry {
     public long getDateLastUpdated() {
         return dateLastUpdated;
     }
+
+    /**
+     * Gets the title with the search words marked.
+     *
+     * @return the marked title, or null if this note isn't a search result
+     */
+    public String getTitleMatch() {
+        return titleMatch;
+    }
+
+    /**
+     * Gets the part of the body around the search words, with them marked.
+     *
+     * @return the marked body, or null if this note isn't a search result
+     */
+    public String getBodyMatch() {
+        return bodyMatch;
+    }
+
+    /**
+     * Saves the text the list shows for this note, so rows don't have
+     * to build it while scrolling.
+     *
+     * @param title the title to show
+     * @param body the body to show
+     * @param time the last updated time to show
+     */
+    public void setDisplay(CharSequence title, CharSequence body, String time) {
+        this.displayTitle = title;
+        this.displayBody = body;
+        this.displayTime = time;
+    }
+
+    /**
+     * Checks if the display text was made yet.
+     *
+     * @return true if setDisplay was called
+     */
+    public boolean hasDisplay() {
+        return displayTime != null;
+    }
+
+    /**
+     * Gets the title the list shows, with search words in bold.
+     *
+     * @return the title to show
+     */
+    public CharSequence getDisplayTitle() {
+        return displayTitle;
+    }
+
+    /**
+     * Gets the body the list shows, with search words in bold.
+     *
+     * @return the body to show
+     */
+    public CharSequence getDisplayBody() {
+        return displayBody;
+    }
+
+    /**
+     * Gets the full last updated time the list shows for older notes.
+     *
+     * @return the time like "Jan 5, 2024 3:07 PM"
+     */
+    public String getDisplayTime() {
+        return displayTime;
+    }
 }
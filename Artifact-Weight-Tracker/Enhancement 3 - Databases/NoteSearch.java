@@ -0,0 +1,238 @@
+package com.weighttracker.app.data;
+
+import android.database.Cursor;
+import android.util.SparseArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import model.NoteEntry;
+
+/**
+ * One search over the users notes.
+ * The full-text index finds the matching notes, and they are ranked
+ * once with BM25 so a title match counts more than a body match.
+ * Pages of results are then read by rank with the matched words marked.
+ */
+public class NoteSearch {
+
+    // Put around each matched word in NoteEntry.getTitleMatch and getBodyMatch
+    public static final String MATCH_START = "\u0002";
+    public static final String MATCH_END = "\u0003";
+
+    // BM25 tuning and how much each column counts, title then body
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double[] COLUMN_WEIGHTS = {2.0, 1.0};
+
+    private final NotesDatabase notesDatabase;
+    private final String match;
+    private final int[] rankedIds;
+    private final HashMap<Integer, Integer> rankOf = new HashMap<>();
+
+    private NoteSearch(NotesDatabase notesDatabase, String match, int[] rankedIds) {
+        this.notesDatabase = notesDatabase;
+        this.match = match;
+        this.rankedIds = rankedIds;
+        for (int i = 0; i < rankedIds.length; i++) {
+            rankOf.put(rankedIds[i], i);
+        }
+    }
+
+    /**
+     * Finds and ranks the users notes that match what was typed.
+     * Every word has to match, and the last letters of a word can be left off.
+     * Runs in the background.
+     *
+     * @param notesDatabase where the notes are
+     * @param username the logged-in user
+     * @param text what the user typed
+     * @return the search, with no results if text has no words
+     */
+    public static NoteSearch run(NotesDatabase notesDatabase, String username, String text) {
+        String match = toMatch(text);
+        if (match.isEmpty()) {
+            return new NoteSearch(notesDatabase, match, new int[0]);
+        }
+
+        ArrayList<Match> found = new ArrayList<>();
+        try (Cursor cursor = notesDatabase.getSearchMatches(username, match)) {
+            int idIdx = cursor.getColumnIndexOrThrow("_id");
+            int infoIdx = cursor.getColumnIndexOrThrow("matchinfo");
+            while (cursor.moveToNext()) {
+                found.add(new Match(cursor.getInt(idIdx), score(cursor.getBlob(infoIdx))));
+            }
+        }
+
+        // Best score first, newest note first on a tie
+        Collections.sort(found, (a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Integer.compare(b.id, a.id);
+        });
+
+        int[] ids = new int[found.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = found.get(i).id;
+        }
+        return new NoteSearch(notesDatabase, match, ids);
+    }
+
+    /**
+     * Gets how many notes matched.
+     *
+     * @return the number of results
+     */
+    public int size() {
+        return rankedIds.length;
+    }
+
+    /**
+     * Reads one page of results in rank order, next to an anchor result.
+     * Runs in the background.
+     *
+     * @param anchor the result to start from, or null to start at the best match
+     * @param forward true for results ranked after anchor, false for results before it
+     * @param inclusive true to include anchor itself
+     * @param limit most results to return
+     * @return the results in rank order, empty if anchor isn't in this search
+     */
+    public List<NoteEntry> loadPage(NoteEntry anchor, boolean forward, boolean inclusive, int limit) {
+        int from;
+        int to;
+        if (anchor == null) {
+            from = 0;
+            to = Math.min(rankedIds.length, limit);
+        } else {
+            Integer rank = rankOf.get(anchor.getId());
+            if (rank == null) {
+                return new ArrayList<>();
+            }
+            if (forward) {
+                from = inclusive ? rank : rank + 1;
+                to = Math.min(rankedIds.length, from + limit);
+            } else {
+                to = inclusive ? rank + 1 : rank;
+                from = Math.max(0, to - limit);
+            }
+        }
+        if (from >= to) {
+            return new ArrayList<>();
+        }
+
+        // Read the page in any order, then put it back in rank order
+        int[] ids = Arrays.copyOfRange(rankedIds, from, to);
+        SparseArray<NoteEntry> byId = new SparseArray<>(ids.length);
+        try (Cursor cursor = notesDatabase.getSearchResults(match, ids, MATCH_START, MATCH_END)) {
+            int idIdx = cursor.getColumnIndexOrThrow("_id");
+            int titleIdx = cursor.getColumnIndexOrThrow("title");
+            int previewIdx = cursor.getColumnIndexOrThrow("preview");
+            int dateCreatedIdx = cursor.getColumnIndexOrThrow("dateCreated");
+            int dateLastUpdatedIdx = cursor.getColumnIndexOrThrow("dateLastUpdated");
+            int titleMatchIdx = cursor.getColumnIndexOrThrow("titleMatch");
+            int bodyMatchIdx = cursor.getColumnIndexOrThrow("bodyMatch");
+
+            while (cursor.moveToNext()) {
+                int id = cursor.getInt(idIdx);
+                byId.put(id, new NoteEntry(
+                        id,
+                        cursor.getString(titleIdx),
+                        cursor.getString(previewIdx),
+                        cursor.getLong(dateCreatedIdx),
+                        cursor.getLong(dateLastUpdatedIdx),
+                        cursor.getString(titleMatchIdx),
+                        cursor.getString(bodyMatchIdx)
+                ));
+            }
+        }
+
+        ArrayList<NoteEntry> page = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            // Skips notes deleted since the search ran
+            NoteEntry note = byId.get(id);
+            if (note != null) {
+                page.add(note);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Turns typed text into a full-text query.
+     * Each word is matched as a prefix, and anything that isn't a letter
+     * or number is dropped so the text can't break the query.
+     *
+     * @param text what the user typed
+     * @return the query, or an empty string if there are no words
+     */
+    static String toMatch(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            // Lower case so words like "or" and "not" aren't read as operators
+            if (match.length() > 0) match.append(' ');
+            match.append(word.toLowerCase(Locale.ROOT)).append('*');
+        }
+        return match.toString();
+    }
+
+    /**
+     * Scores one note with BM25 from its matchinfo "pcnalx" blob.
+     *
+     * @param blob the matchinfo value
+     * @return the score, higher is a better match
+     */
+    private static double score(byte[] blob) {
+        IntBuffer info = ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        int rows = info.get(2);
+        int avgStart = 3;
+        int lengthStart = avgStart + columns;
+        int hitStart = lengthStart + columns;
+
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns; c++) {
+                int x = hitStart + 3 * (p * columns + c);
+                int hits = info.get(x);
+                if (hits == 0) continue;
+                int notesWithHits = info.get(x + 2);
+
+                double idf = Math.log((rows - notesWithHits + 0.5) / (notesWithHits + 0.5));
+                // A word in almost every note still counts a little
+                idf = Math.max(idf, 0.01);
+
+                double avgLength = Math.max(1, info.get(avgStart + c));
+                double length = info.get(lengthStart + c);
+                double tf = hits * (K1 + 1) / (hits + K1 * (1 - B + B * length / avgLength));
+
+                double weight = c < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[c] : 1.0;
+                score += weight * idf * tf;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * A matching note and its score.
+     */
+    private static final class Match {
+        final int id;
+        final double score;
+
+        Match(int id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.weighttracker.app.ui.notes;
 
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
@@ -9,9 +13,11 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.weighttracker.app.R;
+import com.weighttracker.app.data.NoteSearch;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Locale;
 
@@ -19,13 +25,43 @@ import model.NoteEntry;
 
 /**
  * Adapter for the notes list.
+ * The text for each row is made by prepare when the notes are loaded,
+ * so binding a row only sets text that is already built. Notes from the
+ * last day show "5 minutes ago" style times, picked from labels made once.
  *
  */
 public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteHolder> {
 
+    // DateTimeFormatter can't change, so prepare can use it from any thread
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("MMM d, yyyy h:mm a", Locale.US);
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    // How often the "minutes ago" times are updated
+    static final long TIME_REFRESH_MS = MINUTE_MS;
+
+    // Payload for a row whose time label is all that changed
+    private static final Object TIME_CHANGED = new Object();
+
+    private static final String[] MINUTES_AGO = new String[60];
+    private static final String[] HOURS_AGO = new String[24];
+
+    static {
+        MINUTES_AGO[0] = "Just now";
+        MINUTES_AGO[1] = "1 minute ago";
+        for (int i = 2; i < MINUTES_AGO.length; i++) {
+            MINUTES_AGO[i] = i + " minutes ago";
+        }
+        HOURS_AGO[1] = "1 hour ago";
+        for (int i = 2; i < HOURS_AGO.length; i++) {
+            HOURS_AGO[i] = i + " hours ago";
+        }
+    }
+
     private final List<NoteEntry> noteList;
     private final NoteItemActionListener listener;
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM d, yyyy h:mm a", Locale.US);
 
     /**
      * Constructor sets up the adapter with the note list and listener
@@ -49,7 +85,7 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteHolder>
     @Override
     public NoteHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(parent.getContext());
-        return new NoteHolder(inflater, parent);
+        return new NoteHolder(inflater, parent, listener);
     }
 
     /**
@@ -60,7 +96,48 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteHolder>
      */
     @Override
     public void onBindViewHolder(@NonNull NoteHolder holder, int position) {
-        holder.bind(noteList.get(position), listener, dateFormat);
+        holder.bind(noteList.get(position), System.currentTimeMillis());
+    }
+
+    /**
+     * Updates only the time when that is all that changed.
+     *
+     * @param holder the row holder
+     * @param position where we are in the list
+     * @param payloads what changed, empty for the whole row
+     */
+    @Override
+    public void onBindViewHolder(@NonNull NoteHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && allTimeChanges(payloads)) {
+            holder.bindTime(noteList.get(position), System.currentTimeMillis());
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    private static boolean allTimeChanges(List<Object> payloads) {
+        for (int i = 0; i < payloads.size(); i++) {
+            if (payloads.get(i) != TIME_CHANGED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Redraws the time of notes whose "minutes ago" label may have moved on.
+     * Called on a timer by the screen. Notes older than a day show a fixed
+     * time, so they are left alone.
+     */
+    void refreshTimes() {
+        long now = System.currentTimeMillis();
+        for (int k = 0; k < noteList.size(); k++) {
+            // A little past a day too, so the label switches to the full time
+            long age = now - noteList.get(k).getDateLastUpdated();
+            if (age >= 0 && age < DAY_MS + TIME_REFRESH_MS) {
+                notifyItemChanged(k, TIME_CHANGED);
+            }
+        }
     }
 
     /**
@@ -83,36 +160,130 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteHolder>
         private final TextView timestamp;
         private final ImageButton deleteButton;
 
+        // The note this row shows now, read by the click listeners
+        private NoteEntry note;
+
         /**
          * Sets up the views for each row.
+         * Tapping anywhere edits and trash icon deletes. The listeners are
+         * set once here and act on whatever note the row shows.
          *
          * @param inflater used to create the layout
          * @param parent the parent layout
+         * @param listener callback for edit and delete actions
          */
-        public NoteHolder(LayoutInflater inflater, ViewGroup parent) {
+        public NoteHolder(LayoutInflater inflater, ViewGroup parent, NoteItemActionListener listener) {
             super(inflater.inflate(R.layout.list_of_notes, parent, false));
             title = itemView.findViewById(R.id.note_title);
             body = itemView.findViewById(R.id.note_body);
             timestamp = itemView.findViewById(R.id.note_timestamp);
             deleteButton = itemView.findViewById(R.id.note_delete);
+
+            itemView.setOnClickListener(v -> {
+                if (note != null) listener.onEditRequested(note);
+            });
+            deleteButton.setOnClickListener(v -> {
+                if (note != null) listener.onDeleteRequested(note);
+            });
         }
 
         /**
          * Shows the notes title and body and last updated time.
-         * Tapping anywhere edits and trash icon deletes.
          *
          * @param note the note entry to display
-         * @param listener callback for edit and delete actions
-         * @param sdf formatter for the timestamp
+         * @param now the time now in milliseconds
+         */
+        void bind(NoteEntry note, long now) {
+            this.note = note;
+            if (!note.hasDisplay()) {
+                // Only for a note that didn't come through prepare
+                prepare(note);
+            }
+            title.setText(note.getDisplayTitle());
+            body.setText(note.getDisplayBody());
+            bindTime(note, now);
+        }
+
+        /**
+         * Shows only the last updated time.
+         *
+         * @param note the note entry to display
+         * @param now the time now in milliseconds
          */
-        void bind(NoteEntry note, NoteItemActionListener listener, SimpleDateFormat sdf) {
-            title.setText(note.getTitle());
-            body.setText(note.getBody());
-            timestamp.setText(sdf.format(new Date(note.getDateLastUpdated())));
+        void bindTime(NoteEntry note, long now) {
+            timestamp.setText(timeLabel(note, now));
+        }
+    }
+
+    /**
+     * Builds the text the list shows for each note.
+     * Called in the background when a page is loaded, so scrolling
+     * doesn't format dates or bold search words.
+     *
+     * @param notes the notes just loaded
+     */
+    static void prepare(List<NoteEntry> notes) {
+        for (int i = 0; i < notes.size(); i++) {
+            prepare(notes.get(i));
+        }
+    }
+
+    private static void prepare(NoteEntry note) {
+        // Search results show the matched words in bold
+        CharSequence shownTitle = note.getTitleMatch() != null ? highlight(note.getTitleMatch()) : note.getTitle();
+        CharSequence shownBody = note.getBodyMatch() != null ? highlight(note.getBodyMatch()) : note.getPreview();
+        String time = Instant.ofEpochMilli(note.getDateLastUpdated())
+                .atZone(ZoneId.systemDefault())
+                .format(TIME_FORMAT);
+        note.setDisplay(shownTitle, shownBody, time);
+    }
+
+    /**
+     * Picks the time to show for a note. Notes from the last day get a
+     * "minutes ago" or "hours ago" label, older ones get the full time.
+     *
+     * @param note the note
+     * @param now the time now in milliseconds
+     * @return the label, nothing new is made
+     */
+    static String timeLabel(NoteEntry note, long now) {
+        long age = now - note.getDateLastUpdated();
+        if (age < 0 || age >= DAY_MS) {
+            return note.getDisplayTime();
+        }
+        if (age < HOUR_MS) {
+            return MINUTES_AGO[(int) (age / MINUTE_MS)];
+        }
+        return HOURS_AGO[(int) (age / HOUR_MS)];
+    }
+
+    /**
+     * Turns the marks around matched words into bold text.
+     *
+     * @param marked text with NoteSearch.MATCH_START and MATCH_END around each match
+     * @return the text without marks and with the matches in bold
+     */
+    static CharSequence highlight(String marked) {
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        int i = 0;
+        while (i < marked.length()) {
+            int start = marked.indexOf(NoteSearch.MATCH_START, i);
+            if (start < 0) {
+                text.append(marked, i, marked.length());
+                break;
+            }
+            int end = marked.indexOf(NoteSearch.MATCH_END, start);
+            if (end < 0) {
+                end = marked.length();
+            }
 
-            itemView.setOnClickListener(v -> listener.onEditRequested(note));
-            deleteButton.setOnClickListener(v -> listener.onDeleteRequested(note));
+            text.append(marked, i, start);
+            int boldStart = text.length();
+            text.append(marked, start + 1, end);
+            text.setSpan(new StyleSpan(Typeface.BOLD), boldStart, text.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            i = end + 1;
         }
+        return text;
     }
 
     /**
@@ -1,10 +1,15 @@
 package com.weighttracker.app.data;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.HashSet;
+
+import model.NoteEntry;
 
 /**
  * This sets up the database for saving notes for each user.
@@ -13,10 +18,42 @@ public class NotesDatabase extends SQLiteOpenHelper {
 
     // Name of the notes database and version number
     private static final String DATABASE_NAME = "notes.db";
-    private static final int VERSION = 3;
+    private static final int VERSION = 7;
+    private static final String TAG = "NotesDatabase";
+
+    // Characters of the body kept for the list, more than one row can show
+    private static final int PREVIEW_LENGTH = 120;
+
+    /**
+     * The orders the notes list can be shown in.
+     * Each one has its own index that already holds the list columns,
+     * so a page is read straight from the index with no sorting.
+     * A missing title or date sorts as '' or 0, the same value sortKey
+     * gives for it, so paging never jumps over those notes.
+     */
+    public enum Sort {
+        UPDATED("coalesce(" + noteTable.col_dateLastUpdated + ", 0)", "(?2 + 0)", true),
+        CREATED("coalesce(" + noteTable.col_dateCreated + ", 0)", "(?2 + 0)", true),
+        TITLE("coalesce(" + noteTable.col_title + ", '') COLLATE NOCASE", "?2", false);
+
+        final String column;
+        // The anchor key is bound as text, "+ 0" turns it back into a number for the dates
+        final String anchor;
+        final boolean descending;
+
+        Sort(String column, String anchor, boolean descending) {
+            this.column = column;
+            this.anchor = anchor;
+            this.descending = descending;
+        }
+    }
+
+    // Write statements, compiled once and reused
+    private final StatementCache statements = new StatementCache(this);
 
     /**
      * Creates or opens the notes database.
+     * Use AppDatabases.notes to share one open copy instead of making a new one.
      *
      * @param context The context of the app using this database.
      */
@@ -35,6 +72,35 @@ public class NotesDatabase extends SQLiteOpenHelper {
         private static final String col_body = "body";
         private static final String col_dateCreated = "dateCreated";
         private static final String col_dateLastUpdated = "dateLastUpdated";
+        private static final String col_preview = "preview";
+
+        // The columns the list shows, the full body is only read when a note is opened
+        private static final String LIST_COLUMNS = col_id + ", " + col_title + ", " +
+                col_preview + ", " + col_dateCreated + ", " + col_dateLastUpdated;
+
+        // The preview is cut from the body parameter (?3 and ?2) so it always matches the body
+        private static final String INSERT = "insert into " + TABLE + " (" +
+                col_username + ", " + col_title + ", " + col_body + ", " +
+                col_dateCreated + ", " + col_dateLastUpdated + ", " + col_preview + ")" +
+                " values (?, ?, ?, ?, ?, substr(?3, 1, " + PREVIEW_LENGTH + "))";
+        private static final String UPDATE = "update " + TABLE + " set " +
+                col_title + " = ?, " + col_body + " = ?, " + col_dateLastUpdated + " = ?, " +
+                col_preview + " = substr(?2, 1, " + PREVIEW_LENGTH + ")" +
+                " where " + col_id + " = ?";
+        private static final String DELETE = "delete from " + TABLE + " where " + col_id + " = ?";
+        private static final String OWNER = "select " + col_username + " from " + TABLE + " where " + col_id + " = ?";
+        private static final String BODY = "select " + col_body + " from " + TABLE + " where " + col_id + " = ?";
+    }
+
+    /**
+     * Holds the names for the full-text search index over the notes.
+     * It keeps no copy of the text, it reads title and body from the notes table.
+     */
+    private static final class searchTable {
+        private static final String TABLE = "notes_fts";
+        private static final String col_docid = "docid";
+        private static final String col_title = "title";
+        private static final String col_body = "body";
     }
 
     /**
@@ -45,6 +111,19 @@ public class NotesDatabase extends SQLiteOpenHelper {
      */
     @Override
     public void onCreate(SQLiteDatabase db) {
+        createTable(db);
+        createSearch(db);
+        addPreview(db);
+        createSortIndexes(db);
+    }
+
+    /**
+     * Creates the notes table as it was at version 3.
+     * Later versions change it with their own migration step.
+     *
+     * @param db The database.
+     */
+    private void createTable(SQLiteDatabase db) {
         db.execSQL("create table " + noteTable.TABLE + " (" +
                 noteTable.col_id + " integer primary key autoincrement, " +
                 noteTable.col_username + " text, " +
@@ -54,9 +133,44 @@ public class NotesDatabase extends SQLiteOpenHelper {
                 noteTable.col_dateLastUpdated + " integer)");
     }
 
+    /**
+     * Makes the full-text search index and the triggers that keep it
+     * matching the notes table, then indexes the notes already saved.
+     *
+     * @param db The database where the index will be created.
+     */
+    private void createSearch(SQLiteDatabase db) {
+        // prefix lets "wor*" use the index instead of scanning every word
+        db.execSQL("create virtual table " + searchTable.TABLE + " using fts4(" +
+                "content=\"" + noteTable.TABLE + "\", " +
+                searchTable.col_title + ", " +
+                searchTable.col_body + ", " +
+                "prefix=\"2,3\")");
+
+        // The old text has to leave the index before the row changes
+        db.execSQL("create trigger notes_fts_bd before delete on " + noteTable.TABLE + " begin " +
+                "delete from " + searchTable.TABLE + " where " + searchTable.col_docid + " = old." + noteTable.col_id + "; end");
+        db.execSQL("create trigger notes_fts_bu before update of " + noteTable.col_title + ", " + noteTable.col_body +
+                " on " + noteTable.TABLE + " begin " +
+                "delete from " + searchTable.TABLE + " where " + searchTable.col_docid + " = old." + noteTable.col_id + "; end");
+        db.execSQL("create trigger notes_fts_au after update of " + noteTable.col_title + ", " + noteTable.col_body +
+                " on " + noteTable.TABLE + " begin " +
+                "insert into " + searchTable.TABLE + "(" + searchTable.col_docid + ", " + searchTable.col_title + ", " + searchTable.col_body + ")" +
+                " values (new." + noteTable.col_id + ", new." + noteTable.col_title + ", new." + noteTable.col_body + "); end");
+        db.execSQL("create trigger notes_fts_ai after insert on " + noteTable.TABLE + " begin " +
+                "insert into " + searchTable.TABLE + "(" + searchTable.col_docid + ", " + searchTable.col_title + ", " + searchTable.col_body + ")" +
+                " values (new." + noteTable.col_id + ", new." + noteTable.col_title + ", new." + noteTable.col_body + "); end");
+
+        // Index any notes that were saved before the index existed
+        db.execSQL("insert into " + searchTable.TABLE + "(" + searchTable.TABLE + ") values ('rebuild')");
+    }
+
     /**
      * Runs when the database version changes.
-     * Deletes the old table and creates a new one.
+     * Runs every migration step from the old version up to the new one
+     * in order, so saved notes are always kept.
+     * Android runs this whole method in one transaction, so if a step
+     * fails nothing is changed and the upgrade is tried again next time.
      *
      * @param db The database.
      * @param oldVersion The previous version number.
@@ -64,8 +178,141 @@ public class NotesDatabase extends SQLiteOpenHelper {
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("drop table if exists " + noteTable.TABLE);
-        onCreate(db);
+        long start = System.currentTimeMillis();
+        for (int version = oldVersion; version < newVersion; version++) {
+            upgradeFrom(db, version);
+        }
+        Log.i(TAG, "Upgraded notes from version " + oldVersion + " to " + newVersion +
+                " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Moves the schema up one version.
+     * A new version adds a case here instead of changing the ones before it.
+     *
+     * @param db The database.
+     * @param version The version to upgrade from.
+     */
+    private void upgradeFrom(SQLiteDatabase db, int version) {
+        switch (version) {
+            case 1:
+                // Nothing to do, the copy from version 2 brings over any columns that exist
+                break;
+            case 2:
+                // Tables before version 3 had other columns, copy what they had into a new table
+                copyAndSwap(db);
+                break;
+            case 3:
+                createSearch(db);
+                break;
+            case 4:
+                addPreview(db);
+                break;
+            case 5:
+                createSortIndexes(db);
+                break;
+            case 6:
+                // The sort indexes now hold coalesce(...) so notes with no title or date can be paged
+                db.execSQL("drop index if exists notes_user_updated");
+                db.execSQL("drop index if exists notes_user_created");
+                db.execSQL("drop index if exists notes_user_title");
+                createSortIndexes(db);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Adds the preview column and fills it from the notes already saved.
+     * The list reads the preview instead of the body, so long notes
+     * don't have to be loaded just to show one line.
+     *
+     * @param db The database.
+     */
+    private void addPreview(SQLiteDatabase db) {
+        db.execSQL("alter table " + noteTable.TABLE + " add column " + noteTable.col_preview + " text");
+        db.execSQL("update " + noteTable.TABLE + " set " + noteTable.col_preview +
+                " = substr(" + noteTable.col_body + ", 1, " + PREVIEW_LENGTH + ")");
+    }
+
+    /**
+     * Makes one index for each Sort.
+     * Each starts with the user and the Sort column expression, then the ID
+     * to break ties, then the list columns. A page of the list is read in
+     * order from the index alone, without a full scan, a sort, or a trip
+     * to the table. The body isn't in any of them, so they stay small.
+     *
+     * @param db The database.
+     */
+    private void createSortIndexes(SQLiteDatabase db) {
+        String listColumns = noteTable.col_title + ", " + noteTable.col_preview + ", " +
+                noteTable.col_dateCreated + ", " + noteTable.col_dateLastUpdated + ")";
+        db.execSQL("create index notes_user_updated on " + noteTable.TABLE + " (" +
+                noteTable.col_username + ", " + Sort.UPDATED.column + " desc, " + noteTable.col_id + " desc, " + listColumns);
+        db.execSQL("create index notes_user_created on " + noteTable.TABLE + " (" +
+                noteTable.col_username + ", " + Sort.CREATED.column + " desc, " + noteTable.col_id + " desc, " + listColumns);
+        db.execSQL("create index notes_user_title on " + noteTable.TABLE + " (" +
+                noteTable.col_username + ", " + Sort.TITLE.column + ", " + noteTable.col_id + ", " + listColumns);
+    }
+
+    /**
+     * Rebuilds the notes table with the version 3 columns and copies the old rows in.
+     * Columns the old table didn't have are filled in, text as empty and dates as now.
+     * All rows go over in one statement. The upgrade is one transaction
+     * anyway, so copying in batches wouldn't hold any less.
+     *
+     * @param db The database.
+     */
+    private void copyAndSwap(SQLiteDatabase db) {
+        HashSet<String> oldColumns = columnsOf(db, noteTable.TABLE);
+        if (oldColumns.isEmpty()) {
+            createTable(db);
+            return;
+        }
+
+        String oldTable = noteTable.TABLE + "_old";
+        db.execSQL("alter table " + noteTable.TABLE + " rename to " + oldTable);
+        createTable(db);
+
+        String now = String.valueOf(System.currentTimeMillis());
+        String[] columns = {noteTable.col_id, noteTable.col_username, noteTable.col_title,
+                noteTable.col_body, noteTable.col_dateCreated, noteTable.col_dateLastUpdated};
+        String[] missing = {"null", "''", "''", "''", now, now};
+
+        StringBuilder into = new StringBuilder();
+        StringBuilder from = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                into.append(", ");
+                from.append(", ");
+            }
+            into.append(columns[i]);
+            from.append(oldColumns.contains(columns[i]) ? columns[i] : missing[i]);
+        }
+        String copy = "insert into " + noteTable.TABLE + " (" + into + ")" +
+                " select " + from + " from " + oldTable + " order by rowid";
+        db.execSQL(copy);
+
+        db.execSQL("drop table " + oldTable);
+    }
+
+    /**
+     * Gets the column names of a table.
+     *
+     * @param db The database.
+     * @param table The table name.
+     * @return the column names, empty if the table doesn't exist
+     */
+    private static HashSet<String> columnsOf(SQLiteDatabase db, String table) {
+        HashSet<String> columns = new HashSet<>();
+        try (Cursor cursor = db.rawQuery("pragma table_info(" + table + ")", null)) {
+            int nameIdx = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(nameIdx));
+            }
+        }
+        return columns;
     }
 
     /**
@@ -78,43 +325,259 @@ public class NotesDatabase extends SQLiteOpenHelper {
      */
     public long addNote(String username, String title, String body) {
         long timestamp = System.currentTimeMillis();
-        SQLiteDatabase db = getWritableDatabase();
+        return addNote(username, title, body, timestamp, timestamp);
+    }
 
-        ContentValues values = new ContentValues();
-        values.put(noteTable.col_username, username);
-        values.put(noteTable.col_title, title);
-        values.put(noteTable.col_body, body);
-        values.put(noteTable.col_dateCreated, timestamp);
-        values.put(noteTable.col_dateLastUpdated, timestamp);
+    /**
+     * Adds a note with the times it was made and last changed, like a note brought over from another app.
+     *
+     * @param username The user who the note belongs to.
+     * @param title The title of the note.
+     * @param body The body of the note.
+     * @param dateCreated When the note was made, in milliseconds.
+     * @param dateLastUpdated When the note was last changed, in milliseconds.
+     * @return The row ID of the inserted entry, or -1 if it failed.
+     */
+    public synchronized long addNote(String username, String title, String body, long dateCreated, long dateLastUpdated) {
+        SQLiteStatement insert = statements.get(noteTable.INSERT);
+        StatementCache.bindText(insert, 1, username);
+        StatementCache.bindText(insert, 2, title);
+        StatementCache.bindText(insert, 3, body);
+        insert.bindLong(4, dateCreated);
+        insert.bindLong(5, dateLastUpdated);
 
-        return db.insert(noteTable.TABLE, null, values);
+        long id;
+        try {
+            id = insert.executeInsert();
+        }
+        catch (Exception e) {
+            return -1;
+        }
+        if (id != -1) {
+            DataChanges.publish(DataChanges.Table.NOTES, username, DataChanges.Kind.INSERTED, id);
+        }
+        return id;
     }
 
     /**
-     * Gets all notes for the user, ordered by newest first.
+     * Gets all notes for the user with their full body, ordered by newest first.
+     * Used for exports, the list reads pages with only the preview.
      *
      * @param username The username to look up.
-     * @return A Cursor pointing to the users notes record.
+     * @return A Cursor with title, body, dateCreated and dateLastUpdated.
      */
     public Cursor getUserNotes(String username) {
-        SQLiteDatabase db = getReadableDatabase();
+        return getReadableDatabase().rawQuery(userNotesQuery(), new String[]{username});
+    }
 
-        String sql = "SELECT * FROM " + noteTable.TABLE +
+    /**
+     * Builds the query for getUserNotes.
+     * It orders by the same value as Sort.UPDATED so the rows are read in
+     * order from that index instead of being sorted.
+     *
+     * @return the query, with ? for the username
+     */
+    static String userNotesQuery() {
+        return "SELECT " + noteTable.col_title + ", " + noteTable.col_body + ", " +
+                noteTable.col_dateCreated + ", " + noteTable.col_dateLastUpdated + " FROM " + noteTable.TABLE +
                 " WHERE " + noteTable.col_username + " = ?" +
-                " ORDER BY " + noteTable.col_dateLastUpdated + " DESC";
+                " ORDER BY " + Sort.UPDATED.column + " DESC, " + noteTable.col_id + " DESC";
+    }
+
+    /**
+     * Gets when each of the users notes was made, used to skip notes that were already imported.
+     *
+     * @param username The username to look up.
+     * @return A Cursor with dateCreated only.
+     */
+    public Cursor getUserNoteDates(String username) {
+        SQLiteDatabase db = getReadableDatabase();
+
+        String sql = "SELECT " + noteTable.col_dateCreated + " FROM " + noteTable.TABLE +
+                " WHERE " + noteTable.col_username + " = ?";
 
         return db.rawQuery(sql, new String[]{username});
     }
 
+    /**
+     * Gets one page of notes for the user in a sort order, starting next to an anchor note.
+     * The anchor is found by its sort value and ID instead of an offset,
+     * so a page deep in the list costs the same as the first page.
+     *
+     * @param username The username to look up.
+     * @param sort The order of the list.
+     * @param anchorKey The sort value of the anchor note, see sortKey.
+     * @param anchorId The ID of the anchor note.
+     * @param forward true for notes after the anchor in the list, false for notes before it.
+     * @param inclusive true to include the anchor note itself.
+     * @param limit The most rows to return.
+     * @return A Cursor with _id, title, preview, dateCreated and dateLastUpdated. Rows before
+     * the anchor come back closest to the anchor first, which is the reverse of list order.
+     */
+    public Cursor getUserNotesPage(String username, Sort sort, String anchorKey, int anchorId,
+                                   boolean forward, boolean inclusive, int limit) {
+        return getReadableDatabase().rawQuery(pageQuery(sort, forward, inclusive, limit),
+                new String[]{username, anchorKey, String.valueOf(anchorId)});
+    }
+
+    /**
+     * Builds the query for a page next to an anchor note, see getUserNotesPage.
+     *
+     * @param sort The order of the list.
+     * @param forward true for notes after the anchor in the list, false for notes before it.
+     * @param inclusive true to include the anchor note itself.
+     * @param limit The most rows to return.
+     * @return the query, with ?1 for the username, ?2 for the anchor key and ?3 for the anchor ID
+     */
+    static String pageQuery(Sort sort, boolean forward, boolean inclusive, int limit) {
+        // Reading down the index for a newest first list, up it for oldest first
+        boolean down = forward == sort.descending;
+        String bound = down ? " <= " : " >= ";
+        String compare = down ? (inclusive ? " <= " : " < ") : (inclusive ? " >= " : " > ");
+        String direction = down ? " DESC" : " ASC";
+
+        // The plain bound on the sort column lets SQLite jump into the index, the pair picks the exact row
+        return "SELECT " + noteTable.LIST_COLUMNS + " FROM " + noteTable.TABLE +
+                " WHERE " + noteTable.col_username + " = ?1" +
+                " AND " + sort.column + bound + sort.anchor +
+                " AND (" + sort.column + ", " + noteTable.col_id + ")" + compare + "(" + sort.anchor + ", ?3)" +
+                " ORDER BY " + sort.column + direction + ", " + noteTable.col_id + direction +
+                " LIMIT " + limit;
+    }
+
+    /**
+     * Gets the first page of notes for the user in a sort order.
+     *
+     * @param username The username to look up.
+     * @param sort The order of the list.
+     * @param limit The most rows to return.
+     * @return A Cursor with _id, title, preview, dateCreated and dateLastUpdated.
+     */
+    public Cursor getUserNotesPage(String username, Sort sort, int limit) {
+        return getReadableDatabase().rawQuery(firstPageQuery(sort, limit), new String[]{username});
+    }
+
+    /**
+     * Builds the query for the first page, see getUserNotesPage.
+     *
+     * @param sort The order of the list.
+     * @param limit The most rows to return.
+     * @return the query, with ? for the username
+     */
+    static String firstPageQuery(Sort sort, int limit) {
+        String direction = sort.descending ? " DESC" : " ASC";
+
+        return "SELECT " + noteTable.LIST_COLUMNS + " FROM " + noteTable.TABLE +
+                " WHERE " + noteTable.col_username + " = ?" +
+                " ORDER BY " + sort.column + direction + ", " + noteTable.col_id + direction +
+                " LIMIT " + limit;
+    }
+
+    /**
+     * Gets the value a note is sorted by, for use as a page anchor.
+     *
+     * @param note The note.
+     * @param sort The order of the list.
+     * @return The sort value as text.
+     */
+    public static String sortKey(NoteEntry note, Sort sort) {
+        switch (sort) {
+            case CREATED:
+                return String.valueOf(note.getDateCreated());
+            case TITLE:
+                return note.getTitle() == null ? "" : note.getTitle();
+            default:
+                return String.valueOf(note.getDateLastUpdated());
+        }
+    }
+
+    /**
+     * Finds the users notes that match a search, with the numbers needed to rank them.
+     *
+     * @param username The username to look up.
+     * @param match The full-text query, like "walk* run*".
+     * @return A Cursor with _id and a matchinfo blob made with "pcnalx".
+     */
+    public Cursor getSearchMatches(String username, String match) {
+        return getReadableDatabase().rawQuery(searchMatchesQuery(), new String[]{match, username});
+    }
+
+    /**
+     * Builds the query for getSearchMatches.
+     * CROSS JOIN makes SQLite run the search once and look up each match by ID.
+     * Without it SQLite can start from the users notes in a sort index and
+     * run the search again for every note.
+     *
+     * @return the query, with ? for the search then the username
+     */
+    static String searchMatchesQuery() {
+        return "SELECT n." + noteTable.col_id + ", matchinfo(" + searchTable.TABLE + ", 'pcnalx') AS matchinfo" +
+                " FROM " + searchTable.TABLE +
+                " CROSS JOIN " + noteTable.TABLE + " n ON n." + noteTable.col_id + " = " + searchTable.TABLE + "." + searchTable.col_docid +
+                " WHERE " + searchTable.TABLE + " MATCH ?" +
+                " AND n." + noteTable.col_username + " = ?";
+    }
+
+    /**
+     * Gets matching notes by ID with the matched words marked.
+     * Each matched word is put between start and end.
+     *
+     * @param match The same full-text query used to find the IDs.
+     * @param ids The IDs of the notes to read.
+     * @param start Text put before each matched word.
+     * @param end Text put after each matched word.
+     * @return A Cursor with _id, title, preview, dateCreated, dateLastUpdated, titleMatch and bodyMatch, in no set order.
+     */
+    public Cursor getSearchResults(String match, int[] ids, String start, String end) {
+        SQLiteDatabase db = getReadableDatabase();
+
+        StringBuilder idList = new StringBuilder();
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) idList.append(',');
+            idList.append(ids[i]);
+        }
+
+        String sql = "SELECT n." + noteTable.col_id + ", n." + noteTable.col_title + ", n." + noteTable.col_preview +
+                ", n." + noteTable.col_dateCreated + ", n." + noteTable.col_dateLastUpdated +
+                ", snippet(" + searchTable.TABLE + ", ?, ?, '...', 0, 64) AS titleMatch" +
+                ", snippet(" + searchTable.TABLE + ", ?, ?, '...', 1, 16) AS bodyMatch" +
+                " FROM " + searchTable.TABLE +
+                " CROSS JOIN " + noteTable.TABLE + " n ON n." + noteTable.col_id + " = " + searchTable.TABLE + "." + searchTable.col_docid +
+                " WHERE " + searchTable.TABLE + " MATCH ?" +
+                " AND " + searchTable.TABLE + "." + searchTable.col_docid + " IN (" + idList + ")";
+
+        return db.rawQuery(sql, new String[]{start, end, start, end, match});
+    }
+
+    /**
+     * Reads the full body of one note, for when it is opened to edit.
+     *
+     * @param id The ID of the note.
+     * @return The body, or null if there is no such note.
+     */
+    public synchronized String getNoteBody(int id) {
+        SQLiteStatement body = statements.get(noteTable.BODY);
+        body.bindLong(1, id);
+        try {
+            return body.simpleQueryForString();
+        }
+        catch (Exception ignore) {
+            return null;
+        }
+    }
+
     /**
      * Deletes a note by ID.
      *
      * @param id The ID of the entry to delete.
      */
-    public void deleteNote(int id) {
-        SQLiteDatabase db = getWritableDatabase();
-        db.delete(noteTable.TABLE, noteTable.col_id + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+    public synchronized void deleteNote(int id) {
+        String owner = ownerOf(id);
+        SQLiteStatement delete = statements.get(noteTable.DELETE);
+        delete.bindLong(1, id);
+        if (delete.executeUpdateDelete() > 0) {
+            DataChanges.publish(DataChanges.Table.NOTES, owner, DataChanges.Kind.DELETED, id);
+        }
     }
 
     /**
@@ -125,19 +588,36 @@ public class NotesDatabase extends SQLiteOpenHelper {
      * @param body The body of the note to update
      * @return true if the update worked, false if it didn't.
      */
-    public boolean updateNote(int id, String title, String body) {
+    public synchronized boolean updateNote(int id, String title, String body) {
         long timestamp = System.currentTimeMillis();
-        SQLiteDatabase db = getWritableDatabase();
-
-        ContentValues values = new ContentValues();
-        values.put(noteTable.col_title, title);
-        values.put(noteTable.col_body, body);
-        values.put(noteTable.col_dateLastUpdated, timestamp);
+        SQLiteStatement update = statements.get(noteTable.UPDATE);
+        StatementCache.bindText(update, 1, title);
+        StatementCache.bindText(update, 2, body);
+        update.bindLong(3, timestamp);
+        update.bindLong(4, id);
 
-        int rows = db.update(noteTable.TABLE, values, noteTable.col_id + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+        boolean updated = update.executeUpdateDelete() > 0;
+        if (updated) {
+            DataChanges.publish(DataChanges.Table.NOTES, ownerOf(id), DataChanges.Kind.UPDATED, id);
+        }
+        return updated;
+    }
 
-        return rows > 0;
+    /**
+     * Finds the user a note belongs to, so a change by ID can say whose it was.
+     *
+     * @param id The ID of the note.
+     * @return The username, or null if there is no such note.
+     */
+    private String ownerOf(int id) {
+        SQLiteStatement owner = statements.get(noteTable.OWNER);
+        owner.bindLong(1, id);
+        try {
+            return owner.simpleQueryForString();
+        }
+        catch (Exception ignore) {
+            return null;
+        }
     }
 
 
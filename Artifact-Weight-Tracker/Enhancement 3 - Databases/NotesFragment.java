@@ -1,37 +1,53 @@
 package com.weighttracker.app.ui.notes;
 
 import android.app.AlertDialog;
-import android.content.Context;
-import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.os.Bundle;
+import android.view.Gravity;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.PopupMenu;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.widget.SearchView;
+import androidx.core.view.MenuProvider;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.ViewModelProvider;
 
+import com.weighttracker.app.R;
 import com.weighttracker.app.data.NotesDatabase;
 import com.weighttracker.app.databinding.FragmentNotesBinding;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.weighttracker.app.util.BackgroundLoader;
+import com.weighttracker.app.util.PagedWindow;
 
 import model.NoteEntry;
 
 /**
- * Shows the users notes and lets them add, edit, and delete.
+ * Shows the users notes and lets them add, edit, delete, search, and sort.
  *
  */
 public class NotesFragment extends Fragment implements AddNoteDialogFragment.AddNoteDialogListener {
 
     private FragmentNotesBinding binding;
-    private final List<NoteEntry> noteList = new ArrayList<>();
+    private NotesViewModel viewModel;
     private NotesAdapter adapter;
     private NotesDatabase noteDb;
-    private static final String PREFS = "myprefs";
-    private static final String KEY_USERNAME = "logged_in_username";
+    private PagedWindow<NoteEntry> window;
+
+    // Moves the "minutes ago" times along while the screen is showing
+    private final Runnable refreshTimes = new Runnable() {
+        @Override
+        public void run() {
+            if (binding != null) {
+                adapter.refreshTimes();
+                binding.notesList.postDelayed(this, NotesAdapter.TIME_REFRESH_MS);
+            }
+        }
+    };
 
     /**
      * Builds the screen and hooks up the list.
@@ -49,12 +65,15 @@ public class NotesFragment extends Fragment implements AddNoteDialogFragment.Add
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         binding = FragmentNotesBinding.inflate(inflater, container, false);
-        noteDb = new NotesDatabase(requireContext());
 
-        loadNotes();
+        // Notes and search are kept by the view model, so a rotation reads nothing
+        viewModel = new ViewModelProvider(this).get(NotesViewModel.class);
+        viewModel.init(requireContext());
+        noteDb = viewModel.getNotesDatabase();
+        window = viewModel.getWindow();
 
         // list setup
-        adapter = new NotesAdapter(noteList, new NotesAdapter.NoteItemActionListener() {
+        adapter = new NotesAdapter(viewModel.noteList, new NotesAdapter.NoteItemActionListener() {
             @Override
             public void onEditRequested(NoteEntry note) {
                 AddNoteDialogFragment dialog = AddNoteDialogFragment.newInstance(note);
@@ -70,6 +89,31 @@ public class NotesFragment extends Fragment implements AddNoteDialogFragment.Add
         // Attach adapter
         binding.notesList.setAdapter(adapter);
 
+        // First page only the first time, after a rotation the notes are already here
+        window.attach(binding.notesList, adapter);
+        window.setOnChangedListener(this::showEmptyText);
+        if (window.isStarted()) {
+            showEmptyText();
+        } else {
+            window.loadFirst();
+        }
+
+        // Search as the user types
+        binding.notesSearch.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String text) {
+                searchFor(text);
+                binding.notesSearch.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String text) {
+                searchFor(text);
+                return true;
+            }
+        });
+
         // Add note
         binding.fabAddNote.setOnClickListener(v -> {
             AddNoteDialogFragment dialog = new AddNoteDialogFragment();
@@ -77,47 +121,100 @@ public class NotesFragment extends Fragment implements AddNoteDialogFragment.Add
             dialog.show(getParentFragmentManager(), "AddNoteDialog");
         });
 
+        // Popup menu for sorting
+        requireActivity().addMenuProvider(new MenuProvider() {
+            @Override
+            public void onCreateMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
+                inflater.inflate(R.menu.notes_menu, menu);
+            }
+
+            @Override
+            public boolean onMenuItemSelected(@NonNull MenuItem item) {
+                if (item.getItemId() == R.id.menu_notes_sort) {
+                    showSortMenu();
+                    return true;
+                }
+                return false;
+            }
+        }, getViewLifecycleOwner(), Lifecycle.State.RESUMED);
+
         return binding.getRoot();
     }
 
     /**
-     * Loads the notes for the user and refreshes the list.
+     * Starts updating the note times when the screen shows.
+     */
+    @Override
+    public void onStart() {
+        super.onStart();
+        binding.notesList.removeCallbacks(refreshTimes);
+        binding.notesList.postDelayed(refreshTimes, NotesAdapter.TIME_REFRESH_MS);
+    }
+
+    /**
+     * Stops updating the note times when the screen is hidden.
+     */
+    @Override
+    public void onStop() {
+        super.onStop();
+        binding.notesList.removeCallbacks(refreshTimes);
+    }
+
+    /**
+     * Starts a new search after a short wait, or goes back to all notes if text is empty.
+     *
+     * @param text what the user typed
+     */
+    private void searchFor(String text) {
+        viewModel.searchFor(text.trim());
+    }
+
+    /**
+     * Opens the sort choices near the top of the screen with the current one checked.
      */
-    private void loadNotes() {
-        int oldSize = noteList.size();
-
-        List<NoteEntry> newList = new ArrayList<>();
-        SharedPreferences prefs = requireActivity().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        String username = prefs.getString(KEY_USERNAME, "");
-
-        try (Cursor cursor = noteDb.getUserNotes(username)) {
-            int idIdx = cursor.getColumnIndexOrThrow("_id");
-            int titleIdx = cursor.getColumnIndexOrThrow("title");
-            int bodyIdx  = cursor.getColumnIndexOrThrow("body");
-            int dateLastUpdatedIdx = cursor.getColumnIndexOrThrow("dateLastUpdated");
-
-            while (cursor.moveToNext()) {
-                newList.add(new NoteEntry(
-                        cursor.getInt(idIdx),
-                        cursor.getString(titleIdx),
-                        cursor.getString(bodyIdx),
-                        cursor.getLong(dateLastUpdatedIdx)
-                ));
+    private void showSortMenu() {
+        PopupMenu popup = new PopupMenu(requireContext(), binding.notesSearch, Gravity.END);
+        popup.getMenuInflater().inflate(R.menu.notes_sort_popup, popup.getMenu());
+
+        // Set current choice
+        NotesDatabase.Sort current = viewModel.getSort();
+        popup.getMenu().findItem(R.id.menu_notes_sort_updated).setChecked(current == NotesDatabase.Sort.UPDATED);
+        popup.getMenu().findItem(R.id.menu_notes_sort_created).setChecked(current == NotesDatabase.Sort.CREATED);
+        popup.getMenu().findItem(R.id.menu_notes_sort_title).setChecked(current == NotesDatabase.Sort.TITLE);
+
+        popup.setOnMenuItemClickListener(menuItem -> {
+            NotesDatabase.Sort chosen;
+            if (menuItem.getItemId() == R.id.menu_notes_sort_updated) {
+                chosen = NotesDatabase.Sort.UPDATED;
+            }
+            else if (menuItem.getItemId() == R.id.menu_notes_sort_created) {
+                chosen = NotesDatabase.Sort.CREATED;
+            }
+            else if (menuItem.getItemId() == R.id.menu_notes_sort_title) {
+                chosen = NotesDatabase.Sort.TITLE;
+            }
+            else {
+                return false;
             }
-        }
 
-        // Replace list
-        noteList.clear();
-        noteList.addAll(newList);
+            // Save and load the first page in the new order
+            menuItem.setChecked(true);
+            if (chosen != current) {
+                viewModel.setSort(chosen);
+            }
+            return true;
+        });
 
-        if (adapter != null) {
-            if (oldSize > 0) adapter.notifyItemRangeRemoved(0, oldSize);
-            if (!noteList.isEmpty()) adapter.notifyItemRangeInserted(0, noteList.size());
-        }
+        popup.show();
+    }
 
-        // Show or hide no notes text
+    /**
+     * Shows or hides the no notes text.
+     */
+    private void showEmptyText() {
         if (binding != null) {
-            binding.emptyNotes.setVisibility(noteList.isEmpty() ? View.VISIBLE : View.GONE);
+            binding.emptyNotes.setText(viewModel.getQuery().isEmpty() ? getString(R.string.no_notes) : getString(R.string.no_notes_match));
+            binding.emptyNotes.setVisibility(viewModel.noteList.isEmpty() ? View.VISIBLE : View.GONE);
         }
     }
 
@@ -131,12 +228,12 @@ public class NotesFragment extends Fragment implements AddNoteDialogFragment.Add
                 .setTitle("Delete Note")
                 .setMessage("Are you sure you want to delete this note?")
                 .setPositiveButton("Yes", (dialog, which) -> {
-                    noteDb.deleteNote(note.getId());
-                    int position = noteList.indexOf(note);
-                    if (position >= 0) {
-                        noteList.remove(position);
-                        adapter.notifyItemRemoved(position);
-                    }
+                    // Deleted in the background, the row is taken off the list when the delete is published
+                    NotesDatabase database = noteDb;
+                    BackgroundLoader.load(() -> {
+                        database.deleteNote(note.getId());
+                        return null;
+                    }, done -> {});
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
@@ -144,20 +241,23 @@ public class NotesFragment extends Fragment implements AddNoteDialogFragment.Add
 
     /**
      * Called after saving a note.
-     * Reloads the list.
+     * The save is published by the database, so the view model
+     * already updates the notes on screen.
      */
     @Override
     public void onNoteSaved() {
-        loadNotes();
+        // Nothing to do, see NotesViewModel.onDataChanged
     }
 
     /**
      * Runs when screen is destroyed.
-     * Clears the binding.
+     * Lets go of the list and clears the binding. The notes and any page
+     * still loading stay with the view model for the next view.
      */
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        window.detach();
         binding = null;
     }
 }
@@ -0,0 +1,242 @@
+package com.weighttracker.app.ui.notes;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.ViewModel;
+
+import com.weighttracker.app.data.AppDatabases;
+import com.weighttracker.app.data.DataChanges;
+import com.weighttracker.app.data.NoteSearch;
+import com.weighttracker.app.data.NotesDatabase;
+import com.weighttracker.app.data.UserSession;
+import com.weighttracker.app.util.PagedWindow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import model.NoteEntry;
+
+/**
+ * Holds what the notes list shows so it lives through a rotation.
+ * The notes in the window, the search text and the ranked search results
+ * stay here while the fragment and its views are made again, so turning
+ * the phone doesn't read the database or rank the search again.
+ * Changes to the notes are applied here too, so none are missed while
+ * the screen is being rebuilt.
+ */
+public class NotesViewModel extends ViewModel {
+
+    private static final int PAGE_SIZE = 30;
+    private static final int MAX_PAGES = 5;
+
+    // Wait for the user to stop typing before searching
+    private static final long SEARCH_DELAY_MS = 250;
+
+    // The rows the adapter shows
+    final List<NoteEntry> noteList = new ArrayList<>();
+
+    private NotesDatabase noteDb;
+    private String username;
+    private PagedWindow<NoteEntry> window;
+
+    // What the user searched for, read by the page loads in the background
+    private volatile String query = "";
+    private volatile NoteSearch search;
+
+    // Order of the list when not searching, search results are by rank
+    private UserSession session;
+    private volatile NotesDatabase.Sort sort = NotesDatabase.Sort.UPDATED;
+
+    private final DataChanges.Observer changeObserver = this::onDataChanged;
+
+    // Kept here and not on the list view, so a search typed just before a rotation still runs
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Runnable runSearch = () -> window.loadFirst();
+
+    /**
+     * Sets up the window the first time the screen is shown.
+     * Does nothing when the screen is only being made again.
+     *
+     * @param context Any context of the app.
+     */
+    void init(Context context) {
+        if (window != null) {
+            return;
+        }
+        noteDb = AppDatabases.notes(context);
+        session = UserSession.get(context);
+        username = session.getUsername();
+        sort = session.getNotesSort();
+
+        // Load notes a page at a time as the list scrolls
+        window = new PagedWindow<>(noteList,
+                (anchor, forward, inclusive, limit) -> loadPage(username, anchor, forward, inclusive, limit),
+                NoteDiffCallback::new, PAGE_SIZE, MAX_PAGES);
+
+        // Saves and deletes from anywhere update the rows they touched
+        DataChanges.observe(changeObserver);
+    }
+
+    PagedWindow<NoteEntry> getWindow() {
+        return window;
+    }
+
+    NotesDatabase getNotesDatabase() {
+        return noteDb;
+    }
+
+    String getQuery() {
+        return query;
+    }
+
+    NotesDatabase.Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * Changes the order of the list, saves it, and loads the first page in that order.
+     * Search results stay by rank, the new order shows when the search is cleared.
+     *
+     * @param value the new sort
+     */
+    void setSort(NotesDatabase.Sort value) {
+        sort = value;
+        session.setNotesSort(value);
+        if (query.isEmpty()) {
+            window.loadFirst();
+        }
+    }
+
+    /**
+     * Sets the search text and loads the first page after a short wait.
+     * The ranked results are dropped and that page ranks the notes again.
+     * Does nothing if the text didn't change.
+     *
+     * @param text the trimmed search text, or "" for all notes
+     */
+    void searchFor(String text) {
+        if (text.equals(query)) {
+            return;
+        }
+        query = text;
+        search = null;
+        main.removeCallbacks(runSearch);
+        main.postDelayed(runSearch, SEARCH_DELAY_MS);
+    }
+
+    /**
+     * Reads one page for the list, either all notes or search results.
+     * The search is ranked once on the first page and later pages reuse it.
+     * The text each row shows is built here too, so binding rows is cheap.
+     * Runs in the background.
+     *
+     * @param username the logged-in user
+     * @param anchor the note to start from, or null to start at the top
+     * @param forward true for notes after anchor, false for notes before it
+     * @param inclusive true to include anchor itself
+     * @param limit most notes to return
+     * @return the notes in list order
+     */
+    private List<NoteEntry> loadPage(String username, NoteEntry anchor, boolean forward, boolean inclusive, int limit) {
+        String text = query;
+        List<NoteEntry> page;
+        if (text.isEmpty()) {
+            page = readNotes(username, anchor, forward, inclusive, limit);
+        } else {
+            NoteSearch current = search;
+            if (anchor == null || current == null) {
+                current = NoteSearch.run(noteDb, username, text);
+                search = current;
+            }
+            page = current.loadPage(anchor, forward, inclusive, limit);
+        }
+        NotesAdapter.prepare(page);
+        return page;
+    }
+
+    /**
+     * Reads one page of notes for the user from the database.
+     * Runs in the background.
+     *
+     * @param username the logged-in user
+     * @param anchor the note to start from, or null to start at the top
+     * @param forward true for notes after anchor, false for notes before it
+     * @param inclusive true to include anchor itself
+     * @param limit most notes to return
+     * @return the notes in the chosen sort order
+     */
+    private List<NoteEntry> readNotes(String username, NoteEntry anchor, boolean forward, boolean inclusive, int limit) {
+        List<NoteEntry> newList = new ArrayList<>(limit);
+        NotesDatabase.Sort order = sort;
+
+        try (Cursor cursor = anchor == null
+                ? noteDb.getUserNotesPage(username, order, limit)
+                : noteDb.getUserNotesPage(username, order, NotesDatabase.sortKey(anchor, order), anchor.getId(),
+                        forward, inclusive, limit)) {
+            int idIdx = cursor.getColumnIndexOrThrow("_id");
+            int titleIdx = cursor.getColumnIndexOrThrow("title");
+            int previewIdx = cursor.getColumnIndexOrThrow("preview");
+            int dateCreatedIdx = cursor.getColumnIndexOrThrow("dateCreated");
+            int dateLastUpdatedIdx = cursor.getColumnIndexOrThrow("dateLastUpdated");
+
+            while (cursor.moveToNext()) {
+                newList.add(new NoteEntry(
+                        cursor.getInt(idIdx),
+                        cursor.getString(titleIdx),
+                        cursor.getString(previewIdx),
+                        cursor.getLong(dateCreatedIdx),
+                        cursor.getLong(dateLastUpdatedIdx)
+                ));
+            }
+        }
+
+        // Rows before the anchor come back closest first
+        if (anchor != null && !forward) {
+            Collections.reverse(newList);
+        }
+        return newList;
+    }
+
+    /**
+     * Updates the rows after a note of the user was saved or deleted.
+     * A deleted note is just taken out. Anything else reloads the notes
+     * in the window, and search results are ranked again since the saved
+     * note may now match better or worse.
+     *
+     * @param change what was written
+     */
+    private void onDataChanged(DataChanges.Change change) {
+        if (!change.isFor(DataChanges.Table.NOTES, username)) {
+            return;
+        }
+        if (change.kind == DataChanges.Kind.DELETED) {
+            for (int k = 0; k < noteList.size(); k++) {
+                if (noteList.get(k).getId() == change.rowId) {
+                    window.remove(k);
+                    break;
+                }
+            }
+        } else if (query.isEmpty()) {
+            window.refresh();
+        } else {
+            search = null;
+            window.loadFirst();
+        }
+    }
+
+    /**
+     * Called when the screen is gone for good, not just rotated.
+     */
+    @Override
+    protected void onCleared() {
+        DataChanges.remove(changeObserver);
+        main.removeCallbacks(runSearch);
+        if (window != null) {
+            window.cancel();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.weighttracker.app.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a window of a long list in memory and loads more pages as the
+ * user scrolls. Pages are found by the last row already loaded instead
+ * of an offset, so loading page 500 costs the same as loading page 1.
+ * Only a few pages are kept. Pages that scroll far off screen are
+ * dropped and loaded again if the user scrolls back.
+ *
+ * @param <T> the type of row in the list
+ */
+public class PagedWindow<T> {
+
+    /**
+     * Reads pages of rows in list order.
+     *
+     * @param <T> the type of row in the list
+     */
+    public interface PageSource<T> {
+        /**
+         * Loads up to limit rows next to anchor. Runs in the background.
+         *
+         * @param anchor the row to start from, or null to start at the top
+         * @param forward true for rows after anchor, false for rows before it
+         * @param inclusive true to include anchor itself
+         * @param limit most rows to return
+         * @return the rows in list order
+         */
+        List<T> loadPage(@Nullable T anchor, boolean forward, boolean inclusive, int limit);
+    }
+
+    /**
+     * Makes the DiffUtil callback used to compare two versions of the window.
+     *
+     * @param <T> the type of row in the list
+     */
+    public interface DiffFactory<T> {
+        DiffUtil.Callback create(List<T> oldList, List<T> newList);
+    }
+
+    private final List<T> items;
+    private final PageSource<T> source;
+    private final DiffFactory<T> diffFactory;
+    private final int pageSize;
+    private final int maxItems;
+
+    private RecyclerView.Adapter<?> adapter;
+    private Runnable onChanged;
+    private BackgroundLoader.Load pendingLoad;
+    private boolean loadingPage = false;
+    private boolean started = false;
+    private boolean hasMoreBefore = false;
+    private boolean hasMoreAfter = true;
+
+    // Goes up every time items is changed, so a diff made from an older window is not used
+    private int changes = 0;
+
+    /**
+     * Sets up a window over items. The same list should be given to the adapter.
+     *
+     * @param items the list the adapter shows
+     * @param source where pages are read from
+     * @param diffFactory compares two versions of the window on refresh
+     * @param pageSize rows per page
+     * @param maxPages most pages kept in memory at once
+     */
+    public PagedWindow(List<T> items, PageSource<T> source, DiffFactory<T> diffFactory, int pageSize, int maxPages) {
+        this.items = items;
+        this.source = source;
+        this.diffFactory = diffFactory;
+        this.pageSize = pageSize;
+        this.maxItems = pageSize * maxPages;
+    }
+
+    /**
+     * Connects the window to the list on screen and loads the next or
+     * previous page when the user scrolls near either end.
+     *
+     * @param list the RecyclerView showing the items
+     * @param adapter the adapter showing the items
+     */
+    public void attach(RecyclerView list, RecyclerView.Adapter<?> adapter) {
+        this.adapter = adapter;
+        list.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                RecyclerView.LayoutManager manager = recyclerView.getLayoutManager();
+                if (!(manager instanceof LinearLayoutManager)) return;
+
+                LinearLayoutManager linear = (LinearLayoutManager) manager;
+                int prefetch = pageSize / 2;
+                if (dy > 0 && linear.findLastVisibleItemPosition() >= items.size() - prefetch) {
+                    loadNext();
+                } else if (dy < 0 && linear.findFirstVisibleItemPosition() <= prefetch) {
+                    loadPrevious();
+                }
+            }
+        });
+    }
+
+    /**
+     * Lets go of the list on screen when its view is destroyed.
+     * The rows and any page still loading are kept, so a window held
+     * across a rotation can be attached to the new list with no reads.
+     */
+    public void detach() {
+        adapter = null;
+        onChanged = null;
+    }
+
+    /**
+     * Checks if the first page was ever asked for.
+     *
+     * @return false until loadFirst is called
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Sets something to run after the window changes, like showing an empty message.
+     *
+     * @param onChanged runs on the main thread after each change
+     */
+    public void setOnChangedListener(Runnable onChanged) {
+        this.onChanged = onChanged;
+    }
+
+    /**
+     * Throws away the window and loads the first page again.
+     * Used on first show and when the list order changes.
+     */
+    public void loadFirst() {
+        cancel();
+        started = true;
+        loadingPage = true;
+        pendingLoad = BackgroundLoader.load(() -> source.loadPage(null, true, false, pageSize), page -> {
+            loadingPage = false;
+
+            int oldSize = items.size();
+            items.clear();
+            items.addAll(page);
+            hasMoreBefore = false;
+            hasMoreAfter = page.size() == pageSize;
+
+            if (adapter != null) {
+                if (oldSize > 0) adapter.notifyItemRangeRemoved(0, oldSize);
+                if (!items.isEmpty()) adapter.notifyItemRangeInserted(0, items.size());
+            }
+            changed();
+        });
+    }
+
+    /**
+     * Loads the rows in the window again after something was saved.
+     * The window stays on the same rows and only rows that changed are redrawn.
+     */
+    public void refresh() {
+        cancel();
+        List<T> oldList = new ArrayList<>(items);
+        int expected = changes;
+        T first = hasMoreBefore && !oldList.isEmpty() ? oldList.get(0) : null;
+        int limit = Math.max(oldList.size(), pageSize);
+
+        loadingPage = true;
+        pendingLoad = BackgroundLoader.load(() -> {
+            List<T> newList = source.loadPage(first, true, first != null, limit);
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(diffFactory.create(oldList, newList));
+            return new Refresh<>(newList, diff);
+        }, refresh -> {
+            loadingPage = false;
+            if (expected != changes) {
+                // Window changed while loading, start over
+                loadFirst();
+                return;
+            }
+
+            items.clear();
+            items.addAll(refresh.items);
+            hasMoreAfter = refresh.items.size() == limit;
+            if (adapter != null) refresh.diff.dispatchUpdatesTo(adapter);
+            changed();
+        });
+    }
+
+    /**
+     * Loads the page after the last row in the window.
+     */
+    public void loadNext() {
+        if (loadingPage || !hasMoreAfter || items.isEmpty()) return;
+
+        T last = items.get(items.size() - 1);
+        int expected = changes;
+        loadingPage = true;
+        pendingLoad = BackgroundLoader.load(() -> source.loadPage(last, true, false, pageSize), page -> {
+            loadingPage = false;
+            if (expected != changes) return;
+
+            hasMoreAfter = page.size() == pageSize;
+            if (page.isEmpty()) return;
+
+            int start = items.size();
+            items.addAll(page);
+            if (adapter != null) adapter.notifyItemRangeInserted(start, page.size());
+
+            // Drop rows from the top that are far off screen
+            int extra = items.size() - maxItems;
+            if (extra > 0) {
+                items.subList(0, extra).clear();
+                hasMoreBefore = true;
+                if (adapter != null) adapter.notifyItemRangeRemoved(0, extra);
+            }
+            changed();
+        });
+    }
+
+    /**
+     * Loads the page before the first row in the window.
+     */
+    public void loadPrevious() {
+        if (loadingPage || !hasMoreBefore || items.isEmpty()) return;
+
+        T first = items.get(0);
+        int expected = changes;
+        loadingPage = true;
+        pendingLoad = BackgroundLoader.load(() -> source.loadPage(first, false, false, pageSize), page -> {
+            loadingPage = false;
+            if (expected != changes) return;
+
+            hasMoreBefore = page.size() == pageSize;
+            if (page.isEmpty()) return;
+
+            items.addAll(0, page);
+            if (adapter != null) adapter.notifyItemRangeInserted(0, page.size());
+
+            // Drop rows from the bottom that are far off screen
+            int extra = items.size() - maxItems;
+            if (extra > 0) {
+                int start = items.size() - extra;
+                items.subList(start, items.size()).clear();
+                hasMoreAfter = true;
+                if (adapter != null) adapter.notifyItemRangeRemoved(start, extra);
+            }
+            changed();
+        });
+    }
+
+    /**
+     * Removes a row that was deleted.
+     *
+     * @param position where the row is in the window
+     */
+    public void remove(int position) {
+        items.remove(position);
+        if (adapter != null) adapter.notifyItemRemoved(position);
+        changed();
+    }
+
+    /**
+     * Stops any page that is still loading.
+     */
+    public void cancel() {
+        if (pendingLoad != null) {
+            pendingLoad.cancel();
+            pendingLoad = null;
+        }
+        loadingPage = false;
+    }
+
+    private void changed() {
+        changes++;
+        if (onChanged != null) onChanged.run();
+    }
+
+    /**
+     * Reloaded rows and how they differ from the window on screen.
+     */
+    private static class Refresh<T> {
+        final List<T> items;
+        final DiffUtil.DiffResult diff;
+
+        Refresh(List<T> items, DiffUtil.DiffResult diff) {
+            this.items = items;
+            this.diff = diff;
+        }
+    }
+}
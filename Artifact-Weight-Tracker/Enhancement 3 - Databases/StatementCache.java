@@ -0,0 +1,74 @@
+package com.weighttracker.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+
+/**
+ * Keeps the write statements of a database compiled so SQLite only
+ * parses each one once instead of on every write.
+ * A statement belongs to one open connection, so they are compiled
+ * again if the database is ever reopened.
+ * Not thread safe. The database using it should only call it from
+ * synchronized methods, since a statement can only be bound by one
+ * thread at a time.
+ */
+final class StatementCache {
+
+    private final SQLiteOpenHelper helper;
+    private final HashMap<String, SQLiteStatement> statements = new HashMap<>();
+    private SQLiteDatabase db;
+
+    /**
+     * Makes an empty cache for a database.
+     *
+     * @param helper the database the statements run on
+     */
+    StatementCache(SQLiteOpenHelper helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * Gets the compiled statement for sql with no values bound.
+     *
+     * @param sql the statement, with ? for each value
+     * @return the statement ready to bind
+     */
+    SQLiteStatement get(String sql) {
+        SQLiteDatabase current = helper.getWritableDatabase();
+        if (current != db) {
+            // New connection, the old statements can't be used on it
+            for (SQLiteStatement statement : statements.values()) {
+                statement.close();
+            }
+            statements.clear();
+            db = current;
+        }
+
+        SQLiteStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = current.compileStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearBindings();
+        }
+        return statement;
+    }
+
+    /**
+     * Binds text that may be null.
+     *
+     * @param statement the statement
+     * @param index the 1 based index of the value
+     * @param value the text, or null
+     */
+    static void bindText(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
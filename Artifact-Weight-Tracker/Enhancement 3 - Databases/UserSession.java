@@ -0,0 +1,187 @@
+package com.weighttracker.app.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Holds what the screens need to know about the logged in user:
+ * the username, the sort orders of the weight and notes lists, and the goal weight.
+ * Each one is read from disk once and then kept in memory, so redrawing
+ * a screen doesn't go back to the settings file or the goal database.
+ * The values are only read again after a change is reported.
+ */
+public final class UserSession {
+
+    private static final String PREFS = "myprefs";
+    private static final String KEY_USERNAME = "logged_in_username";
+    private static final String KEY_SORT_OLDEST_FIRST = "sort_oldest_first";
+    private static final String KEY_NOTES_SORT = "notes_sort";
+
+    // Goal value when the user hasn't set one
+    public static final float NO_GOAL = -1f;
+
+    private static UserSession instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    // null or NaN means not read yet
+    private String username;
+    private Boolean oldestFirst;
+    private NotesDatabase.Sort notesSort;
+    private float goal = Float.NaN;
+
+    // Kept in a field because the settings only hold a weak reference to it
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener = (changed, key) -> {
+        if (KEY_USERNAME.equals(key)) {
+            onUserChanged();
+        }
+    };
+
+    private UserSession(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = this.context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        // Login and logout write the username here, so a new user is picked up right away
+        prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+    }
+
+    /**
+     * Gets the session for the app.
+     *
+     * @param context Any context of the app.
+     * @return the shared session
+     */
+    public static synchronized UserSession get(Context context) {
+        if (instance == null) {
+            instance = new UserSession(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the logged in user.
+     *
+     * @return the username, or "" if nobody is logged in
+     */
+    public synchronized String getUsername() {
+        if (username == null) {
+            username = prefs.getString(KEY_USERNAME, "");
+        }
+        return username;
+    }
+
+    /**
+     * Gets the order the weight list is shown in.
+     *
+     * @return true for oldest first, false for newest first
+     */
+    public synchronized boolean isOldestFirst() {
+        if (oldestFirst == null) {
+            oldestFirst = prefs.getBoolean(KEY_SORT_OLDEST_FIRST, false);
+        }
+        return oldestFirst;
+    }
+
+    /**
+     * Saves the order the weight list is shown in.
+     *
+     * @param value true for oldest first, false for newest first
+     */
+    public synchronized void setOldestFirst(boolean value) {
+        oldestFirst = value;
+        prefs.edit().putBoolean(KEY_SORT_OLDEST_FIRST, value).apply();
+    }
+
+    /**
+     * Gets the order the notes list is shown in.
+     *
+     * @return the sort, last updated first if never set
+     */
+    public synchronized NotesDatabase.Sort getNotesSort() {
+        if (notesSort == null) {
+            notesSort = NotesDatabase.Sort.UPDATED;
+            try {
+                notesSort = NotesDatabase.Sort.valueOf(prefs.getString(KEY_NOTES_SORT, notesSort.name()));
+            }
+            catch (Exception ignore) {
+
+            }
+        }
+        return notesSort;
+    }
+
+    /**
+     * Saves the order the notes list is shown in.
+     *
+     * @param sort the sort
+     */
+    public synchronized void setNotesSort(NotesDatabase.Sort sort) {
+        notesSort = sort;
+        prefs.edit().putString(KEY_NOTES_SORT, sort.name()).apply();
+    }
+
+    /**
+     * Gets the goal weight of the logged in user.
+     * Only the first call reads the goal database, so the first call
+     * should be made in the background.
+     *
+     * @return goal weight in lbs, or NO_GOAL if not set
+     */
+    public float getGoalWeight() {
+        String user;
+        synchronized (this) {
+            if (!Float.isNaN(goal)) {
+                return goal;
+            }
+            user = getUsername();
+        }
+
+        // Read without holding the session so getUsername never waits on the database
+        float read = NO_GOAL;
+        try {
+            read = AppDatabases.goals(context).getGoalWeight(user);
+        }
+        catch (Exception ignore) {
+
+        }
+
+        synchronized (this) {
+            // Keep it only if the user and goal didn't change while reading
+            if (Float.isNaN(goal) && user.equals(username)) {
+                goal = read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Tells the session the goal was changed.
+     * Anything that saves a goal should call this. Screens showing the
+     * goal hear about it through DataChanges.
+     *
+     * @param newGoal the goal weight in lbs, or NO_GOAL if it was removed
+     */
+    public synchronized void onGoalChanged(float newGoal) {
+        goal = newGoal;
+        DataChanges.publish(DataChanges.Table.GOALS, getUsername(), DataChanges.Kind.UPDATED, DataChanges.NO_ROW);
+    }
+
+    /**
+     * Tells the session the goal may have changed without saying what to.
+     * The next call to getGoalWeight reads it again.
+     */
+    public synchronized void onGoalChanged() {
+        goal = Float.NaN;
+        DataChanges.publish(DataChanges.Table.GOALS, getUsername(), DataChanges.Kind.UPDATED, DataChanges.NO_ROW);
+    }
+
+    /**
+     * Forgets everything about the user, for when someone logs in or out.
+     */
+    public synchronized void onUserChanged() {
+        username = null;
+        oldestFirst = null;
+        notesSort = null;
+        goal = Float.NaN;
+    }
+}
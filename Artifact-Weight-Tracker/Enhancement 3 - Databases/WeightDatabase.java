@@ -0,0 +1,508 @@
+package com.weighttracker.app.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import com.weighttracker.app.util.EntryFormat;
+
+/**
+ * This sets up the database for saving weight entries for each user.
+ * Dates are saved as epoch days and weights as whole tenths of a pound,
+ * so nothing has to be parsed when reading and the database can do the sorting.
+ */
+public class WeightDatabase extends SQLiteOpenHelper {
+
+    // Name of the weight database and version number
+    private static final String DATABASE_NAME = "weights.db";
+    private static final int VERSION = 4;
+
+    // Write statements, compiled once and reused
+    private final StatementCache statements = new StatementCache(this);
+
+    /**
+     * Creates or opens the weight database.
+     * Use AppDatabases.weights to share one open copy instead of making a new one.
+     *
+     * @param context The context of the app using this database.
+     */
+    public WeightDatabase(Context context) {
+        super(context, DATABASE_NAME, null, VERSION);
+    }
+
+    /**
+     * Holds the table and column names for weights.
+     */
+    private static final class weightTable {
+        private static final String TABLE = "weights";
+        private static final String INDEX_USER_DATE = "weights_username_date";
+        private static final String col_id = "_id";
+        private static final String col_username = "username";
+        private static final String col_date = "date";
+        private static final String col_weight = "weight_tenths";
+        // Weight column before version 3, text before version 2 and lbs after
+        private static final String col_oldWeight = "weight";
+
+        private static final String INSERT = "insert into " + TABLE + " (" +
+                col_username + ", " + col_date + ", " + col_weight + ") values (?, ?, ?)";
+        private static final String UPDATE = "update " + TABLE + " set " +
+                col_date + " = ?, " + col_weight + " = ?" +
+                " where " + col_id + " = ?";
+        private static final String DELETE = "delete from " + TABLE + " where " + col_id + " = ?";
+        private static final String OWNER = "select " + col_username + " from " + TABLE + " where " + col_id + " = ?";
+    }
+
+    /**
+     * Weekly and monthly totals of a users weights, for zoomed out graphs.
+     * Each row is one week or month with the count, total, lowest and highest
+     * weight, so a year view reads a few dozen rows instead of every entry.
+     * Triggers on the weights table keep them up to date on every write.
+     */
+    public enum Rollup {
+        // Weeks start on Monday. Epoch day 0 was a Thursday, so +3 makes Monday 0.
+        WEEK("weights_weekly",
+                "(%1$s - ((%1$s + 3) %% 7 + 7) %% 7)",
+                "(%1$s - ((%1$s + 3) %% 7 + 7) %% 7 + 7)"),
+        MONTH("weights_monthly",
+                "cast(julianday(date(%1$s * 86400, 'unixepoch', 'start of month')) - 2440587.5 as integer)",
+                "cast(julianday(date(%1$s * 86400, 'unixepoch', 'start of month', '+1 month')) - 2440587.5 as integer)");
+
+        final String table;
+        // SQL for the first day of the period a date is in, and the first day after it
+        private final String start;
+        private final String end;
+
+        Rollup(String table, String start, String end) {
+            this.table = table;
+            this.start = start;
+            this.end = end;
+        }
+
+        String startOf(String day) {
+            return String.format(start, day);
+        }
+
+        String endOf(String day) {
+            return String.format(end, day);
+        }
+    }
+
+    /**
+     * Holds the column names for the rollup tables.
+     */
+    private static final class rollupTable {
+        private static final String col_username = "username";
+        private static final String col_period = "period";
+        private static final String col_count = "count";
+        private static final String col_total = "total";
+        private static final String col_min = "min_tenths";
+        private static final String col_max = "max_tenths";
+        private static final String COLUMNS = col_username + ", " + col_period + ", " + col_count + ", " +
+                col_total + ", " + col_min + ", " + col_max;
+    }
+
+    /**
+     * Runs the first time the database is created.
+     * Sets up the table and the index used for sorting by date.
+     *
+     * @param db The database where the table will be created.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createTable(db);
+        createIndex(db);
+        createRollups(db);
+    }
+
+    /**
+     * Runs when the database version changes.
+     * Version 2 moves the dates from "M/d/yyyy" text to epoch days and the
+     * weights from "182.4 lbs" text to numbers. Version 3 saves weights as
+     * tenths of a pound instead of a real. Version 4 adds the weekly and
+     * monthly rollups. No entries are lost.
+     *
+     * @param db The database.
+     * @param oldVersion The previous version number.
+     * @param newVersion The new version number.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // Reads the text straight into tenths, so version 3 is done too
+            migrateToEpochDays(db);
+        } else if (oldVersion < 3) {
+            migrateToTenths(db);
+        }
+        if (oldVersion < 4) {
+            createRollups(db);
+        }
+    }
+
+    /**
+     * Creates the weights table.
+     *
+     * @param db The database.
+     */
+    private void createTable(SQLiteDatabase db) {
+        db.execSQL("create table " + weightTable.TABLE + " (" +
+                weightTable.col_id + " integer primary key autoincrement, " +
+                weightTable.col_username + " text, " +
+                weightTable.col_date + " integer, " +
+                weightTable.col_weight + " integer)");
+    }
+
+    /**
+     * Creates the index for looking up a users weights in date order.
+     *
+     * @param db The database.
+     */
+    private void createIndex(SQLiteDatabase db) {
+        db.execSQL("create index if not exists " + weightTable.INDEX_USER_DATE +
+                " on " + weightTable.TABLE + " (" +
+                weightTable.col_username + ", " + weightTable.col_date + ")");
+    }
+
+    /**
+     * Creates the rollup tables, fills them from the saved weights, and adds
+     * the triggers that keep them up to date.
+     * A write only redoes the week and month of the row it changed, read
+     * from the (username, date) index, so it stays cheap however long the
+     * history is. An update that moves an entry redoes both the old and new
+     * period. Entries with no user or a date that couldn't be read are left out.
+     *
+     * @param db The database.
+     */
+    private void createRollups(SQLiteDatabase db) {
+        for (Rollup rollup : Rollup.values()) {
+            db.execSQL("create table " + rollup.table + " (" +
+                    rollupTable.col_username + " text not null, " +
+                    rollupTable.col_period + " integer not null, " +
+                    rollupTable.col_count + " integer, " +
+                    rollupTable.col_total + " integer, " +
+                    rollupTable.col_min + " integer, " +
+                    rollupTable.col_max + " integer, " +
+                    "primary key (" + rollupTable.col_username + ", " + rollupTable.col_period + ")) without rowid");
+
+            String period = rollup.startOf(weightTable.col_date);
+            db.execSQL("insert into " + rollup.table + " (" + rollupTable.COLUMNS + ")" +
+                    " select " + weightTable.col_username + ", " + period + ", count(*), sum(" + weightTable.col_weight + "), " +
+                    "min(" + weightTable.col_weight + "), max(" + weightTable.col_weight + ")" +
+                    " from " + weightTable.TABLE +
+                    " where " + weightTable.col_username + " is not null and " + weightTable.col_date + " <> " + EntryFormat.INVALID_DAY +
+                    " group by " + weightTable.col_username + ", " + period);
+
+            String name = rollup.table;
+            String columns = weightTable.col_username + ", " + weightTable.col_date + ", " + weightTable.col_weight;
+            db.execSQL("create trigger " + name + "_ai after insert on " + weightTable.TABLE +
+                    rollupTrigger(rollup, "new"));
+            db.execSQL("create trigger " + name + "_ad after delete on " + weightTable.TABLE +
+                    rollupTrigger(rollup, "old"));
+            db.execSQL("create trigger " + name + "_au_old after update of " + columns + " on " + weightTable.TABLE +
+                    rollupTrigger(rollup, "old"));
+            db.execSQL("create trigger " + name + "_au_new after update of " + columns + " on " + weightTable.TABLE +
+                    rollupTrigger(rollup, "new"));
+        }
+    }
+
+    /**
+     * Builds the body of a trigger that redoes one rollup row from the weights table.
+     *
+     * @param rollup The rollup to keep up to date.
+     * @param row "new" or "old", the version of the changed row whose period is redone.
+     * @return the when and begin ... end part of the trigger
+     */
+    private static String rollupTrigger(Rollup rollup, String row) {
+        String user = row + "." + weightTable.col_username;
+        String day = row + "." + weightTable.col_date;
+        String start = rollup.startOf(day);
+
+        // No row is added back if the period has no entries left
+        return " when " + user + " is not null and " + day + " <> " + EntryFormat.INVALID_DAY + " begin " +
+                "delete from " + rollup.table + " where " + rollupTable.col_username + " = " + user +
+                " and " + rollupTable.col_period + " = " + start + "; " +
+                "insert into " + rollup.table + " (" + rollupTable.COLUMNS + ")" +
+                " select " + weightTable.col_username + ", " + start + ", count(*), sum(" + weightTable.col_weight + "), " +
+                "min(" + weightTable.col_weight + "), max(" + weightTable.col_weight + ")" +
+                " from " + weightTable.TABLE +
+                " where " + weightTable.col_username + " = " + user +
+                " and " + weightTable.col_date + " >= " + start +
+                " and " + weightTable.col_date + " < " + rollup.endOf(day) +
+                " group by " + weightTable.col_username + "; end";
+    }
+
+    /**
+     * Copies the old text rows into the new table.
+     * Dates that can't be read are kept and sort first, same as before.
+     *
+     * @param db The database.
+     */
+    private void migrateToEpochDays(SQLiteDatabase db) {
+        String oldTable = weightTable.TABLE + "_old";
+        db.execSQL("alter table " + weightTable.TABLE + " rename to " + oldTable);
+        createTable(db);
+
+        SQLiteStatement insert = db.compileStatement("insert into " + weightTable.TABLE + " (" +
+                weightTable.col_id + ", " + weightTable.col_username + ", " +
+                weightTable.col_date + ", " + weightTable.col_weight + ") values (?, ?, ?, ?)");
+
+        try (Cursor cursor = db.query(oldTable, null, null, null, null, null, null)) {
+            int idIdx = cursor.getColumnIndexOrThrow(weightTable.col_id);
+            int userIdx = cursor.getColumnIndexOrThrow(weightTable.col_username);
+            int dateIdx = cursor.getColumnIndexOrThrow(weightTable.col_date);
+            int wtIdx = cursor.getColumnIndexOrThrow(weightTable.col_oldWeight);
+
+            while (cursor.moveToNext()) {
+                insert.clearBindings();
+                insert.bindLong(1, cursor.getLong(idIdx));
+                String username = cursor.getString(userIdx);
+                if (username == null) {
+                    insert.bindNull(2);
+                } else {
+                    insert.bindString(2, username);
+                }
+                insert.bindLong(3, EntryFormat.toEpochDay(cursor.getString(dateIdx)));
+                insert.bindLong(4, EntryFormat.parseTenths(cursor.getString(wtIdx)));
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+
+        db.execSQL("drop table " + oldTable);
+        createIndex(db);
+    }
+
+    /**
+     * Moves version 2 weights in lbs to tenths of a pound.
+     * One statement copies every row, rounding to the nearest tenth.
+     *
+     * @param db The database.
+     */
+    private void migrateToTenths(SQLiteDatabase db) {
+        String oldTable = weightTable.TABLE + "_old";
+        db.execSQL("drop index if exists " + weightTable.INDEX_USER_DATE);
+        db.execSQL("alter table " + weightTable.TABLE + " rename to " + oldTable);
+        createTable(db);
+
+        db.execSQL("insert into " + weightTable.TABLE + " (" +
+                weightTable.col_id + ", " + weightTable.col_username + ", " +
+                weightTable.col_date + ", " + weightTable.col_weight + ")" +
+                " select " + weightTable.col_id + ", " + weightTable.col_username + ", " +
+                weightTable.col_date + ", cast(round(" + weightTable.col_oldWeight + " * 10) as integer)" +
+                " from " + oldTable);
+
+        db.execSQL("drop table " + oldTable);
+        createIndex(db);
+    }
+
+    /**
+     * Adds a new weight entry for the user.
+     *
+     * @param username The user who the entry belongs to.
+     * @param epochDay The date of the entry in days since 1/1/1970.
+     * @param tenths The weight in tenths of a pound.
+     * @return The row ID of the inserted entry, or -1 if it failed.
+     */
+    public synchronized long addWeight(String username, int epochDay, int tenths) {
+        SQLiteStatement insert = statements.get(weightTable.INSERT);
+        StatementCache.bindText(insert, 1, username);
+        insert.bindLong(2, epochDay);
+        insert.bindLong(3, tenths);
+
+        long id;
+        try {
+            id = insert.executeInsert();
+        }
+        catch (Exception e) {
+            return -1;
+        }
+        if (id != -1) {
+            DataChanges.publish(DataChanges.Table.WEIGHTS, username, DataChanges.Kind.INSERTED, id);
+        }
+        return id;
+    }
+
+    /**
+     * Adds a new weight entry from the text the user typed in.
+     *
+     * @param username The user who the entry belongs to.
+     * @param date The date as "M/d/yyyy".
+     * @param weight The weight, with or without " lbs".
+     * @return The row ID of the inserted entry, or -1 if it failed.
+     */
+    public long addWeight(String username, String date, String weight) {
+        return addWeight(username, EntryFormat.toEpochDay(date), EntryFormat.parseTenths(weight));
+    }
+
+    /**
+     * Gets all weights for the user in date order.
+     * Entries on the same date are ordered by ID so the order never changes.
+     *
+     * @param username The username to look up.
+     * @param oldestFirst true for oldest to newest, false for newest to oldest.
+     * @return A Cursor with _id, date (epoch day) and weight_tenths (tenths of a pound).
+     */
+    public Cursor getUserWeights(String username, boolean oldestFirst) {
+        SQLiteDatabase db = getReadableDatabase();
+        String direction = oldestFirst ? " ASC" : " DESC";
+
+        String sql = "SELECT " + weightTable.col_id + ", " + weightTable.col_date + ", " + weightTable.col_weight +
+                " FROM " + weightTable.TABLE +
+                " WHERE " + weightTable.col_username + " = ?" +
+                " ORDER BY " + weightTable.col_date + direction + ", " + weightTable.col_id + direction;
+
+        return db.rawQuery(sql, new String[]{username});
+    }
+
+    /**
+     * Gets all weights for the user, oldest first.
+     *
+     * @param username The username to look up.
+     * @return A Cursor with _id, date (epoch day) and weight_tenths (tenths of a pound).
+     */
+    public Cursor getUserWeights(String username) {
+        return getUserWeights(username, true);
+    }
+
+    /**
+     * Gets one page of weights for the user in list order, starting next to an anchor entry.
+     * The anchor is found by its date and ID through the (username, date) index,
+     * so a page deep in the history costs the same as the first page.
+     *
+     * @param username The username to look up.
+     * @param oldestFirst The list order, true for oldest to newest.
+     * @param anchorDay The date of the anchor entry.
+     * @param anchorId The ID of the anchor entry.
+     * @param forward true for entries after the anchor in list order, false for entries before it.
+     * @param inclusive true to include the anchor entry itself.
+     * @param limit The most rows to return.
+     * @return A Cursor with _id, date and weight_tenths. Rows before the anchor come back
+     * closest to the anchor first, which is the reverse of list order.
+     */
+    public Cursor getUserWeightsPage(String username, boolean oldestFirst, int anchorDay, int anchorId,
+                                     boolean forward, boolean inclusive, int limit) {
+        SQLiteDatabase db = getReadableDatabase();
+        boolean ascending = oldestFirst == forward;
+        String compare = ascending ? (inclusive ? " >= " : " > ") : (inclusive ? " <= " : " < ");
+        String direction = ascending ? " ASC" : " DESC";
+
+        String sql = "SELECT " + weightTable.col_id + ", " + weightTable.col_date + ", " + weightTable.col_weight +
+                " FROM " + weightTable.TABLE +
+                " WHERE " + weightTable.col_username + " = ?" +
+                " AND (" + weightTable.col_date + ", " + weightTable.col_id + ")" + compare + "(?, ?)" +
+                " ORDER BY " + weightTable.col_date + direction + ", " + weightTable.col_id + direction +
+                " LIMIT " + limit;
+
+        return db.rawQuery(sql, new String[]{username, String.valueOf(anchorDay), String.valueOf(anchorId)});
+    }
+
+    /**
+     * Gets the first page of weights for the user in list order.
+     *
+     * @param username The username to look up.
+     * @param oldestFirst The list order, true for oldest to newest.
+     * @param limit The most rows to return.
+     * @return A Cursor with _id, date and weight_tenths.
+     */
+    public Cursor getUserWeightsPage(String username, boolean oldestFirst, int limit) {
+        SQLiteDatabase db = getReadableDatabase();
+        String direction = oldestFirst ? " ASC" : " DESC";
+
+        String sql = "SELECT " + weightTable.col_id + ", " + weightTable.col_date + ", " + weightTable.col_weight +
+                " FROM " + weightTable.TABLE +
+                " WHERE " + weightTable.col_username + " = ?" +
+                " ORDER BY " + weightTable.col_date + direction + ", " + weightTable.col_id + direction +
+                " LIMIT " + limit;
+
+        return db.rawQuery(sql, new String[]{username});
+    }
+
+    /**
+     * Gets the weekly or monthly rollup of the users weights, oldest first.
+     *
+     * @param username The username to look up.
+     * @param rollup Weeks or months.
+     * @return A Cursor with period (first epoch day of the week or month),
+     * count, total, min_tenths and max_tenths.
+     */
+    public Cursor getUserRollup(String username, Rollup rollup) {
+        SQLiteDatabase db = getReadableDatabase();
+
+        String sql = "SELECT " + rollupTable.col_period + ", " + rollupTable.col_count + ", " + rollupTable.col_total + ", " +
+                rollupTable.col_min + ", " + rollupTable.col_max +
+                " FROM " + rollup.table +
+                " WHERE " + rollupTable.col_username + " = ?" +
+                " ORDER BY " + rollupTable.col_period + " ASC";
+
+        return db.rawQuery(sql, new String[]{username});
+    }
+
+    /**
+     * Updates a weight entry with new info.
+     *
+     * @param id The ID of the entry to update.
+     * @param epochDay The new date in days since 1/1/1970.
+     * @param tenths The new weight in tenths of a pound.
+     * @return true if the update worked, false if it didn't.
+     */
+    public synchronized boolean updateWeight(int id, int epochDay, int tenths) {
+        SQLiteStatement update = statements.get(weightTable.UPDATE);
+        update.bindLong(1, epochDay);
+        update.bindLong(2, tenths);
+        update.bindLong(3, id);
+
+        boolean updated = update.executeUpdateDelete() > 0;
+        if (updated) {
+            DataChanges.publish(DataChanges.Table.WEIGHTS, ownerOf(id), DataChanges.Kind.UPDATED, id);
+        }
+        return updated;
+    }
+
+    /**
+     * Updates a weight entry from the text the user typed in.
+     *
+     * @param id The ID of the entry to update.
+     * @param date The date as "M/d/yyyy".
+     * @param weight The weight, with or without " lbs".
+     * @return true if the update worked, false if it didn't.
+     */
+    public boolean updateWeight(int id, String date, String weight) {
+        return updateWeight(id, EntryFormat.toEpochDay(date), EntryFormat.parseTenths(weight));
+    }
+
+    /**
+     * Deletes a weight entry by ID.
+     *
+     * @param id The ID of the entry to delete.
+     * @return true if an entry was deleted, false if there was none with that ID.
+     */
+    public synchronized boolean deleteWeight(int id) {
+        String owner = ownerOf(id);
+        SQLiteStatement delete = statements.get(weightTable.DELETE);
+        delete.bindLong(1, id);
+        if (delete.executeUpdateDelete() == 0) {
+            return false;
+        }
+        DataChanges.publish(DataChanges.Table.WEIGHTS, owner, DataChanges.Kind.DELETED, id);
+        return true;
+    }
+
+    /**
+     * Finds the user an entry belongs to, so a change by ID can say whose it was.
+     *
+     * @param id The ID of the entry.
+     * @return The username, or null if there is no such entry.
+     */
+    private String ownerOf(int id) {
+        SQLiteStatement owner = statements.get(weightTable.OWNER);
+        owner.bindLong(1, id);
+        try {
+            return owner.simpleQueryForString();
+        }
+        catch (Exception ignore) {
+            return null;
+        }
+    }
+}
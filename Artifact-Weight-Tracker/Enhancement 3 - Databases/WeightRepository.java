@@ -0,0 +1,371 @@
+package com.weighttracker.app.data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.weighttracker.app.util.EntryFormat;
+import com.weighttracker.app.util.WeightStats;
+
+import model.WeightEntry;
+import model.WeightRollup;
+import model.WeightSeries;
+
+/**
+ * Keeps the logged in users weight entries in memory so every screen
+ * can share them. Reads come from memory and only go to the database
+ * when the data has changed. Writes go to the database first and then
+ * update the copy in memory.
+ * Entries with a date that couldn't be read are left out of it, so the
+ * graph and stats only see real dates. The paged list still shows them
+ * so they can be fixed.
+ * The entries are kept as a WeightSeries, a few number arrays instead
+ * of one object per entry.
+ * Writes made without this class, like from the add weight dialog,
+ * are heard through DataChanges and mark the entries as changed.
+ * Those changes are only queued on the main thread and looked at on
+ * the next read, so the main thread never waits for a load to finish.
+ */
+public class WeightRepository {
+
+    private static WeightRepository instance;
+
+    private final WeightDatabase weightDatabase;
+    private final String username;
+
+    // Entries oldest first. Never changed after it is made, writes swap in a new series.
+    private WeightSeries snapshot = WeightSeries.EMPTY;
+    private boolean dirty = true;
+    private int version = 0;
+
+    // Running stats for the snapshot, rebuilt only when an entry lands before the last one
+    private WeightStats stats;
+
+    // Weekly and monthly rollups by Rollup ordinal, and the version each was read at
+    private final WeightRollup[] rollups = new WeightRollup[WeightDatabase.Rollup.values().length];
+    private final int[] rollupVersions = new int[rollups.length];
+
+    // Changes this class made and already put in the snapshot, see changeKey
+    private final HashSet<Long> ownChanges = new HashSet<>();
+    // Changes heard on the main thread that haven't been checked against ownChanges yet
+    private final ConcurrentLinkedQueue<DataChanges.Change> heardChanges = new ConcurrentLinkedQueue<>();
+    private final DataChanges.Observer changeObserver = this::onDataChanged;
+
+    /**
+     * Makes a repository for one user.
+     *
+     * @param context The context of the app.
+     * @param username The user whose weights are kept.
+     */
+    private WeightRepository(Context context, String username) {
+        this.weightDatabase = AppDatabases.weights(context);
+        this.username = username;
+        DataChanges.observe(changeObserver);
+    }
+
+    /**
+     * Gets the repository for the user.
+     * A new one is made when a different user logs in.
+     *
+     * @param context The context of the app.
+     * @param username The logged in user.
+     * @return the shared repository for that user
+     */
+    public static synchronized WeightRepository get(Context context, String username) {
+        if (instance == null || !instance.username.equals(username)) {
+            if (instance != null) {
+                DataChanges.remove(instance.changeObserver);
+            }
+            instance = new WeightRepository(context, username);
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the users weight entries, oldest first.
+     * Only reads the database if something changed since the last read.
+     *
+     * @return a series that won't change, even if entries are added later
+     */
+    public synchronized WeightSeries getSeries() {
+        applyHeardChanges();
+        if (dirty) {
+            snapshot = load();
+            stats = null;
+            dirty = false;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets the users weight entries as a list, oldest first.
+     * Each entry is only made when it is read from the list.
+     *
+     * @return a list that won't change, even if entries are added later
+     */
+    public synchronized List<WeightEntry> getEntries() {
+        return getSeries().asList();
+    }
+
+    /**
+     * Gets the moving averages, trend and weekly rate for the users entries.
+     * New entries at the end are added to the stats as they are saved,
+     * so this only goes through every entry after an edit in the middle.
+     *
+     * @return a copy that won't change when entries are added later
+     */
+    public synchronized WeightStats getStats() {
+        WeightSeries series = getSeries();
+        if (stats == null) {
+            stats = WeightStats.of(series);
+        }
+        return stats.copy();
+    }
+
+    /**
+     * Gets the users weights grouped into weeks or months, oldest first.
+     * The database keeps these up to date on every write, so this reads a
+     * few dozen rows instead of every entry. Only reads again after a change.
+     *
+     * @param rollup weeks or months
+     * @return a rollup that won't change
+     */
+    public synchronized WeightRollup getRollup(WeightDatabase.Rollup rollup) {
+        applyHeardChanges();
+        int k = rollup.ordinal();
+        if (rollups[k] == null || rollupVersions[k] != version) {
+            rollups[k] = loadRollup(rollup);
+            rollupVersions[k] = version;
+        }
+        return rollups[k];
+    }
+
+    /**
+     * Reads one page of entries for a list on screen.
+     * Pages always come from the database so a long list never has to be
+     * loaded all at once.
+     *
+     * @param oldestFirst the list order, true for oldest to newest
+     * @param anchor the entry to start from, or null to start at the top
+     * @param forward true for entries after anchor, false for entries before it
+     * @param inclusive true to include anchor itself
+     * @param limit most entries to return
+     * @return the entries in list order
+     */
+    public List<WeightEntry> loadPage(boolean oldestFirst, WeightEntry anchor, boolean forward, boolean inclusive, int limit) {
+        ArrayList<WeightEntry> out = new ArrayList<>(limit);
+        try (Cursor cursor = anchor == null
+                ? weightDatabase.getUserWeightsPage(username, oldestFirst, limit)
+                : weightDatabase.getUserWeightsPage(username, oldestFirst, anchor.getEpochDay(), anchor.getId(), forward, inclusive, limit)) {
+            readEntries(cursor, out);
+        }
+
+        // Rows before the anchor come back closest first
+        if (anchor != null && !forward) {
+            Collections.reverse(out);
+        }
+        return out;
+    }
+
+    /**
+     * Gets a number that changes every time the entries change.
+     * Screens can compare it to skip redrawing when nothing changed.
+     *
+     * @return the current version
+     */
+    public synchronized int getVersion() {
+        applyHeardChanges();
+        return version;
+    }
+
+    /**
+     * Adds a weight entry and puts it in the right spot in memory.
+     *
+     * @param epochDay The date in days since 1/1/1970.
+     * @param tenths The weight in tenths of a pound.
+     * @return The row ID of the inserted entry, or -1 if it failed.
+     */
+    public synchronized long addWeight(int epochDay, int tenths) {
+        applyHeardChanges();
+        long id = weightDatabase.addWeight(username, epochDay, tenths);
+        if (id != -1) {
+            ownChanges.add(changeKey(DataChanges.Kind.INSERTED, id));
+            if (!dirty && epochDay != EntryFormat.INVALID_DAY) {
+                int position = snapshot.insertPosition(epochDay, (int) id);
+                snapshot = snapshot.withAdded((int) id, epochDay, tenths);
+
+                // Newest entry goes straight onto the stats, anything older means starting over
+                if (stats != null && (position != snapshot.size() - 1 || !stats.append(epochDay, tenths / 10f))) {
+                    stats = null;
+                }
+            }
+            version++;
+        }
+        return id;
+    }
+
+    /**
+     * Updates a weight entry and moves it if the date changed.
+     *
+     * @param id The ID of the entry to update.
+     * @param epochDay The new date in days since 1/1/1970.
+     * @param tenths The new weight in tenths of a pound.
+     * @return true if the update worked, false if it didn't.
+     */
+    public synchronized boolean updateWeight(int id, int epochDay, int tenths) {
+        applyHeardChanges();
+        boolean updated = weightDatabase.updateWeight(id, epochDay, tenths);
+        if (updated) {
+            ownChanges.add(changeKey(DataChanges.Kind.UPDATED, id));
+            if (!dirty) {
+                snapshot = epochDay == EntryFormat.INVALID_DAY
+                        ? snapshot.withRemoved(id)
+                        : snapshot.withUpdated(id, epochDay, tenths);
+                stats = null;
+            }
+            version++;
+        }
+        return updated;
+    }
+
+    /**
+     * Deletes a weight entry by ID.
+     *
+     * @param id The ID of the entry to delete.
+     * @return true if an entry was deleted, false if there was none with that ID.
+     */
+    public synchronized boolean deleteWeight(int id) {
+        applyHeardChanges();
+        boolean deleted = weightDatabase.deleteWeight(id);
+        if (deleted) {
+            ownChanges.add(changeKey(DataChanges.Kind.DELETED, id));
+            if (!dirty) {
+                WeightSeries next = snapshot.withRemoved(id);
+                if (next != snapshot) {
+                    snapshot = next;
+                    stats = null;
+                }
+            }
+            version++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Marks the entries as changed so the next read goes to the database.
+     * Used when something wrote to the weight table without this class.
+     */
+    public synchronized void invalidate() {
+        dirty = true;
+        version++;
+    }
+
+    /**
+     * Hears about writes to the weight table on the main thread.
+     * Doesn't lock, a background load can hold the lock for a while, so
+     * the change is only queued for applyHeardChanges.
+     *
+     * @param change what was written
+     */
+    private void onDataChanged(DataChanges.Change change) {
+        if (change.isFor(DataChanges.Table.WEIGHTS, username)) {
+            heardChanges.add(change);
+        }
+    }
+
+    /**
+     * Goes through the queued changes before a read or write.
+     * Changes this class made are already in memory, anything else means
+     * the entries have to be read again.
+     * Only called while holding the lock, so a write has always added its
+     * own change before the change can be checked here.
+     */
+    private void applyHeardChanges() {
+        DataChanges.Change change;
+        while ((change = heardChanges.poll()) != null) {
+            if (!ownChanges.remove(changeKey(change.kind, change.rowId))) {
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * Makes one number for a kind of change to a row.
+     *
+     * @param kind what happened
+     * @param rowId the row
+     * @return the key
+     */
+    private static long changeKey(DataChanges.Kind kind, long rowId) {
+        return rowId * 4 + kind.ordinal();
+    }
+
+    /**
+     * Reads the users weights from the database, oldest first.
+     * Each row goes straight into the arrays, no entry objects are made.
+     * Rows without a readable date sort first and are skipped.
+     *
+     * @return the entries
+     */
+    private WeightSeries load() {
+        try (Cursor cursor = weightDatabase.getUserWeights(username, true)) {
+            WeightSeries.Builder series = new WeightSeries.Builder(cursor.getCount());
+            int idIdx = cursor.getColumnIndexOrThrow("_id");
+            int dateIdx = cursor.getColumnIndexOrThrow("date");
+            int wtIdx = cursor.getColumnIndexOrThrow("weight_tenths");
+            while (cursor.moveToNext()) {
+                int day = cursor.getInt(dateIdx);
+                if (day != EntryFormat.INVALID_DAY) {
+                    series.add(cursor.getInt(idIdx), day, cursor.getInt(wtIdx));
+                }
+            }
+            return series.build();
+        }
+    }
+
+    /**
+     * Reads a rollup of the users weights from the database.
+     *
+     * @param rollup weeks or months
+     * @return the periods, oldest first
+     */
+    private WeightRollup loadRollup(WeightDatabase.Rollup rollup) {
+        try (Cursor cursor = weightDatabase.getUserRollup(username, rollup)) {
+            WeightRollup.Builder periods = new WeightRollup.Builder(cursor.getCount());
+            int periodIdx = cursor.getColumnIndexOrThrow("period");
+            int countIdx = cursor.getColumnIndexOrThrow("count");
+            int totalIdx = cursor.getColumnIndexOrThrow("total");
+            int minIdx = cursor.getColumnIndexOrThrow("min_tenths");
+            int maxIdx = cursor.getColumnIndexOrThrow("max_tenths");
+            while (cursor.moveToNext()) {
+                periods.add(cursor.getInt(periodIdx), cursor.getInt(countIdx), cursor.getLong(totalIdx),
+                        cursor.getInt(minIdx), cursor.getInt(maxIdx));
+            }
+            return periods.build();
+        }
+    }
+
+    /**
+     * Reads every row of a weights cursor into entries.
+     *
+     * @param cursor rows with _id, date and weight_tenths
+     * @param out where the entries are added
+     */
+    private static void readEntries(Cursor cursor, List<WeightEntry> out) {
+        int idIdx = cursor.getColumnIndexOrThrow("_id");
+        int dateIdx = cursor.getColumnIndexOrThrow("date");
+        int wtIdx = cursor.getColumnIndexOrThrow("weight_tenths");
+        while (cursor.moveToNext()) {
+            out.add(new WeightEntry(
+                    cursor.getInt(idIdx),
+                    cursor.getInt(dateIdx),
+                    cursor.getInt(wtIdx)
+            ));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.weighttracker.app.bench;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.github.mikephil.charting.data.Entry;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The sort, parse, graph and write code from before the enhancements,
+ * copied here so the new code has something to be measured against.
+ * Rows hold the date and weight as the text the app used to save.
+ * The writes are unchanged except for the column names, which are the
+ * ones the tables have now so both ways write the same rows.
+ * The merge sort is public so WeightSorterTest can check against it.
+ */
+public final class Baseline {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("M/d/yyyy", Locale.US);
+
+    private Baseline() {
+    }
+
+    /**
+     * A weight row as it used to be, all text.
+     */
+    public static final class Row {
+        public final String date;
+        public final String weight;
+
+        public Row(String date, String weight) {
+            this.date = date;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Makes the text rows of a log.
+     */
+    static Row[] rows(WeightLogs log) {
+        Row[] rows = new Row[log.dates.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Row(log.dates[i], log.weights[i]);
+        }
+        return rows;
+    }
+
+    /**
+     * GraphFragment.parseDate
+     */
+    static LocalDate parseDate(String s) {
+        try {
+            return LocalDate.parse(s, FORMATTER);
+        }
+        catch (Exception e) {
+            return LocalDate.MIN;
+        }
+    }
+
+    /**
+     * The float parsing in GraphFragment.setData.
+     */
+    static float parseWeight(String weight) {
+        float y = 0f;
+        try {
+            y = Float.parseFloat(weight.replace(" lbs", "").trim());
+        }
+        catch (Exception ignore) {
+
+        }
+        return y;
+    }
+
+    /**
+     * The sort in GraphFragment.getWeights, which parses both dates on every compare.
+     */
+    static void comparatorSort(List<Row> out) {
+        out.sort(Comparator.comparing(a -> parseDate(a.date)));
+    }
+
+    /**
+     * WeightFragment.mergeSort, a top down merge sort that copies each half.
+     */
+    public static List<Row> mergeSort(List<Row> arr) {
+        if (arr == null || arr.size() <= 1) {
+            return arr == null ? new ArrayList<>() : new ArrayList<>(arr);
+        }
+        int mid = arr.size() / 2;
+        List<Row> left = mergeSort(new ArrayList<>(arr.subList(0, mid)));
+        List<Row> right = mergeSort(new ArrayList<>(arr.subList(mid, arr.size())));
+        return merge(left, right);
+    }
+
+    private static List<Row> merge(List<Row> left, List<Row> right) {
+        ArrayList<Row> result = new ArrayList<>(left.size() + right.size());
+        int i = 0, j = 0;
+
+        while (i < left.size() && j < right.size()) {
+            LocalDate dateLeft = parseDate(left.get(i).date);
+            LocalDate dateRight = parseDate(right.get(j).date);
+
+            // Keep order when dates match
+            if (!dateLeft.isAfter(dateRight)) {
+                result.add(left.get(i++));
+            } else {
+                result.add(right.get(j++));
+            }
+        }
+        while (i < left.size()) result.add(left.get(i++));
+        while (j < right.size()) result.add(right.get(j++));
+        return result;
+    }
+
+    /**
+     * The points GraphFragment.setData built, one for every row.
+     */
+    static ArrayList<Entry> points(List<Row> list) {
+        ArrayList<String> dates = new ArrayList<>(list.size());
+        ArrayList<Entry> points = new ArrayList<>();
+        for (int i = 0; i < list.size(); i++) {
+            dates.add(list.get(i).date);
+            points.add(new Entry(i, parseWeight(list.get(i).weight)));
+        }
+        return points;
+    }
+
+    /**
+     * NotesDatabase.addNote, which built a ContentValues for every insert.
+     */
+    static long addNote(SQLiteDatabase db, String username, String title, String body, long timestamp) {
+        ContentValues values = new ContentValues();
+        values.put("username", username);
+        values.put("title", title);
+        values.put("body", body);
+        values.put("dateCreated", timestamp);
+        values.put("dateLastUpdated", timestamp);
+        values.put("preview", body.substring(0, Math.min(120, body.length())));
+
+        return db.insert("notes", null, values);
+    }
+
+    /**
+     * NotesDatabase.updateNote
+     */
+    static boolean updateNote(SQLiteDatabase db, int id, String title, String body, long timestamp) {
+        ContentValues values = new ContentValues();
+        values.put("title", title);
+        values.put("body", body);
+        values.put("dateLastUpdated", timestamp);
+        values.put("preview", body.substring(0, Math.min(120, body.length())));
+        int rows = db.update("notes", values, "_id = ?", new String[]{String.valueOf(id)});
+        return rows > 0;
+    }
+
+    /**
+     * WeightDatabase.addWeight
+     */
+    static long addWeight(SQLiteDatabase db, String username, int epochDay, int tenths) {
+        ContentValues values = new ContentValues();
+        values.put("username", username);
+        values.put("date", epochDay);
+        values.put("weight_tenths", tenths);
+
+        return db.insert("weights", null, values);
+    }
+
+    /**
+     * WeightDatabase.updateWeight
+     */
+    static boolean updateWeight(SQLiteDatabase db, int id, int epochDay, int tenths) {
+        ContentValues values = new ContentValues();
+        values.put("date", epochDay);
+        values.put("weight_tenths", tenths);
+        int rows = db.update("weights", values, "_id = ?", new String[]{String.valueOf(id)});
+        return rows > 0;
+    }
+
+    /**
+     * WeightDatabase.deleteWeight
+     */
+    static void deleteWeight(SQLiteDatabase db, int id) {
+        db.delete("weights", "_id = ?", new String[]{String.valueOf(id)});
+    }
+}
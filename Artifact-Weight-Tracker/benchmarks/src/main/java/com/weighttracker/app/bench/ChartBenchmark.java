@@ -0,0 +1,126 @@
+package com.weighttracker.app.bench;
+
+import com.github.mikephil.charting.data.Entry;
+import com.weighttracker.app.ui.graph.ChartDownsampler;
+import com.weighttracker.app.util.DateCodec;
+import com.weighttracker.app.util.EntryFormat;
+import com.weighttracker.app.util.WeightSorter;
+import com.weighttracker.app.util.WeightStats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.WeightSeries;
+
+/**
+ * Building the graph from a weight log, from the rows to the points drawn.
+ * The old graph parsed and sorted the text rows and made a point for every
+ * row. The new one reads the rows into a WeightSeries, works out the stats
+ * lines and only makes the points that fit on screen.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChartBenchmark {
+
+    // About the width of a phone screen in pixels
+    private static final int BUDGET = 1080;
+    // GraphFragment starts by showing 30 entries and keeping twice that
+    private static final int VISIBLE = 30;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"SORTED", "SHUFFLED"})
+    WeightLogs.Order order;
+
+    private Baseline.Row[] rows;
+    private String[] dates;
+    private String[] weights;
+    private int[] days;
+    private float[] pounds;
+    private WeightSeries series;
+    private final WeightSorter sorter = new WeightSorter();
+
+    @Setup
+    public void setUp() {
+        WeightLogs log = WeightLogs.make(size, order);
+        rows = Baseline.rows(log);
+        dates = log.dates;
+        weights = log.weights;
+        days = new int[size];
+
+        int[] sorted = new WeightSorter().sortedOrder(log.days, size, true);
+        WeightSeries.Builder builder = new WeightSeries.Builder(size);
+        pounds = new float[size];
+        for (int i = 0; i < size; i++) {
+            int row = sorted[i];
+            builder.add(row + 1, log.days[row], log.tenths[row]);
+            pounds[i] = log.tenths[row] / 10f;
+        }
+        series = builder.build();
+    }
+
+    @Benchmark
+    public List<Entry> baselineBuild() {
+        List<Baseline.Row> list = new ArrayList<>(Arrays.asList(rows));
+        Baseline.comparatorSort(list);
+        return Baseline.points(list);
+    }
+
+    @Benchmark
+    public List<Entry> build() {
+        for (int i = 0; i < size; i++) {
+            days[i] = DateCodec.parseMonthDayYear(dates[i]);
+        }
+        int[] sorted = sorter.sortedOrder(days, size, true);
+
+        WeightSeries.Builder builder = new WeightSeries.Builder(size);
+        for (int i = 0; i < size; i++) {
+            int row = sorted[i];
+            builder.add(row + 1, days[row], EntryFormat.parseTenths(weights[row]));
+        }
+        WeightSeries built = builder.build();
+
+        WeightStats stats = WeightStats.of(built);
+        float[] values = new float[built.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = built.getPounds(i);
+        }
+        List<Entry> points = ChartDownsampler.sample(values, 0, VISIBLE * 2, BUDGET);
+        ChartDownsampler.sample(stats.getTrend(), 0, VISIBLE * 2, BUDGET);
+        return points;
+    }
+
+    @Benchmark
+    public WeightStats stats() {
+        return WeightStats.of(series);
+    }
+
+    @Benchmark
+    public List<Entry> downsample() {
+        return ChartDownsampler.sample(pounds, 0, VISIBLE * 2, BUDGET);
+    }
+
+    @Benchmark
+    public int[] lttb() {
+        return ChartDownsampler.lttb(pounds, 0, size, BUDGET);
+    }
+}
@@ -0,0 +1,110 @@
+package com.weighttracker.app.bench;
+
+import com.weighttracker.app.util.DateCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One date read or written, DateCodec against java.time.
+ * Each call takes the next of a set of dates. A list being redrawn shows
+ * the same few dates again and again, so a small set is what the format
+ * cache is for. A large set misses the cache on every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateCodecBenchmark {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("M/d/yyyy", Locale.US);
+
+    // How many different dates are used, a power of two
+    @Param({"16", "4096"})
+    int dates;
+
+    private int[] days;
+    private LocalDate[] localDates;
+    private String[] monthDayYear;
+    private String[] iso;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        days = new int[dates];
+        localDates = new LocalDate[dates];
+        monthDayYear = new String[dates];
+        iso = new String[dates];
+
+        // Dates from 1990 to 2040 in no order
+        Random random = new Random(dates);
+        int start = (int) LocalDate.of(1990, 1, 1).toEpochDay();
+        for (int i = 0; i < dates; i++) {
+            days[i] = start + random.nextInt(365 * 50);
+            localDates[i] = LocalDate.ofEpochDay(days[i]);
+            monthDayYear[i] = localDates[i].format(FORMATTER);
+            iso[i] = localDates[i].toString();
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & (dates - 1);
+    }
+
+    @Benchmark
+    public long parseJavaTime() {
+        return LocalDate.parse(monthDayYear[next()], FORMATTER).toEpochDay();
+    }
+
+    @Benchmark
+    public int parse() {
+        return DateCodec.parseMonthDayYear(monthDayYear[next()]);
+    }
+
+    @Benchmark
+    public long parseIsoJavaTime() {
+        return LocalDate.parse(iso[next()]).toEpochDay();
+    }
+
+    @Benchmark
+    public int parseIso() {
+        return DateCodec.parseIso(iso[next()]);
+    }
+
+    @Benchmark
+    public String formatJavaTime() {
+        return LocalDate.ofEpochDay(days[next()]).format(FORMATTER);
+    }
+
+    @Benchmark
+    public String format() {
+        return DateCodec.formatMonthDayYear(days[next()]);
+    }
+
+    @Benchmark
+    public String formatIsoJavaTime() {
+        return LocalDate.ofEpochDay(days[next()]).toString();
+    }
+
+    @Benchmark
+    public String formatIso() {
+        return DateCodec.formatIso(days[next()]);
+    }
+}
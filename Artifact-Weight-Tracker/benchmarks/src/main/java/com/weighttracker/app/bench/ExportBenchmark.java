@@ -0,0 +1,172 @@
+package com.weighttracker.app.bench;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.weighttracker.app.data.AppDatabases;
+import com.weighttracker.app.data.DataExporter;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporting all of a users weights or notes, timed from the query to the
+ * last byte, with how much the heap grew while it ran.
+ * The file goes to a stream that only counts the bytes, so the disk isn't
+ * part of the time. The heap is capped at 64 MB, well under what the rows
+ * of the largest export would take if they were all held at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx64m", "-XX:+UseG1GC"})
+public class ExportBenchmark {
+
+    private static final String USER = "alice";
+
+    @Param({"10000", "100000", "1000000"})
+    int rows;
+
+    @Param({"weights", "notes"})
+    String table;
+
+    @Param({"CSV", "JSON"})
+    DataExporter.Format format;
+
+    @Param({"false", "true"})
+    boolean gzip;
+
+    private File dir;
+    private DataExporter exporter;
+
+    /**
+     * How much the old generation grew during one export, in KB.
+     * Rows that were held on to would end up there, short lived ones don't.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long retainedKb;
+        public long bytesWritten;
+
+        private long start;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            System.gc();
+            start = oldGenUsed(false);
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void read() {
+            retainedKb = Math.max(0, oldGenUsed(true) - start) / 1024;
+        }
+
+        private static long oldGenUsed(boolean peak) {
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.getName().contains("Old Gen")) {
+                    used += peak ? pool.getPeakUsage().getUsed() : pool.getUsage().getUsed();
+                }
+            }
+            return used;
+        }
+    }
+
+    /**
+     * Counts the bytes written to it and drops them.
+     */
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    // Each set of params runs in its own JVM, so the shared databases are only set up once
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("export").toFile();
+        Context context = new Context(dir);
+        if (table.equals("weights")) {
+            seed(AppDatabases.weights(context).getWritableDatabase(),
+                    "insert into weights (username, date, weight_tenths)" +
+                    " select '" + USER + "', 10957 + i, 1800 + i % 97 from n");
+        } else {
+            seed(AppDatabases.notes(context).getWritableDatabase(),
+                    "insert into notes (username, title, body, dateCreated, dateLastUpdated, preview)" +
+                    " select '" + USER + "', 'Note ' || i, 'Walked to the park, \"word' || i || '\", then home.', " +
+                    "1600000000000 + i * 60000, 1600000000000 + i * 60000, 'Walked to the park' from n");
+        }
+        exporter = new DataExporter(context, USER);
+    }
+
+    /**
+     * Adds the rows in one statement, numbered 0 to rows - 1 as n.i.
+     */
+    private void seed(SQLiteDatabase db, String insert) {
+        db.beginTransaction();
+        try {
+            db.execSQL("with recursive n(i) as (select 0 union all select i + 1 from n where i < " + (rows - 1) + ") " +
+                    insert);
+            db.setTransactionSuccessful();
+        }
+        finally {
+            db.endTransaction();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public int export(Heap heap) throws IOException {
+        CountingStream out = new CountingStream();
+        int written = table.equals("weights")
+                ? exporter.writeWeights(out, format, gzip, null)
+                : exporter.writeNotes(out, format, gzip, null);
+        heap.bytesWritten = out.count;
+        return written;
+    }
+}
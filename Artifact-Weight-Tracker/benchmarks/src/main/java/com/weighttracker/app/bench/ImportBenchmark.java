@@ -0,0 +1,157 @@
+package com.weighttracker.app.bench;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.weighttracker.app.data.AppDatabases;
+import com.weighttracker.app.data.BulkImporter;
+import com.weighttracker.app.util.DateCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importing a whole history of weights or notes into an empty table.
+ * BulkImporter reads the file and saves it in chunked transactions. The
+ * baseline is the only write path the app had before, one ContentValues
+ * insert per row, each committed on its own. It gets the rows already
+ * read, so it is timed on the writes alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ImportBenchmark {
+
+    private static final String USER = "alice";
+    private static final String BODY = "Walked to the park, \"the long way\", then home.";
+    private static final int FIRST_DAY = DateCodec.parseIso("1990-01-01");
+    private static final long FIRST_CREATED = 1600000000000L;
+
+    @Param({"10000", "100000"})
+    int rows;
+
+    @Param({"weights", "notes"})
+    String table;
+
+    private File dir;
+    private Context context;
+    private SQLiteDatabase db;
+    private byte[] csv;
+    private byte[] json;
+
+    // Each set of params runs in its own JVM, so the shared databases are only set up once
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("import").toFile();
+        context = new Context(dir);
+        db = table.equals("weights")
+                ? AppDatabases.weights(context).getWritableDatabase()
+                : AppDatabases.notes(context).getWritableDatabase();
+
+        StringBuilder csvText = new StringBuilder();
+        StringBuilder jsonText = new StringBuilder("[");
+        if (table.equals("weights")) {
+            csvText.append("date,weight\r\n");
+            for (int i = 0; i < rows; i++) {
+                String date = DateCodec.formatIso(FIRST_DAY + i);
+                String weight = (180 + i % 50) + "." + i % 10;
+                csvText.append(date).append(',').append(weight).append("\r\n");
+                jsonText.append(i == 0 ? "" : ",").append("{\"date\":\"").append(date)
+                        .append("\",\"weight\":").append(weight).append('}');
+            }
+        } else {
+            csvText.append("title,body,dateCreated,dateLastUpdated\r\n");
+            for (int i = 0; i < rows; i++) {
+                long created = FIRST_CREATED + i * 60000L;
+                csvText.append("Note ").append(i).append(",\"").append(BODY.replace("\"", "\"\"")).append("\",")
+                        .append(created).append(',').append(created).append("\r\n");
+                jsonText.append(i == 0 ? "" : ",").append("{\"title\":\"Note ").append(i)
+                        .append("\",\"body\":\"").append(BODY.replace("\"", "\\\""))
+                        .append("\",\"dateCreated\":").append(created)
+                        .append(",\"dateLastUpdated\":").append(created).append('}');
+            }
+        }
+        jsonText.append(']');
+        csv = csvText.toString().getBytes(StandardCharsets.UTF_8);
+        json = jsonText.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Every import starts from an empty table, or it would only skip duplicates
+    @Setup(Level.Invocation)
+    public void clear() {
+        db.execSQL("delete from " + table);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public int baselineRowByRow() {
+        int saved = 0;
+        if (table.equals("weights")) {
+            for (int i = 0; i < rows; i++) {
+                if (Baseline.addWeight(db, USER, FIRST_DAY + i, 1800 + i % 500) != -1) {
+                    saved++;
+                }
+            }
+        } else {
+            for (int i = 0; i < rows; i++) {
+                if (Baseline.addNote(db, USER, "Note " + i, BODY, FIRST_CREATED + i * 60000L) != -1) {
+                    saved++;
+                }
+            }
+        }
+        return saved;
+    }
+
+    @Benchmark
+    public int importCsv() throws IOException {
+        return importFile(csv, BulkImporter.Format.CSV);
+    }
+
+    @Benchmark
+    public int importJson() throws IOException {
+        return importFile(json, BulkImporter.Format.JSON);
+    }
+
+    private int importFile(byte[] file, BulkImporter.Format format) throws IOException {
+        BulkImporter importer = new BulkImporter(context, USER);
+        ByteArrayInputStream in = new ByteArrayInputStream(file);
+        BulkImporter.Result result = table.equals("weights")
+                ? importer.importWeights(in, format, null)
+                : importer.importNotes(in, format, null);
+        if (result.imported != rows) {
+            throw new IllegalStateException("Imported " + result.imported + " of " + rows);
+        }
+        return result.imported;
+    }
+}
@@ -0,0 +1,84 @@
+package com.weighttracker.app.bench;
+
+import android.content.Context;
+
+import com.weighttracker.app.data.NotesDatabase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening a notes database saved by an older version, which runs the
+ * upgrade to the current schema. Each run starts from a fresh copy of
+ * the old file, so every one of them does the whole upgrade.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MigrationBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int rows;
+
+    // The version the file was saved by
+    @Param({"1", "3", "6"})
+    int from;
+
+    private File dir;
+    private File seed;
+    private File database;
+
+    @Setup(Level.Trial)
+    public void seed() throws IOException, SQLException {
+        dir = Files.createTempDirectory("migration").toFile();
+        seed = new File(dir, "seed.db");
+        database = new File(dir, "notes.db");
+        NoteSeeds.write(seed, from, rows);
+    }
+
+    @Setup(Level.Iteration)
+    public void copySeed() throws IOException {
+        Files.copy(seed.toPath(), database.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        new File(dir, "notes.db-wal").delete();
+        new File(dir, "notes.db-shm").delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public int upgrade() {
+        try (NotesDatabase notes = new NotesDatabase(new Context(dir))) {
+            return notes.getWritableDatabase().getVersion();
+        }
+    }
+}
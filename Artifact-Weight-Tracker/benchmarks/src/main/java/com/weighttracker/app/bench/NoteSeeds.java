@@ -0,0 +1,179 @@
+package com.weighttracker.app.bench;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Writes notes databases as older versions of the app left them, so the
+ * upgrade to the current version can be tested and timed.
+ * Row i always has the same ID, user, title, body and dates, so what was
+ * written can be checked after the upgrade. IDs skip every seventh number
+ * like a table that had notes deleted.
+ */
+public final class NoteSeeds {
+
+    /** The versions that can be written. */
+    public static final int[] VERSIONS = {1, 2, 3, 6};
+
+    private static final long START_TIME = 1600000000000L;
+    private static final String[] USERS = {"alice", "bob", "carol"};
+
+    private NoteSeeds() {
+    }
+
+    /**
+     * Writes a database file at an old version. Anything already in the file is replaced.
+     *
+     * @param file the database file
+     * @param version 1, 2, 3 or 6
+     * @param rows how many notes to write
+     * @throws SQLException if the file can't be written
+     */
+    public static void write(File file, int version, int rows) throws SQLException {
+        file.delete();
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            switch (version) {
+                case 1:
+                    // Only the text of the note
+                    statement.execute("create table notes (_id integer primary key autoincrement, " +
+                            "username text, title text, body text)");
+                    break;
+                case 2:
+                    // Made date but no last updated, and a color that was dropped later
+                    statement.execute("create table notes (_id integer primary key autoincrement, " +
+                            "username text, title text, body text, dateCreated integer, color text)");
+                    break;
+                case 3:
+                case 6:
+                    statement.execute("create table notes (_id integer primary key autoincrement, " +
+                            "username text, title text, body text, dateCreated integer, dateLastUpdated integer)");
+                    break;
+                default:
+                    throw new IllegalArgumentException("No seed for version " + version);
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement("insert into notes values (" +
+                    (version == 1 ? "?, ?, ?, ?" : version == 2 ? "?, ?, ?, ?, ?, 'blue'" : "?, ?, ?, ?, ?, ?") + ")")) {
+                for (int i = 0; i < rows; i++) {
+                    insert.setInt(1, id(i));
+                    insert.setString(2, username(i));
+                    setText(insert, 3, title(i, version));
+                    insert.setString(4, body(i));
+                    if (version >= 2) {
+                        setTime(insert, 5, dateCreated(i, version));
+                    }
+                    if (version >= 3) {
+                        setTime(insert, 6, dateLastUpdated(i, version));
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            if (version == 6) {
+                addVersion6(statement);
+            }
+            statement.execute("pragma user_version = " + version);
+            connection.commit();
+        }
+    }
+
+    /**
+     * Adds the search index, preview and the sort indexes on the plain
+     * columns, as versions 4 to 6 made them.
+     */
+    private static void addVersion6(Statement statement) throws SQLException {
+        statement.execute("create virtual table notes_fts using fts4(content=\"notes\", title, body, prefix=\"2,3\")");
+        statement.execute("create trigger notes_fts_bd before delete on notes begin " +
+                "delete from notes_fts where docid = old._id; end");
+        statement.execute("create trigger notes_fts_bu before update of title, body on notes begin " +
+                "delete from notes_fts where docid = old._id; end");
+        statement.execute("create trigger notes_fts_au after update of title, body on notes begin " +
+                "insert into notes_fts(docid, title, body) values (new._id, new.title, new.body); end");
+        statement.execute("create trigger notes_fts_ai after insert on notes begin " +
+                "insert into notes_fts(docid, title, body) values (new._id, new.title, new.body); end");
+        statement.execute("insert into notes_fts(notes_fts) values ('rebuild')");
+
+        statement.execute("alter table notes add column preview text");
+        statement.execute("update notes set preview = substr(body, 1, 120)");
+
+        statement.execute("create index notes_user_updated on notes " +
+                "(username, dateLastUpdated desc, _id desc, title, preview, dateCreated)");
+        statement.execute("create index notes_user_created on notes " +
+                "(username, dateCreated desc, _id desc, title, preview, dateLastUpdated)");
+        statement.execute("create index notes_user_title on notes " +
+                "(username, title collate nocase, _id, preview, dateCreated, dateLastUpdated)");
+    }
+
+    /** Gets the ID of row i. */
+    public static int id(int i) {
+        return i + 1 + i / 6;
+    }
+
+    /** Gets the user of row i. */
+    public static String username(int i) {
+        return USERS[i % USERS.length];
+    }
+
+    /**
+     * Gets the title of row i. From version 3 some notes have none.
+     */
+    public static String title(int i, int version) {
+        return version >= 3 && i % 11 == 0 ? null : "Note " + i;
+    }
+
+    /**
+     * Gets the body of row i. It has a word no other note has, and some
+     * bodies are longer than the preview.
+     */
+    public static String body(int i) {
+        StringBuilder body = new StringBuilder("Walked to the park, word").append(i).append(" for this one.");
+        for (int k = 0; k < i % 4; k++) {
+            body.append(" Then some more about the day so the note runs past one line of the list.");
+        }
+        return body.toString();
+    }
+
+    /**
+     * Gets when row i was made, or null if the version didn't save it or the note has none.
+     */
+    public static Long dateCreated(int i, int version) {
+        if (version < 2 || (version >= 3 && i % 13 == 0)) {
+            return null;
+        }
+        return START_TIME + i * 60000L;
+    }
+
+    /**
+     * Gets when row i was last changed, or null if the version didn't save it or the note has none.
+     */
+    public static Long dateLastUpdated(int i, int version) {
+        if (version < 3 || i % 17 == 0) {
+            return null;
+        }
+        return START_TIME + i * 60000L + (i % 5) * 3600000L;
+    }
+
+    private static void setText(PreparedStatement statement, int index, String value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.NULL);
+        } else {
+            statement.setString(index, value);
+        }
+    }
+
+    private static void setTime(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.NULL);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.weighttracker.app.bench;
+
+import com.weighttracker.app.util.DateCodec;
+import com.weighttracker.app.util.EntryFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every date and weight of a log, the old java.time and
+ * Float.parseFloat code against DateCodec and EntryFormat.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"SORTED", "SHUFFLED"})
+    WeightLogs.Order order;
+
+    private String[] dates;
+    private String[] weights;
+
+    @Setup
+    public void setUp() {
+        WeightLogs log = WeightLogs.make(size, order);
+        dates = log.dates;
+        weights = log.weights;
+    }
+
+    @Benchmark
+    public long baselineDates() {
+        long sum = 0;
+        for (String date : dates) {
+            sum += Baseline.parseDate(date).toEpochDay();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long dateCodec() {
+        long sum = 0;
+        for (String date : dates) {
+            sum += DateCodec.parseMonthDayYear(date);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double baselineWeights() {
+        double sum = 0;
+        for (String weight : weights) {
+            sum += Baseline.parseWeight(weight);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long parseTenths() {
+        long sum = 0;
+        for (String weight : weights) {
+            sum += EntryFormat.parseTenths(weight);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,82 @@
+package com.weighttracker.app.bench;
+
+import com.weighttracker.app.util.WeightSorter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.WeightEntry;
+
+/**
+ * Sorting a weight log by date, the old ways against WeightSorter.
+ * The old sorts parse both dates on every compare. WeightSorter reads
+ * each date once and sorts the epoch days.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"SORTED", "SHUFFLED"})
+    WeightLogs.Order order;
+
+    private Baseline.Row[] rows;
+    private WeightEntry[] entries;
+    private int[] days;
+    private final WeightSorter sorter = new WeightSorter();
+
+    @Setup
+    public void setUp() {
+        WeightLogs log = WeightLogs.make(size, order);
+        rows = Baseline.rows(log);
+        days = log.days;
+        entries = new WeightEntry[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new WeightEntry(i + 1, log.days[i], log.tenths[i]);
+        }
+    }
+
+    @Benchmark
+    public List<Baseline.Row> baselineMergeSort() {
+        return Baseline.mergeSort(Arrays.asList(rows));
+    }
+
+    @Benchmark
+    public List<Baseline.Row> baselineComparatorSort() {
+        List<Baseline.Row> list = new ArrayList<>(Arrays.asList(rows));
+        Baseline.comparatorSort(list);
+        return list;
+    }
+
+    @Benchmark
+    public List<WeightEntry> weightSorterList() {
+        List<WeightEntry> list = new ArrayList<>(Arrays.asList(entries));
+        sorter.sort(list, true);
+        return list;
+    }
+
+    @Benchmark
+    public int[] weightSorterOrder() {
+        return sorter.sortedOrder(days, size, true);
+    }
+}
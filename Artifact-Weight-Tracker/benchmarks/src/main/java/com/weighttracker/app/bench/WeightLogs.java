@@ -0,0 +1,79 @@
+package com.weighttracker.app.bench;
+
+import com.weighttracker.app.util.DateCodec;
+import com.weighttracker.app.util.EntryFormat;
+
+import java.util.Random;
+
+/**
+ * Makes fake weight logs for the benchmarks.
+ * One entry a day starting 1/1/2000, with about one day in ten logged twice,
+ * and a weight that wanders a little each day like a real history.
+ * The same size and order always gives the same log.
+ */
+public final class WeightLogs {
+
+    /**
+     * The order rows come in. The database gives them back sorted, an
+     * imported file or the old string sort can have them in any order.
+     */
+    public enum Order { SORTED, SHUFFLED }
+
+    // 1/1/2000
+    private static final int START_DAY = 10957;
+
+    final int[] days;
+    final int[] tenths;
+    final String[] dates;
+    final String[] weights;
+
+    private WeightLogs(int size) {
+        days = new int[size];
+        tenths = new int[size];
+        dates = new String[size];
+        weights = new String[size];
+    }
+
+    /**
+     * Makes a log.
+     *
+     * @param size the number of entries
+     * @param order sorted by date or shuffled
+     * @return the log, as epoch days and tenths and as the text the app saved
+     */
+    static WeightLogs make(int size, Order order) {
+        WeightLogs log = new WeightLogs(size);
+        Random random = new Random(size);
+
+        int day = START_DAY;
+        int weight = 1850;
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(10) != 0) {
+                day++;
+            }
+            weight = Math.max(900, Math.min(3500, weight + random.nextInt(11) - 5));
+            log.days[i] = day;
+            log.tenths[i] = weight;
+        }
+
+        if (order == Order.SHUFFLED) {
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                swap(log.days, i, j);
+                swap(log.tenths, i, j);
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            log.dates[i] = DateCodec.formatMonthDayYear(log.days[i]);
+            log.weights[i] = EntryFormat.formatTenths(log.tenths[i]) + " lbs";
+        }
+        return log;
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int swap = values[i];
+        values[i] = values[j];
+        values[j] = swap;
+    }
+}
@@ -0,0 +1,311 @@
+package com.weighttracker.app.bench;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.weighttracker.app.data.NotesDatabase;
+import com.weighttracker.app.data.WeightDatabase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing notes and weights, the old ContentValues way against the
+ * compiled statements the databases use now.
+ * With one write each call commits on its own, like the user saving a
+ * note. With more, all of them go in one transaction, like an import.
+ * Both ways write to the same database file with write-ahead logging on,
+ * the way AppDatabases opens it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+    private static final String USER = "alice";
+    private static final String TITLE = "Morning walk";
+    private static final String BODY = "Walked to the park and back before work. " +
+            "Felt good, a bit sore from yesterday. Going to try the longer loop tomorrow if it doesn't rain.";
+    private static final int FIRST_DAY = 19000;
+
+    // How many writes each call makes
+    @Param({"1", "1000"})
+    int writes;
+
+    private File dir;
+    private NotesDatabase notes;
+    private WeightDatabase weights;
+    private SQLiteDatabase notesDb;
+    private SQLiteDatabase weightsDb;
+
+    // The rows that are updated, the ones after them were added by the benchmarks
+    private int[] noteIds;
+    private int[] weightIds;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("writes").toFile();
+        Context context = new Context(dir);
+        notes = new NotesDatabase(context);
+        notes.setWriteAheadLoggingEnabled(true);
+        weights = new WeightDatabase(context);
+        weights.setWriteAheadLoggingEnabled(true);
+        notesDb = notes.getWritableDatabase();
+        weightsDb = weights.getWritableDatabase();
+
+        noteIds = new int[writes];
+        weightIds = new int[writes];
+        notesDb.beginTransaction();
+        weightsDb.beginTransaction();
+        try {
+            for (int i = 0; i < writes; i++) {
+                noteIds[i] = (int) notes.addNote(USER, TITLE, BODY);
+                weightIds[i] = (int) weights.addWeight(USER, FIRST_DAY + i, 1800 + i % 50);
+            }
+            notesDb.setTransactionSuccessful();
+            weightsDb.setTransactionSuccessful();
+        }
+        finally {
+            notesDb.endTransaction();
+            weightsDb.endTransaction();
+        }
+    }
+
+    // Rows left from the last call would make each call slower than the one
+    // before, the rollup triggers read every entry in the week and month
+    @Setup(Level.Invocation)
+    public void removeAdded() {
+        notesDb.execSQL("delete from notes where _id > " + noteIds[writes - 1]);
+        weightsDb.execSQL("delete from weights where _id > " + weightIds[writes - 1]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        notes.close();
+        weights.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public long baselineAddNote() {
+        long last = 0;
+        begin(notesDb);
+        try {
+            long timestamp = System.currentTimeMillis();
+            for (int i = 0; i < writes; i++) {
+                last = Baseline.addNote(notesDb, USER, TITLE, BODY, timestamp);
+            }
+            commit(notesDb);
+        }
+        finally {
+            end(notesDb);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public long addNote() {
+        long last = 0;
+        begin(notesDb);
+        try {
+            for (int i = 0; i < writes; i++) {
+                last = notes.addNote(USER, TITLE, BODY);
+            }
+            commit(notesDb);
+        }
+        finally {
+            end(notesDb);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public int baselineUpdateNote() {
+        int updated = 0;
+        String title = TITLE + " " + round++;
+        begin(notesDb);
+        try {
+            long timestamp = System.currentTimeMillis();
+            for (int id : noteIds) {
+                if (Baseline.updateNote(notesDb, id, title, BODY, timestamp)) {
+                    updated++;
+                }
+            }
+            commit(notesDb);
+        }
+        finally {
+            end(notesDb);
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public int updateNote() {
+        int updated = 0;
+        String title = TITLE + " " + round++;
+        begin(notesDb);
+        try {
+            for (int id : noteIds) {
+                if (notes.updateNote(id, title, BODY)) {
+                    updated++;
+                }
+            }
+            commit(notesDb);
+        }
+        finally {
+            end(notesDb);
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public long baselineAddWeight() {
+        long last = 0;
+        begin(weightsDb);
+        try {
+            for (int i = 0; i < writes; i++) {
+                last = Baseline.addWeight(weightsDb, USER, FIRST_DAY + i, 1800 + i % 50);
+            }
+            commit(weightsDb);
+        }
+        finally {
+            end(weightsDb);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public long addWeight() {
+        long last = 0;
+        begin(weightsDb);
+        try {
+            for (int i = 0; i < writes; i++) {
+                last = weights.addWeight(USER, FIRST_DAY + i, 1800 + i % 50);
+            }
+            commit(weightsDb);
+        }
+        finally {
+            end(weightsDb);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public int baselineUpdateWeight() {
+        int updated = 0;
+        int tenths = 1800 + round++ % 50;
+        begin(weightsDb);
+        try {
+            for (int i = 0; i < writes; i++) {
+                if (Baseline.updateWeight(weightsDb, weightIds[i], FIRST_DAY + i, tenths)) {
+                    updated++;
+                }
+            }
+            commit(weightsDb);
+        }
+        finally {
+            end(weightsDb);
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public int updateWeight() {
+        int updated = 0;
+        int tenths = 1800 + round++ % 50;
+        begin(weightsDb);
+        try {
+            for (int i = 0; i < writes; i++) {
+                if (weights.updateWeight(weightIds[i], FIRST_DAY + i, tenths)) {
+                    updated++;
+                }
+            }
+            commit(weightsDb);
+        }
+        finally {
+            end(weightsDb);
+        }
+        return updated;
+    }
+
+    /**
+     * Adds weights and deletes them again, so a delete always has a row to remove.
+     */
+    @Benchmark
+    public long baselineAddAndDeleteWeight() {
+        long last = 0;
+        begin(weightsDb);
+        try {
+            for (int i = 0; i < writes; i++) {
+                last = Baseline.addWeight(weightsDb, USER, FIRST_DAY + i, 1800);
+                Baseline.deleteWeight(weightsDb, (int) last);
+            }
+            commit(weightsDb);
+        }
+        finally {
+            end(weightsDb);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public long addAndDeleteWeight() {
+        long last = 0;
+        begin(weightsDb);
+        try {
+            for (int i = 0; i < writes; i++) {
+                last = weights.addWeight(USER, FIRST_DAY + i, 1800);
+                weights.deleteWeight((int) last);
+            }
+            commit(weightsDb);
+        }
+        finally {
+            end(weightsDb);
+        }
+        return last;
+    }
+
+    private void begin(SQLiteDatabase db) {
+        if (writes > 1) {
+            db.beginTransaction();
+        }
+    }
+
+    private void commit(SQLiteDatabase db) {
+        if (writes > 1) {
+            db.setTransactionSuccessful();
+        }
+    }
+
+    private void end(SQLiteDatabase db) {
+        if (writes > 1) {
+            db.endTransaction();
+        }
+    }
+}
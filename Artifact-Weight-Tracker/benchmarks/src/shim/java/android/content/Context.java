@@ -0,0 +1,29 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * Stands in for the Android Context on a normal JVM.
+ * Only keeps the folder the databases are saved in.
+ */
+public class Context {
+
+    private final File databaseDir;
+
+    /**
+     * Makes a context that saves databases in a folder.
+     *
+     * @param databaseDir the folder for database files
+     */
+    public Context(File databaseDir) {
+        this.databaseDir = databaseDir;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public File getDatabasePath(String name) {
+        return new File(databaseDir, name);
+    }
+}
@@ -0,0 +1,38 @@
+package android.database;
+
+import java.io.Closeable;
+
+/**
+ * The part of the Android Cursor the app uses. Column indexes start at 0.
+ */
+public interface Cursor extends Closeable {
+
+    boolean moveToNext();
+
+    boolean moveToFirst();
+
+    int getCount();
+
+    int getColumnCount();
+
+    int getColumnIndex(String columnName);
+
+    int getColumnIndexOrThrow(String columnName);
+
+    boolean isNull(int columnIndex);
+
+    String getString(int columnIndex);
+
+    long getLong(int columnIndex);
+
+    int getInt(int columnIndex);
+
+    double getDouble(int columnIndex);
+
+    float getFloat(int columnIndex);
+
+    byte[] getBlob(int columnIndex);
+
+    @Override
+    void close();
+}
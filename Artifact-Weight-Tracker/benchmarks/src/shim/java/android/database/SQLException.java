@@ -0,0 +1,15 @@
+package android.database;
+
+/**
+ * Stands in for the Android SQLException, which is unchecked.
+ */
+public class SQLException extends RuntimeException {
+
+    public SQLException(String message) {
+        super(message);
+    }
+
+    public SQLException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,167 @@
+package android.database.sqlite;
+
+import android.database.Cursor;
+import android.database.SQLException;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+/**
+ * A forward only Cursor over a JDBC result.
+ * Rows are read from SQLite one at a time as the cursor moves, so a large
+ * query doesn't have to fit in memory, like the window of an Android cursor.
+ * getCount runs the query again as a count, since Android also reads every
+ * row to count them.
+ */
+final class SQLiteCursor implements Cursor {
+
+    private final SQLiteDatabase db;
+    private final String sql;
+    private final String[] selectionArgs;
+    private final PreparedStatement statement;
+    private final ResultSet results;
+    private final String[] columns;
+    private int position = -1;
+    private int count = -1;
+
+    SQLiteCursor(SQLiteDatabase db, String sql, String[] selectionArgs, PreparedStatement statement, ResultSet results)
+            throws java.sql.SQLException {
+        this.db = db;
+        this.sql = sql;
+        this.selectionArgs = selectionArgs;
+        this.statement = statement;
+        this.results = results;
+        ResultSetMetaData meta = results.getMetaData();
+        columns = new String[meta.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = meta.getColumnLabel(i + 1);
+        }
+    }
+
+    @Override
+    public boolean moveToNext() {
+        try {
+            if (results.isClosed() || !results.next()) {
+                return false;
+            }
+            position++;
+            return true;
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        if (position == 0) {
+            return true;
+        }
+        if (position > 0) {
+            throw new UnsupportedOperationException("Cursor only moves forward");
+        }
+        return moveToNext();
+    }
+
+    @Override
+    public int getCount() {
+        if (count < 0) {
+            try (Cursor counted = db.rawQuery("select count(*) from (" + sql + ")", selectionArgs)) {
+                counted.moveToFirst();
+                count = counted.getInt(0);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        }
+        return index;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        try {
+            return results.getObject(columnIndex + 1) == null;
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        try {
+            return results.getString(columnIndex + 1);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        try {
+            return results.getLong(columnIndex + 1);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        try {
+            return results.getDouble(columnIndex + 1);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        return (float) getDouble(columnIndex);
+    }
+
+    @Override
+    public byte[] getBlob(int columnIndex) {
+        try {
+            return results.getBytes(columnIndex + 1);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        SQLiteDatabase.closeQuietly(results);
+        SQLiteDatabase.closeQuietly(statement);
+    }
+}
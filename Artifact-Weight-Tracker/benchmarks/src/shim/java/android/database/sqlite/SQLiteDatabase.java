@@ -0,0 +1,299 @@
+package android.database.sqlite;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stands in for the Android SQLiteDatabase on one JDBC connection.
+ * Values are bound the same way Android binds them: rawQuery arguments
+ * as text, execSQL arguments by their Java type.
+ * Transactions nest like they do on Android. Only the outermost one
+ * commits, and it rolls back if any level didn't mark itself successful.
+ * A level's listener hears when that level ends, so only the outermost
+ * one hears the real commit or rollback.
+ */
+public final class SQLiteDatabase implements AutoCloseable {
+
+    /**
+     * Not used, kept so the SQLiteOpenHelper constructor matches Android.
+     */
+    public interface CursorFactory {
+    }
+
+    // Same size as the statement cache of an Android connection
+    private static final int CACHE_SIZE = 25;
+
+    private final Connection connection;
+    private PreparedStatement lastRowId;
+    private final LinkedHashMap<String, PreparedStatement> compiled =
+            new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > CACHE_SIZE) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private int transactionDepth;
+    private boolean transactionFailed;
+    private boolean levelSuccessful;
+    // Listener of each open level, null where there is none
+    private final ArrayList<SQLiteTransactionListener> listeners = new ArrayList<>();
+
+    SQLiteDatabase(Connection connection) {
+        this.connection = connection;
+    }
+
+    public void execSQL(String sql) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage() + " in " + sql, e);
+        }
+    }
+
+    public void execSQL(String sql, Object[] bindArgs) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < bindArgs.length; i++) {
+                statement.setObject(i + 1, bindArgs[i]);
+            }
+            statement.execute();
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage() + " in " + sql, e);
+        }
+    }
+
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement(sql);
+            if (selectionArgs != null) {
+                for (int i = 0; i < selectionArgs.length; i++) {
+                    statement.setString(i + 1, selectionArgs[i]);
+                }
+            }
+            ResultSet results = statement.executeQuery();
+            return new SQLiteCursor(this, sql, selectionArgs, statement, results);
+        }
+        catch (java.sql.SQLException e) {
+            closeQuietly(statement);
+            throw new SQLException(e.getMessage() + " in " + sql, e);
+        }
+    }
+
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                        String groupBy, String having, String orderBy) {
+        StringBuilder sql = new StringBuilder("select ");
+        sql.append(columns == null ? "*" : String.join(", ", columns));
+        sql.append(" from ").append(table);
+        if (selection != null) sql.append(" where ").append(selection);
+        if (groupBy != null) sql.append(" group by ").append(groupBy);
+        if (having != null) sql.append(" having ").append(having);
+        if (orderBy != null) sql.append(" order by ").append(orderBy);
+        return rawQuery(sql.toString(), selectionArgs);
+    }
+
+    public long insert(String table, String nullColumnHack, ContentValues values) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder params = new StringBuilder();
+        Object[] args = new Object[values.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> value : values.valueSet()) {
+            if (i > 0) {
+                columns.append(", ");
+                params.append(", ");
+            }
+            columns.append(value.getKey());
+            params.append('?');
+            args[i++] = value.getValue();
+        }
+        String sql = "insert into " + table + " (" + columns + ") values (" + params + ")";
+        try {
+            return executeCached(sql, args) > 0 ? lastInsertRowId() : -1;
+        }
+        catch (java.sql.SQLException e) {
+            return -1;
+        }
+    }
+
+    public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        StringBuilder sql = new StringBuilder("update ").append(table).append(" set ");
+        int argCount = values.size() + (whereArgs == null ? 0 : whereArgs.length);
+        Object[] args = new Object[argCount];
+        int i = 0;
+        for (Map.Entry<String, Object> value : values.valueSet()) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(value.getKey()).append(" = ?");
+            args[i++] = value.getValue();
+        }
+        if (whereClause != null) {
+            sql.append(" where ").append(whereClause);
+        }
+        if (whereArgs != null) {
+            System.arraycopy(whereArgs, 0, args, i, whereArgs.length);
+        }
+        try {
+            return executeCached(sql.toString(), args);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage() + " in " + sql, e);
+        }
+    }
+
+    public int delete(String table, String whereClause, String[] whereArgs) {
+        String sql = "delete from " + table + (whereClause == null ? "" : " where " + whereClause);
+        try {
+            return executeCached(sql, whereArgs == null ? new Object[0] : whereArgs);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage() + " in " + sql, e);
+        }
+    }
+
+    /**
+     * Runs a write through the cache of compiled statements.
+     * Android looks the SQL up in the connection's cache the same way,
+     * so only building the SQL and the values is paid on every call.
+     */
+    private int executeCached(String sql, Object[] args) throws java.sql.SQLException {
+        PreparedStatement statement = compiled.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            compiled.put(sql, statement);
+        }
+        for (int i = 0; i < args.length; i++) {
+            statement.setObject(i + 1, args[i]);
+        }
+        return statement.executeUpdate();
+    }
+
+    public SQLiteStatement compileStatement(String sql) {
+        try {
+            return new SQLiteStatement(this, connection.prepareStatement(sql));
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage() + " in " + sql, e);
+        }
+    }
+
+    public void beginTransaction() {
+        begin("begin exclusive", null);
+    }
+
+    public void beginTransactionNonExclusive() {
+        begin("begin immediate", null);
+    }
+
+    public void beginTransactionWithListener(SQLiteTransactionListener listener) {
+        begin("begin exclusive", listener);
+    }
+
+    public void beginTransactionWithListenerNonExclusive(SQLiteTransactionListener listener) {
+        begin("begin immediate", listener);
+    }
+
+    private void begin(String sql, SQLiteTransactionListener listener) {
+        if (transactionDepth == 0) {
+            execSQL(sql);
+            transactionFailed = false;
+        }
+        levelSuccessful = false;
+        transactionDepth++;
+        listeners.add(listener);
+        if (listener != null) {
+            listener.onBegin();
+        }
+    }
+
+    public void setTransactionSuccessful() {
+        levelSuccessful = true;
+    }
+
+    public void endTransaction() {
+        if (transactionDepth == 0) {
+            throw new IllegalStateException("No transaction");
+        }
+        if (!levelSuccessful) {
+            transactionFailed = true;
+        }
+        transactionDepth--;
+        levelSuccessful = false;
+        SQLiteTransactionListener listener = listeners.remove(listeners.size() - 1);
+        if (listener != null) {
+            if (transactionFailed) {
+                listener.onRollback();
+            } else {
+                listener.onCommit();
+            }
+        }
+        if (transactionDepth == 0) {
+            execSQL(transactionFailed ? "rollback" : "commit");
+        }
+    }
+
+    public boolean inTransaction() {
+        return transactionDepth > 0;
+    }
+
+    public int getVersion() {
+        try (Cursor cursor = rawQuery("pragma user_version", null)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    public void setVersion(int version) {
+        execSQL("pragma user_version = " + version);
+    }
+
+    /**
+     * Gets the row ID of the last insert on this connection.
+     */
+    long lastInsertRowId() throws java.sql.SQLException {
+        if (lastRowId == null) {
+            lastRowId = connection.prepareStatement("select last_insert_rowid()");
+        }
+        try (ResultSet results = lastRowId.executeQuery()) {
+            return results.next() ? results.getLong(1) : -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (PreparedStatement statement : compiled.values()) {
+            closeQuietly(statement);
+        }
+        compiled.clear();
+        closeQuietly(lastRowId);
+        try {
+            connection.close();
+        }
+        catch (java.sql.SQLException ignore) {}
+    }
+
+    static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        }
+        catch (Exception ignore) {}
+    }
+}
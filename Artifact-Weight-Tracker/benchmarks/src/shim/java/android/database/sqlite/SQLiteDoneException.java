@@ -0,0 +1,13 @@
+package android.database.sqlite;
+
+import android.database.SQLException;
+
+/**
+ * Thrown when a simple query finds no row.
+ */
+public class SQLiteDoneException extends SQLException {
+
+    public SQLiteDoneException() {
+        super("no row");
+    }
+}
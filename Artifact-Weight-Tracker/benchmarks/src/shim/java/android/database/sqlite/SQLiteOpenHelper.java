@@ -0,0 +1,123 @@
+package android.database.sqlite;
+
+import android.content.Context;
+import android.database.SQLException;
+
+import java.io.File;
+import java.sql.DriverManager;
+
+/**
+ * Stands in for the Android SQLiteOpenHelper.
+ * Opens one connection the first time it is asked for and keeps it,
+ * then runs onCreate or onUpgrade in a transaction when the saved
+ * version doesn't match, the same way Android does.
+ * A null name makes an in-memory database.
+ */
+public abstract class SQLiteOpenHelper implements AutoCloseable {
+
+    private final Context context;
+    private final String name;
+    private final int version;
+    private boolean writeAheadLogging;
+    private SQLiteDatabase db;
+
+    public SQLiteOpenHelper(Context context, String name, SQLiteDatabase.CursorFactory factory, int version) {
+        this.context = context;
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getDatabaseName() {
+        return name;
+    }
+
+    public synchronized void setWriteAheadLoggingEnabled(boolean enabled) {
+        writeAheadLogging = enabled;
+        if (db != null) {
+            setJournalMode(db);
+        }
+    }
+
+    public synchronized SQLiteDatabase getWritableDatabase() {
+        if (db == null) {
+            db = open();
+        }
+        return db;
+    }
+
+    public SQLiteDatabase getReadableDatabase() {
+        return getWritableDatabase();
+    }
+
+    private SQLiteDatabase open() {
+        String path = ":memory:";
+        if (name != null) {
+            File file = context.getDatabasePath(name);
+            file.getParentFile().mkdirs();
+            path = file.getPath();
+        }
+
+        SQLiteDatabase opened;
+        try {
+            opened = new SQLiteDatabase(DriverManager.getConnection("jdbc:sqlite:" + path));
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException("Can't open " + path, e);
+        }
+        try {
+            setJournalMode(opened);
+            onConfigure(opened);
+
+            int current = opened.getVersion();
+            if (current != version) {
+                opened.beginTransaction();
+                try {
+                    if (current == 0) {
+                        onCreate(opened);
+                    } else if (current < version) {
+                        onUpgrade(opened, current, version);
+                    } else {
+                        onDowngrade(opened, current, version);
+                    }
+                    opened.setVersion(version);
+                    opened.setTransactionSuccessful();
+                }
+                finally {
+                    opened.endTransaction();
+                }
+            }
+            onOpen(opened);
+        }
+        catch (RuntimeException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    private void setJournalMode(SQLiteDatabase opened) {
+        opened.rawQuery("pragma journal_mode = " + (writeAheadLogging ? "wal" : "delete"), null).close();
+    }
+
+    public void onConfigure(SQLiteDatabase db) {
+    }
+
+    public abstract void onCreate(SQLiteDatabase db);
+
+    public abstract void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion);
+
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        throw new SQLException("Can't downgrade database from version " + oldVersion + " to " + newVersion);
+    }
+
+    public void onOpen(SQLiteDatabase db) {
+    }
+
+    @Override
+    public synchronized void close() {
+        if (db != null) {
+            db.close();
+            db = null;
+        }
+    }
+}
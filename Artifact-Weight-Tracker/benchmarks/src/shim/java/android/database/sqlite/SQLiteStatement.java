@@ -0,0 +1,120 @@
+package android.database.sqlite;
+
+import android.database.SQLException;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Stands in for the Android SQLiteStatement, a statement compiled once
+ * that can be bound and run many times. Indexes start at 1.
+ */
+public final class SQLiteStatement implements AutoCloseable {
+
+    private final SQLiteDatabase db;
+    private final PreparedStatement statement;
+
+    SQLiteStatement(SQLiteDatabase db, PreparedStatement statement) {
+        this.db = db;
+        this.statement = statement;
+    }
+
+    public void bindLong(int index, long value) {
+        try {
+            statement.setLong(index, value);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    public void bindDouble(int index, double value) {
+        try {
+            statement.setDouble(index, value);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    public void bindString(int index, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("the bind value at index " + index + " is null");
+        }
+        try {
+            statement.setString(index, value);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    public void bindNull(int index) {
+        try {
+            statement.setNull(index, java.sql.Types.NULL);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    public void clearBindings() {
+        try {
+            statement.clearParameters();
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs an insert.
+     *
+     * @return the row ID of the new row, or -1 if nothing was inserted
+     */
+    public long executeInsert() {
+        try {
+            return statement.executeUpdate() > 0 ? db.lastInsertRowId() : -1;
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs an update or delete.
+     *
+     * @return the number of rows changed
+     */
+    public int executeUpdateDelete() {
+        try {
+            return statement.executeUpdate();
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs a query and reads the first column of the first row.
+     *
+     * @return the value as text
+     * @throws SQLiteDoneException if there is no row
+     */
+    public String simpleQueryForString() {
+        try (ResultSet results = statement.executeQuery()) {
+            if (!results.next()) {
+                throw new SQLiteDoneException();
+            }
+            return results.getString(1);
+        }
+        catch (java.sql.SQLException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        SQLiteDatabase.closeQuietly(statement);
+    }
+}
@@ -0,0 +1,14 @@
+package android.database.sqlite;
+
+/**
+ * Stands in for the Android SQLiteTransactionListener.
+ * Told when a transaction started with a listener begins and ends.
+ */
+public interface SQLiteTransactionListener {
+
+    void onBegin();
+
+    void onCommit();
+
+    void onRollback();
+}
@@ -0,0 +1,17 @@
+package android.os;
+
+/**
+ * Stands in for the Android Handler.
+ * There is no main thread loop here, so posted work runs right away
+ * on the thread that posted it.
+ */
+public class Handler {
+
+    public Handler(Looper looper) {
+    }
+
+    public boolean post(Runnable runnable) {
+        runnable.run();
+        return true;
+    }
+}
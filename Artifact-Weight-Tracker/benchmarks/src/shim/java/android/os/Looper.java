@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * Stands in for the Android Looper. There is only the main one.
+ */
+public final class Looper {
+
+    private static final Looper MAIN = new Looper();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+}
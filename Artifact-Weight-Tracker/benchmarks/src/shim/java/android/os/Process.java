@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * Stands in for the Android Process. Thread priorities are left alone.
+ */
+public final class Process {
+
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    private Process() {
+    }
+
+    public static void setThreadPriority(int priority) {
+    }
+}
@@ -0,0 +1,360 @@
+package android.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Stands in for the Android JsonReader.
+ * Reads one token at a time straight from the reader, nothing is kept but
+ * where it is in each open array or object. Lenient mode only allows what
+ * the importer needs: unquoted and single quoted strings and several
+ * values at the top level.
+ */
+public final class JsonReader implements Closeable {
+
+    // Where the reader is in each open scope
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+
+    private final Reader in;
+    private final StringBuilder text = new StringBuilder();
+    private int[] stack = new int[32];
+    private int depth;
+    private boolean lenient;
+
+    // The token peek found and its text, until it is consumed
+    private JsonToken token;
+    private String value;
+    private int pushedBack = -2;
+
+    public JsonReader(Reader in) {
+        this.in = in;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    public void setLenient(boolean lenient) {
+        this.lenient = lenient;
+    }
+
+    public boolean isLenient() {
+        return lenient;
+    }
+
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+        depth--;
+    }
+
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+        depth--;
+    }
+
+    public boolean hasNext() throws IOException {
+        JsonToken next = peek();
+        return next != JsonToken.END_ARRAY && next != JsonToken.END_OBJECT && next != JsonToken.END_DOCUMENT;
+    }
+
+    public String nextName() throws IOException {
+        expect(JsonToken.NAME);
+        return value;
+    }
+
+    /**
+     * Reads a string, or a number as the text it was written with.
+     */
+    public String nextString() throws IOException {
+        JsonToken next = peek();
+        if (next != JsonToken.STRING && next != JsonToken.NUMBER) {
+            throw new IllegalStateException("Expected a string but was " + next);
+        }
+        token = null;
+        return value;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(JsonToken.BOOLEAN);
+        return value.equals("true");
+    }
+
+    public void nextNull() throws IOException {
+        expect(JsonToken.NULL);
+    }
+
+    /**
+     * Skips the next value, with everything inside it if it is an array or object.
+     */
+    public void skipValue() throws IOException {
+        int open = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    open++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    open++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    open--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    open--;
+                    break;
+                default:
+                    token = null;
+            }
+        } while (open != 0);
+    }
+
+    public JsonToken peek() throws IOException {
+        if (token != null) {
+            return token;
+        }
+        int c;
+        switch (stack[depth - 1]) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return token = JsonToken.END_ARRAY;
+                }
+                pushBack(c);
+                return readValue();
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return token = JsonToken.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Expected , or ] in array");
+                }
+                return readValue();
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return token = JsonToken.END_OBJECT;
+                }
+                if (stack[depth - 1] == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected , or } in object");
+                    }
+                    c = nextNonWhitespace();
+                }
+                stack[depth - 1] = DANGLING_NAME;
+                if (c == '"' || c == '\'' && lenient) {
+                    value = readString((char) c);
+                } else if (lenient) {
+                    value = readLiteral(c);
+                } else {
+                    throw syntaxError("Expected a name");
+                }
+                return token = JsonToken.NAME;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected : after name");
+                }
+                return readValue();
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                return readValue();
+            default:
+                c = nextNonWhitespace();
+                if (c == -1) {
+                    return token = JsonToken.END_DOCUMENT;
+                }
+                if (!lenient) {
+                    throw syntaxError("More than one value in the document");
+                }
+                pushBack(c);
+                return readValue();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(JsonToken expected) throws IOException {
+        JsonToken next = peek();
+        if (next != expected) {
+            throw new IllegalStateException("Expected " + expected + " but was " + next);
+        }
+        token = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = java.util.Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    private JsonToken readValue() throws IOException {
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '[':
+                return token = JsonToken.BEGIN_ARRAY;
+            case '{':
+                return token = JsonToken.BEGIN_OBJECT;
+            case '"':
+                value = readString('"');
+                return token = JsonToken.STRING;
+            case '\'':
+                if (lenient) {
+                    value = readString('\'');
+                    return token = JsonToken.STRING;
+                }
+                throw syntaxError("Single quoted string");
+            case -1:
+                throw syntaxError("End of input");
+            default:
+                value = readLiteral(c);
+                if (value.equals("true") || value.equals("false")) {
+                    return token = JsonToken.BOOLEAN;
+                }
+                if (value.equals("null")) {
+                    return token = JsonToken.NULL;
+                }
+                if (isNumber(value)) {
+                    return token = JsonToken.NUMBER;
+                }
+                if (lenient) {
+                    return token = JsonToken.STRING;
+                }
+                throw syntaxError("Unexpected value " + value);
+        }
+    }
+
+    private String readString(char quote) throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c == quote) {
+                return text.toString();
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'n':
+                        text.append('\n');
+                        break;
+                    case 'r':
+                        text.append('\r');
+                        break;
+                    case 't':
+                        text.append('\t');
+                        break;
+                    case 'b':
+                        text.append('\b');
+                        break;
+                    case 'f':
+                        text.append('\f');
+                        break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw syntaxError("Bad \\u escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                        break;
+                    case -1:
+                        throw syntaxError("Unterminated escape");
+                    default:
+                        text.append((char) c);
+                }
+            } else {
+                text.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Reads an unquoted word like true, null, a number or a lenient string.
+     */
+    private String readLiteral(int c) throws IOException {
+        text.setLength(0);
+        while (c != -1 && !isDelimiter(c)) {
+            text.append((char) c);
+            c = read();
+        }
+        pushBack(c);
+        if (text.length() == 0) {
+            throw syntaxError("Expected a value");
+        }
+        return text.toString();
+    }
+
+    private static boolean isDelimiter(int c) {
+        return c == ',' || c == ':' || c == '[' || c == ']' || c == '{' || c == '}'
+                || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isNumber(String text) {
+        int i = text.charAt(0) == '-' ? 1 : 0;
+        boolean digits = false;
+        for (; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c != '.' && c != 'e' && c != 'E' && c != '+' && c != '-') {
+                return false;
+            }
+        }
+        return digits;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = read();
+        while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            c = read();
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private void pushBack(int c) {
+        pushedBack = c;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message);
+    }
+}
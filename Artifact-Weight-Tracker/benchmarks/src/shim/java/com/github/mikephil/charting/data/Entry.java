@@ -0,0 +1,23 @@
+package com.github.mikephil.charting.data;
+
+/**
+ * Stands in for the MPAndroidChart Entry, one point on the graph.
+ */
+public class Entry {
+
+    private final float x;
+    private final float y;
+
+    public Entry(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+}
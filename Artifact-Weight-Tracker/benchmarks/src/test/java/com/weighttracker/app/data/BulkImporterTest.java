@@ -0,0 +1,228 @@
+package com.weighttracker.app.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import com.weighttracker.app.util.DateCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestName;
+
+/**
+ * Imports CSV and JSON files and checks what was saved and what the
+ * counts and progress said.
+ * The importer uses the databases from AppDatabases, which are shared by
+ * the whole JVM, so each test imports for a user named after itself.
+ */
+public class BulkImporterTest {
+
+    // Same as BulkImporter.CHUNK_SIZE
+    private static final int CHUNK_SIZE = 1000;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public TestName name = new TestName();
+
+    private static Context context;
+
+    @BeforeClass
+    public static void setUpClass() {
+        context = new Context(folder.getRoot());
+    }
+
+    @Test
+    public void readsCsvWithByteOrderMarkAndCrlf() throws IOException {
+        String csv = "\uFEFFDate,Weight\r\n" +
+                "1/2/2024,182.4 lbs\r\n" +
+                "\r\n" +
+                "2024-01-03,181.9\r\n" +
+                "1/4/2024,181\r\n";
+
+        BulkImporter.Result result = importWeights(csv, BulkImporter.Format.CSV, null);
+
+        assertCounts(3, 0, 0, result);
+        assertWeights(new int[]{day("2024-01-02"), day("2024-01-03"), day("2024-01-04")},
+                new int[]{1824, 1819, 1810});
+    }
+
+    @Test
+    public void readsQuotedCsvFields() throws IOException {
+        String csv = "title,body,dateCreated,dateLastUpdated\n" +
+                "\"Walk, then run\",\"Said \"\"hi\"\" to Sam\",1000,2000\n" +
+                "Plain,\"First line\r\nsecond line, with a comma\",3000,3000\n" +
+                "\"\"\"Quoted\"\" title\",,4000,5000\n";
+
+        BulkImporter.Result result = importNotes(csv, BulkImporter.Format.CSV);
+
+        assertCounts(3, 0, 0, result);
+        List<String[]> notes = readNotes();
+        assertArrayEquals(new String[]{"\"Quoted\" title", "", "4000", "5000"}, notes.get(0));
+        assertArrayEquals(new String[]{"Plain", "First line\r\nsecond line, with a comma", "3000", "3000"}, notes.get(1));
+        assertArrayEquals(new String[]{"Walk, then run", "Said \"hi\" to Sam", "1000", "2000"}, notes.get(2));
+    }
+
+    @Test
+    public void skipsDuplicateDatesAndCountsBadRows() throws IOException {
+        AppDatabases.weights(context).addWeight(user(), day("2024-01-01"), 1850);
+        String csv = "date,weight\n" +
+                "1/1/2024,180\n" +      // already saved
+                "1/2/2024,181\n" +
+                "2024-01-02,182\n" +    // same date twice in the file
+                "13/40/2024,183\n" +    // bad date
+                "1/3/2024,heavy\n" +    // bad weight
+                "1/4/2024,182 lb\n" +   // not a whole lbs
+                "1/5/2024,2000\n" +     // over the limit
+                "1/6/2024\n";           // no weight
+
+        BulkImporter.Result result = importWeights(csv, BulkImporter.Format.CSV, null);
+
+        assertCounts(1, 2, 5, result);
+        assertWeights(new int[]{day("2024-01-01"), day("2024-01-02")}, new int[]{1850, 1810});
+    }
+
+    @Test
+    public void skipsNotesWithACreatedTimeAlreadySaved() throws IOException {
+        AppDatabases.notes(context).addNote(user(), "Saved", "", 1000, 1000);
+        String csv = "title,body,dateCreated\n" +
+                "Again,,1000\n" +
+                "New,,2000\n" +
+                "Twice,,2000\n" +
+                "No time,,\n" +
+                "   ,no title,3000\n";
+
+        BulkImporter.Result result = importNotes(csv, BulkImporter.Format.CSV);
+
+        assertCounts(2, 2, 1, result);
+    }
+
+    @Test
+    public void readsJsonArrays() throws IOException {
+        String json = "[\n" +
+                "  {\"date\": \"2024-01-02\", \"weight\": 182.4, \"tags\": [\"a\", {\"b\": 1}]},\n" +
+                "  {\"Date\": \"1/3/2024\", \"Weight\": \"181.9 lbs\", \"note\": null},\n" +
+                "  \"not an object\",\n" +
+                "  {\"date\": \"2024-01-04\"}\n" +
+                "]";
+
+        BulkImporter.Result result = importWeights(json, BulkImporter.Format.JSON, null);
+
+        assertCounts(2, 0, 2, result);
+        assertWeights(new int[]{day("2024-01-02"), day("2024-01-03")}, new int[]{1824, 1819});
+    }
+
+    @Test
+    public void reportsProgressAfterEachChunk() throws IOException {
+        int rows = CHUNK_SIZE * 2 + CHUNK_SIZE / 2;
+        StringBuilder csv = new StringBuilder("date,weight\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(DateCodec.formatIso(day("2000-01-01") + i)).append(",180\n");
+        }
+        csv.append("bad,180\n");
+
+        List<int[]> progress = new ArrayList<>();
+        BulkImporter.Result result = importWeights(csv.toString(), BulkImporter.Format.CSV,
+                (imported, skipped, invalid) -> progress.add(new int[]{imported, skipped, invalid}));
+
+        assertCounts(rows, 0, 1, result);
+        assertEquals(3, progress.size());
+        assertArrayEquals(new int[]{CHUNK_SIZE, 0, 0}, progress.get(0));
+        assertArrayEquals(new int[]{CHUNK_SIZE * 2, 0, 0}, progress.get(1));
+        assertArrayEquals(new int[]{rows, 0, 1}, progress.get(2));
+    }
+
+    @Test
+    public void savesEachChunkOldestFirst() throws IOException {
+        String csv = "date,weight\n" +
+                "1/5/2024,185\n" +
+                "1/2/2024,182\n" +
+                "1/4/2024,184\n" +
+                "1/3/2024,183\n";
+
+        importWeights(csv, BulkImporter.Format.CSV, null);
+
+        // Rows were saved in date order, so the IDs go up with the dates
+        String sql = "select date from weights where username = ? order by _id";
+        List<Integer> days = new ArrayList<>();
+        try (Cursor cursor = AppDatabases.weights(context).getReadableDatabase().rawQuery(sql, new String[]{user()})) {
+            while (cursor.moveToNext()) {
+                days.add(cursor.getInt(0));
+            }
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 2; i <= 5; i++) {
+            expected.add(day("2024-01-0" + i));
+        }
+        assertEquals(expected, days);
+    }
+
+    private String user() {
+        return name.getMethodName();
+    }
+
+    private BulkImporter.Result importWeights(String text, BulkImporter.Format format,
+                                              BulkImporter.ProgressListener listener) throws IOException {
+        return new BulkImporter(context, user()).importWeights(stream(text), format, listener);
+    }
+
+    private BulkImporter.Result importNotes(String text, BulkImporter.Format format) throws IOException {
+        return new BulkImporter(context, user()).importNotes(stream(text), format, null);
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int day(String iso) {
+        return DateCodec.parseIso(iso);
+    }
+
+    private static void assertCounts(int imported, int skipped, int invalid, BulkImporter.Result result) {
+        assertEquals("imported", imported, result.imported);
+        assertEquals("skipped", skipped, result.skipped);
+        assertEquals("invalid", invalid, result.invalid);
+    }
+
+    /**
+     * Checks the users saved weights, oldest first.
+     */
+    private void assertWeights(int[] days, int[] tenths) {
+        List<Integer> savedDays = new ArrayList<>();
+        List<Integer> savedTenths = new ArrayList<>();
+        try (Cursor cursor = AppDatabases.weights(context).getUserWeights(user(), true)) {
+            while (cursor.moveToNext()) {
+                savedDays.add(cursor.getInt(1));
+                savedTenths.add(cursor.getInt(2));
+            }
+        }
+        assertArrayEquals(days, savedDays.stream().mapToInt(Integer::intValue).toArray());
+        assertArrayEquals(tenths, savedTenths.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Reads the users notes, newest first, as title, body, dateCreated and dateLastUpdated.
+     */
+    private List<String[]> readNotes() {
+        List<String[]> notes = new ArrayList<>();
+        try (Cursor cursor = AppDatabases.notes(context).getUserNotes(user())) {
+            while (cursor.moveToNext()) {
+                notes.add(new String[]{cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3)});
+            }
+        }
+        return notes;
+    }
+}
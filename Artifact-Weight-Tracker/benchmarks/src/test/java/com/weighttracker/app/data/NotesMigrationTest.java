@@ -0,0 +1,171 @@
+package com.weighttracker.app.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.weighttracker.app.bench.NoteSeeds;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Upgrades notes databases saved by older versions of the app and checks
+ * that every note is kept, the search index finds them, and the schema
+ * ends up the same as a new install.
+ */
+@RunWith(Parameterized.class)
+public class NotesMigrationTest {
+
+    // Many database pages of notes, so the copy has to walk the whole old table
+    private static final int ROWS = 1234;
+
+    @Parameterized.Parameters(name = "from version {0}")
+    public static Collection<Object[]> versions() {
+        List<Object[]> versions = new ArrayList<>();
+        for (int version : NoteSeeds.VERSIONS) {
+            versions.add(new Object[]{version});
+        }
+        return versions;
+    }
+
+    @Parameterized.Parameter
+    public int version;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void upgradeKeepsEveryNote() throws Exception {
+        File dir = folder.newFolder();
+        NoteSeeds.write(new File(dir, "notes.db"), version, ROWS);
+
+        long before = System.currentTimeMillis();
+        try (NotesDatabase notes = new NotesDatabase(new Context(dir))) {
+            SQLiteDatabase db = notes.getWritableDatabase();
+            long after = System.currentTimeMillis();
+
+            String sql = "select _id, username, title, body, dateCreated, dateLastUpdated, preview from notes order by _id";
+            int i = 0;
+            try (Cursor cursor = db.rawQuery(sql, null)) {
+                while (cursor.moveToNext()) {
+                    String row = "row " + i;
+                    assertEquals(row, NoteSeeds.id(i), cursor.getInt(0));
+                    assertEquals(row, NoteSeeds.username(i), cursor.getString(1));
+                    assertEquals(row, NoteSeeds.title(i, version), cursor.getString(2));
+                    assertEquals(row, NoteSeeds.body(i), cursor.getString(3));
+                    assertTime(row, NoteSeeds.dateCreated(i, version), version < 2, cursor, 4, before, after);
+                    assertTime(row, NoteSeeds.dateLastUpdated(i, version), version < 3, cursor, 5, before, after);
+                    String body = NoteSeeds.body(i);
+                    assertEquals(row, body.substring(0, Math.min(120, body.length())), cursor.getString(6));
+                    i++;
+                }
+            }
+            assertEquals(ROWS, i);
+
+            for (i = 0; i < ROWS; i++) {
+                assertSearchFinds(notes, NoteSeeds.username(i), "word" + i, NoteSeeds.id(i));
+            }
+            checkIntegrity(db);
+            assertEquals(schema(newInstall()), schema(db));
+
+            // New notes carry on after the old IDs and are searchable
+            long id = notes.addNote("alice", "After", "Written after the upgrade, wordafter");
+            assertTrue(id > NoteSeeds.id(ROWS - 1));
+            assertSearchFinds(notes, "alice", "wordafter", (int) id);
+        }
+    }
+
+    @Test
+    public void upgradeWithNoNotesTableMakesOne() throws Exception {
+        if (version > 2) {
+            // Only versions before 3 could be missing the table
+            return;
+        }
+        File dir = folder.newFolder();
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + new File(dir, "notes.db"));
+             Statement statement = connection.createStatement()) {
+            statement.execute("pragma user_version = " + version);
+        }
+
+        try (NotesDatabase notes = new NotesDatabase(new Context(dir))) {
+            SQLiteDatabase db = notes.getWritableDatabase();
+            try (Cursor cursor = db.rawQuery("select count(*) from notes", null)) {
+                assertTrue(cursor.moveToFirst());
+                assertEquals(0, cursor.getInt(0));
+            }
+            checkIntegrity(db);
+            assertEquals(schema(newInstall()), schema(db));
+        }
+    }
+
+    /**
+     * Checks a date column. A column the old version didn't have is filled
+     * with the time of the upgrade, a missing date that was saved stays missing.
+     */
+    private static void assertTime(String row, Long expected, boolean filled, Cursor cursor, int column,
+                                   long before, long after) {
+        if (filled) {
+            long time = cursor.getLong(column);
+            assertTrue(row + " filled at " + time, time >= before && time <= after);
+        } else if (expected == null) {
+            assertTrue(row, cursor.isNull(column));
+        } else {
+            assertEquals(row, expected.longValue(), cursor.getLong(column));
+        }
+    }
+
+    private static void assertSearchFinds(NotesDatabase notes, String username, String word, int id) {
+        try (Cursor cursor = notes.getSearchMatches(username, word)) {
+            assertTrue(word, cursor.moveToNext());
+            assertEquals(word, id, cursor.getInt(0));
+            assertFalse(word, cursor.moveToNext());
+        }
+    }
+
+    /**
+     * Fails if the database or the search index is damaged.
+     */
+    private static void checkIntegrity(SQLiteDatabase db) {
+        try (Cursor cursor = db.rawQuery("pragma integrity_check", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("ok", cursor.getString(0));
+        }
+        // Throws if the index doesn't match the notes table
+        db.execSQL("insert into notes_fts(notes_fts) values ('integrity-check')");
+    }
+
+    private SQLiteDatabase newInstall() throws Exception {
+        return new NotesDatabase(new Context(folder.newFolder())).getWritableDatabase();
+    }
+
+    /**
+     * Gets every table, index and trigger with the SQL that made it.
+     */
+    private static List<String> schema(SQLiteDatabase db) {
+        List<String> schema = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("select type, name, sql from sqlite_master order by type, name", null)) {
+            while (cursor.moveToNext()) {
+                schema.add(cursor.getString(0) + " " + cursor.getString(1) + ": " + cursor.getString(2));
+            }
+        }
+        assertFalse(schema.isEmpty());
+        return schema;
+    }
+}
@@ -0,0 +1,201 @@
+package com.weighttracker.app.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import model.NoteEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that every notes list query is read straight from its index.
+ * If a schema change makes one of them scan the table or sort in a temp
+ * B-tree, the list gets slower with every note, so these fail instead.
+ */
+public class NotesQueryPlanTest {
+
+    private static final String USER = "alice";
+    private static final int PAGE = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private NotesDatabase notes;
+
+    @Before
+    public void setUp() {
+        notes = new NotesDatabase(new Context(folder.getRoot()));
+        for (int i = 0; i < 300; i++) {
+            String user = i % 3 == 0 ? "bob" : USER;
+            notes.addNote(user, "Title " + (i * 7 % 100), "Body " + i, 1000L + i * 13 % 50, 2000L + i * 17 % 60);
+        }
+        // Old rows can have no title or dates
+        SQLiteDatabase db = notes.getWritableDatabase();
+        db.execSQL("insert into notes (username, title, body, preview) values ('alice', null, 'no dates', 'no dates')");
+        db.execSQL("insert into notes (username, title, body, preview) values ('alice', null, 'no dates', 'no dates')");
+        db.execSQL("analyze");
+    }
+
+    @After
+    public void tearDown() {
+        notes.close();
+    }
+
+    @Test
+    public void firstPageReadsOnlyTheSortIndex() {
+        for (NotesDatabase.Sort sort : NotesDatabase.Sort.values()) {
+            String plan = plan(NotesDatabase.firstPageQuery(sort, PAGE), USER);
+            assertCoveredBy(sort, plan);
+        }
+    }
+
+    @Test
+    public void pagesNextToAnAnchorReadOnlyTheSortIndex() {
+        for (NotesDatabase.Sort sort : NotesDatabase.Sort.values()) {
+            String key = sort == NotesDatabase.Sort.TITLE ? "Title 50" : "2030";
+            for (boolean forward : new boolean[]{true, false}) {
+                for (boolean inclusive : new boolean[]{true, false}) {
+                    String plan = plan(NotesDatabase.pageQuery(sort, forward, inclusive, PAGE), USER, key, "150");
+                    assertCoveredBy(sort, plan);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void exportReadsInIndexOrder() {
+        String plan = plan(NotesDatabase.userNotesQuery(), USER);
+        assertTrue(plan, plan.contains("USING INDEX notes_user_updated"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void searchRunsOnceAndLooksUpMatchesById() {
+        String plan = plan(NotesDatabase.searchMatchesQuery(), "title*", USER);
+        String[] steps = plan.split("\n");
+        assertTrue(plan, steps[0].startsWith("SCAN notes_fts VIRTUAL TABLE"));
+        assertTrue(plan, steps[1].contains("USING INTEGER PRIMARY KEY"));
+    }
+
+    @Test
+    public void pagingBothWaysVisitsEveryNoteOnce() {
+        for (NotesDatabase.Sort sort : NotesDatabase.Sort.values()) {
+            List<NoteEntry> expected = allNotes(sort);
+
+            List<NoteEntry> forward = new ArrayList<>();
+            List<NoteEntry> page = read(notes.getUserNotesPage(USER, sort, PAGE));
+            while (!page.isEmpty()) {
+                forward.addAll(page);
+                NoteEntry last = page.get(page.size() - 1);
+                page = read(notes.getUserNotesPage(USER, sort, NotesDatabase.sortKey(last, sort), last.getId(),
+                        true, false, PAGE));
+            }
+            assertEquals(sort.name(), ids(expected), ids(forward));
+
+            // Back up from the last note, rows come back closest to the anchor first
+            List<NoteEntry> backward = new ArrayList<>();
+            NoteEntry anchor = expected.get(expected.size() - 1);
+            page = read(notes.getUserNotesPage(USER, sort, NotesDatabase.sortKey(anchor, sort), anchor.getId(),
+                    false, true, PAGE));
+            while (!page.isEmpty()) {
+                backward.addAll(page);
+                NoteEntry first = page.get(page.size() - 1);
+                page = read(notes.getUserNotesPage(USER, sort, NotesDatabase.sortKey(first, sort), first.getId(),
+                        false, false, PAGE));
+            }
+            List<Integer> reversed = ids(backward);
+            Collections.reverse(reversed);
+            assertEquals(sort.name(), ids(expected), reversed);
+        }
+    }
+
+    /**
+     * Gets the users notes in list order, sorted here instead of by SQLite.
+     */
+    private List<NoteEntry> allNotes(NotesDatabase.Sort sort) {
+        List<NoteEntry> all = new ArrayList<>();
+        String sql = "select _id, title, preview, dateCreated, dateLastUpdated from notes where username = ?";
+        try (Cursor cursor = notes.getReadableDatabase().rawQuery(sql, new String[]{USER})) {
+            while (cursor.moveToNext()) {
+                all.add(new NoteEntry(cursor.getInt(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getLong(3), cursor.getLong(4)));
+            }
+        }
+
+        Comparator<NoteEntry> order;
+        switch (sort) {
+            case TITLE:
+                order = Comparator.comparing((NoteEntry note) -> NotesDatabase.sortKey(note, sort), String.CASE_INSENSITIVE_ORDER)
+                        .thenComparingInt(NoteEntry::getId);
+                break;
+            case CREATED:
+                order = Comparator.comparingLong(NoteEntry::getDateCreated).thenComparingInt(NoteEntry::getId).reversed();
+                break;
+            default:
+                order = Comparator.comparingLong(NoteEntry::getDateLastUpdated).thenComparingInt(NoteEntry::getId).reversed();
+                break;
+        }
+        all.sort(order);
+        return all;
+    }
+
+    private static List<NoteEntry> read(Cursor cursor) {
+        List<NoteEntry> page = new ArrayList<>();
+        try (Cursor rows = cursor) {
+            int idIdx = rows.getColumnIndexOrThrow("_id");
+            int titleIdx = rows.getColumnIndexOrThrow("title");
+            int previewIdx = rows.getColumnIndexOrThrow("preview");
+            int createdIdx = rows.getColumnIndexOrThrow("dateCreated");
+            int updatedIdx = rows.getColumnIndexOrThrow("dateLastUpdated");
+            while (rows.moveToNext()) {
+                page.add(new NoteEntry(rows.getInt(idIdx), rows.getString(titleIdx), rows.getString(previewIdx),
+                        rows.getLong(createdIdx), rows.getLong(updatedIdx)));
+            }
+        }
+        return page;
+    }
+
+    private static List<Integer> ids(List<NoteEntry> list) {
+        List<Integer> ids = new ArrayList<>(list.size());
+        for (NoteEntry note : list) {
+            ids.add(note.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Gets the query plan as one line per step.
+     */
+    private String plan(String sql, String... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = notes.getReadableDatabase().rawQuery("explain query plan " + sql, args)) {
+            int detailIdx = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detailIdx)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    private static void assertCoveredBy(NotesDatabase.Sort sort, String plan) {
+        String index = "notes_user_" + sort.name().toLowerCase(Locale.US);
+        assertTrue(sort + "\n" + plan, plan.contains("USING COVERING INDEX " + index));
+        assertFalse(sort + "\n" + plan, plan.contains("USE TEMP B-TREE"));
+        assertFalse(sort + "\n" + plan, plan.contains("SCAN"));
+    }
+}
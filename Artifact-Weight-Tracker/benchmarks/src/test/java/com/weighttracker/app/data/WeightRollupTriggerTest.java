@@ -0,0 +1,256 @@
+package com.weighttracker.app.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.weighttracker.app.util.EntryFormat;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Makes random adds, changes and deletes to the weights table and checks
+ * that the weekly and monthly rollups the triggers keep always match the
+ * entries. Periods are worked out with java.time here, so a mistake in
+ * the SQL for the start of a week or month shows up too.
+ */
+public class WeightRollupTriggerTest {
+
+    private static final String[] USERS = {"alice", "bob", "carol", null};
+    private static final int STEPS = 3000;
+    private static final int CHECK_EVERY = 250;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeightDatabase weights;
+    private SQLiteDatabase db;
+    private Random random;
+
+    // Changes published to the weights table, by the time they reached observers
+    private final List<DataChanges.Change> heard = new ArrayList<>();
+    private final DataChanges.Observer observer = heard::add;
+
+    // What the weights table should hold, by ID
+    private final Map<Integer, Row> rows = new HashMap<>();
+    private final List<Integer> ids = new ArrayList<>();
+
+    private static final class Row {
+        String username;
+        int day;
+        int tenths;
+
+        Row(String username, int day, int tenths) {
+            this.username = username;
+            this.day = day;
+            this.tenths = tenths;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        weights = new WeightDatabase(new Context(folder.getRoot()));
+        db = weights.getWritableDatabase();
+        DataChanges.observe(observer);
+    }
+
+    @After
+    public void tearDown() {
+        DataChanges.remove(observer);
+        weights.close();
+    }
+
+    @Test
+    public void rollupsMatchTheEntriesAfterRandomWrites() {
+        for (long seed = 1; seed <= 3; seed++) {
+            random = new Random(seed);
+            for (int step = 1; step <= STEPS; step++) {
+                if (random.nextInt(20) == 0) {
+                    writeInTransaction(1 + random.nextInt(30), random.nextBoolean());
+                } else {
+                    write();
+                }
+                if (step % CHECK_EVERY == 0) {
+                    checkRollups("seed " + seed + " step " + step);
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes one random write and keeps the model in step with it.
+     *
+     * @return how many changes the write published
+     */
+    private int write() {
+        int choice = random.nextInt(100);
+        if (choice < 45 || ids.isEmpty()) {
+            String username = USERS[random.nextInt(USERS.length)];
+            int day = randomDay();
+            int tenths = randomTenths();
+            int id = (int) weights.addWeight(username, day, tenths);
+            rows.put(id, new Row(username, day, tenths));
+            ids.add(id);
+            return 1;
+        } else if (choice < 70) {
+            int id = randomId();
+            Row row = rows.get(id);
+            row.day = randomDay();
+            row.tenths = randomTenths();
+            assertTrue(weights.updateWeight(id, row.day, row.tenths));
+            return 1;
+        } else if (choice < 90) {
+            int index = random.nextInt(ids.size());
+            int id = ids.get(index);
+            ids.set(index, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+            rows.remove(id);
+            assertTrue(weights.deleteWeight(id));
+            return 1;
+        } else if (choice < 95) {
+            // The app can't move an entry to another user, but the triggers still cover it
+            int id = randomId();
+            Row row = rows.get(id);
+            row.username = USERS[random.nextInt(USERS.length)];
+            db.execSQL("update weights set username = ? where _id = ?", new Object[]{row.username, id});
+            return 0;
+        } else {
+            // IDs that were never used change nothing
+            assertFalse(weights.updateWeight(-1 - random.nextInt(10), randomDay(), randomTenths()));
+            assertFalse(weights.deleteWeight(-1 - random.nextInt(10)));
+            return 0;
+        }
+    }
+
+    /**
+     * Makes several writes in one transaction, and sometimes rolls them back.
+     * Observers must hear nothing until the commit, and nothing at all after a rollback.
+     */
+    private void writeInTransaction(int count, boolean commit) {
+        Map<Integer, Row> savedRows = new HashMap<>();
+        for (Map.Entry<Integer, Row> entry : rows.entrySet()) {
+            Row row = entry.getValue();
+            savedRows.put(entry.getKey(), new Row(row.username, row.day, row.tenths));
+        }
+        List<Integer> savedIds = new ArrayList<>(ids);
+
+        int before = heard.size();
+        int published = 0;
+        DataChanges.beginTransaction(db);
+        try {
+            for (int i = 0; i < count; i++) {
+                published += write();
+            }
+            assertEquals("changes heard before the commit", before, heard.size());
+            if (commit) {
+                db.setTransactionSuccessful();
+            }
+        }
+        finally {
+            DataChanges.endTransaction(db);
+        }
+        assertEquals("changes heard after the transaction", before + (commit ? published : 0), heard.size());
+
+        if (!commit) {
+            rows.clear();
+            rows.putAll(savedRows);
+            ids.clear();
+            ids.addAll(savedIds);
+        }
+    }
+
+    private int randomId() {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    /**
+     * Gets a day from late 1968 to early 1973, so weeks and months on both
+     * sides of 1/1/1970 are used, or sometimes a date that couldn't be read.
+     */
+    private int randomDay() {
+        return random.nextInt(10) == 0 ? EntryFormat.INVALID_DAY : random.nextInt(1600) - 400;
+    }
+
+    private int randomTenths() {
+        return 1000 + random.nextInt(2000);
+    }
+
+    private void checkRollups(String when) {
+        for (WeightDatabase.Rollup rollup : WeightDatabase.Rollup.values()) {
+            List<String> expected = expected(rollup);
+            assertEquals(when + " " + rollup, expected, read("select username, period, count, total, min_tenths, max_tenths" +
+                    " from " + rollup.table));
+
+            // Same again from the weights table, with the SQL the rollup was built with
+            String period = rollup.startOf("date");
+            assertEquals(when + " " + rollup, expected, read("select username, " + period + ", count(*), sum(weight_tenths), " +
+                    "min(weight_tenths), max(weight_tenths) from weights" +
+                    " where username is not null and date <> " + EntryFormat.INVALID_DAY +
+                    " group by username, " + period));
+        }
+    }
+
+    /**
+     * Works out the rollup rows from the model, with the periods from java.time.
+     */
+    private List<String> expected(WeightDatabase.Rollup rollup) {
+        Map<String, long[]> periods = new HashMap<>();
+        for (Row row : rows.values()) {
+            if (row.username == null || row.day == EntryFormat.INVALID_DAY) {
+                continue;
+            }
+            LocalDate date = LocalDate.ofEpochDay(row.day);
+            LocalDate start = rollup == WeightDatabase.Rollup.WEEK
+                    ? date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    : date.withDayOfMonth(1);
+            String key = row.username + " " + start.toEpochDay();
+            long[] totals = periods.get(key);
+            if (totals == null) {
+                totals = new long[]{0, 0, Long.MAX_VALUE, Long.MIN_VALUE};
+                periods.put(key, totals);
+            }
+            totals[0]++;
+            totals[1] += row.tenths;
+            totals[2] = Math.min(totals[2], row.tenths);
+            totals[3] = Math.max(totals[3], row.tenths);
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (Map.Entry<String, long[]> period : periods.entrySet()) {
+            long[] totals = period.getValue();
+            expected.add(period.getKey() + " " + totals[0] + " " + totals[1] + " " + totals[2] + " " + totals[3]);
+        }
+        Collections.sort(expected);
+        return expected;
+    }
+
+    private List<String> read(String sql) {
+        List<String> found = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                found.add(cursor.getString(0) + " " + cursor.getLong(1) + " " + cursor.getLong(2) + " " +
+                        cursor.getLong(3) + " " + cursor.getLong(4) + " " + cursor.getLong(5));
+            }
+        }
+        Collections.sort(found);
+        return found;
+    }
+}
@@ -0,0 +1,136 @@
+package com.weighttracker.app.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+import org.junit.Test;
+
+/**
+ * Checks DateCodec against java.time, which the app used before.
+ */
+public class DateCodecTest {
+
+    // The formatter the app used to parse and show dates
+    private static final DateTimeFormatter MONTH_DAY_YEAR = DateTimeFormatter.ofPattern("M/d/yyyy", Locale.US);
+    private static final DateTimeFormatter PADDED = DateTimeFormatter.ofPattern("MM/dd/yyyy", Locale.US);
+
+    private static final LocalDate FIRST = LocalDate.of(1, 1, 1);
+    private static final LocalDate LAST = LocalDate.of(9999, 12, 31);
+
+    @Test
+    public void everyDateReadsAndFormatsLikeJavaTime() {
+        for (LocalDate date = FIRST; !date.isAfter(LAST); date = date.plusDays(1)) {
+            int epochDay = (int) date.toEpochDay();
+            String text = date.format(MONTH_DAY_YEAR);
+            String iso = date.toString();
+
+            assertEquals(text, epochDay, DateCodec.parseMonthDayYear(text));
+            assertEquals(text, epochDay, DateCodec.parseMonthDayYear(date.format(PADDED)));
+            assertEquals(iso, epochDay, DateCodec.parseIso(iso));
+            assertEquals(text, DateCodec.formatMonthDayYear(epochDay));
+            assertEquals(iso, DateCodec.formatIso(epochDay));
+        }
+    }
+
+    @Test
+    public void dayPastEndOfMonthMovesBackLikeJavaTime() {
+        for (int year = 1; year <= 9999; year++) {
+            for (int month = 1; month <= 12; month++) {
+                for (int day = 28; day <= 31; day++) {
+                    String text = month + "/" + day + "/" + String.format("%04d", year);
+                    int expected = (int) LocalDate.parse(text, MONTH_DAY_YEAR).toEpochDay();
+                    assertEquals(text, expected, DateCodec.parseMonthDayYear(text));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void isoNeedsARealDate() {
+        String[] texts = {"2023-02-29", "2024-02-30", "2023-04-31", "1900-02-29", "2023-06-31"};
+        for (String text : texts) {
+            assertIsoRejected(text);
+            assertEquals(text, DateCodec.INVALID_DAY, DateCodec.parseIso(text));
+        }
+        assertEquals(LocalDate.of(2000, 2, 29).toEpochDay(), DateCodec.parseIso("2000-02-29"));
+    }
+
+    @Test
+    public void malformedMonthDayYearIsInvalid() {
+        String[] texts = {
+                "", "/", "//", "1/2", "1/2/", "1//2020", "/1/2020", "1/1/",
+                "0/1/2020", "13/1/2020", "1/0/2020", "1/32/2020", "99/99/2020",
+                "1/1/20", "1/1/202", "1/1/20201", "1/1/0000",
+                "123/1/2020", "1/123/2020", "+1/1/2020", "-1/1/2020", "1/1/-202",
+                "a/1/2020", "1/b/2020", "1/1/20x0", "1-1-2020", "2020-01-01",
+                " 1/1/2020", "1/1/2020 ", "1 /1/2020", "1/1/2020/", "1/1/2020 lbs",
+                "１/1/2020"
+        };
+        for (String text : texts) {
+            assertEquals("\"" + text + "\"", DateCodec.INVALID_DAY, DateCodec.parseMonthDayYear(text));
+        }
+        assertEquals(DateCodec.INVALID_DAY, DateCodec.parseMonthDayYear(null));
+    }
+
+    @Test
+    public void malformedIsoIsInvalid() {
+        String[] texts = {
+                "", "2020", "2020-1-01", "2020-01-1", "20-01-01", "2020-13-01", "2020-00-10",
+                "2020-01-00", "2020-01-32", "20200101", "2020/01/01", "2020-01-01T00:00",
+                " 2020-01-01", "2020-01-01 ", "+020-01-01", "2020-0a-01", "0000-01-01"
+        };
+        for (String text : texts) {
+            assertEquals("\"" + text + "\"", DateCodec.INVALID_DAY, DateCodec.parseIso(text));
+        }
+        assertEquals(DateCodec.INVALID_DAY, DateCodec.parseIso(null));
+    }
+
+    @Test
+    public void readsAnyCharSequence() {
+        assertEquals(LocalDate.of(2024, 1, 5).toEpochDay(), DateCodec.parseMonthDayYear(new StringBuilder("1/5/2024")));
+        assertEquals(LocalDate.of(2024, 1, 5).toEpochDay(), DateCodec.parseIso(new StringBuilder("2024-01-05")));
+    }
+
+    @Test
+    public void invalidDayFormatsAsEmpty() {
+        assertEquals("", DateCodec.formatMonthDayYear(DateCodec.INVALID_DAY));
+        assertEquals("", DateCodec.formatIso(DateCodec.INVALID_DAY));
+    }
+
+    @Test
+    public void yearsOutsideFourDigitsFormatLikeJavaTime() {
+        LocalDate[] edges = {LocalDate.of(0, 12, 31), LocalDate.of(0, 1, 1), LocalDate.of(-1, 6, 15),
+                LocalDate.of(10000, 1, 1), LocalDate.of(12345, 6, 7)};
+        for (LocalDate date : edges) {
+            int epochDay = (int) date.toEpochDay();
+            assertEquals(date.format(MONTH_DAY_YEAR), DateCodec.formatMonthDayYear(epochDay));
+            assertEquals(date.toString(), DateCodec.formatIso(epochDay));
+        }
+    }
+
+    @Test
+    public void cacheGivesTheRightDateWhenSlotsCollide() {
+        int day = (int) LocalDate.of(2024, 3, 1).toEpochDay();
+        String first = DateCodec.formatMonthDayYear(day);
+        assertSame(first, DateCodec.formatMonthDayYear(day));
+
+        // Same cache slot, different date
+        assertEquals(LocalDate.ofEpochDay(day + 256).format(MONTH_DAY_YEAR), DateCodec.formatMonthDayYear(day + 256));
+        assertEquals(first, DateCodec.formatMonthDayYear(day));
+    }
+
+    private static void assertIsoRejected(String text) {
+        try {
+            LocalDate.parse(text);
+        }
+        catch (DateTimeParseException expected) {
+            return;
+        }
+        throw new AssertionError("java.time read " + text);
+    }
+}
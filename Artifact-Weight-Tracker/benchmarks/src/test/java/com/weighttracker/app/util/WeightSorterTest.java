@@ -0,0 +1,117 @@
+package com.weighttracker.app.util;
+
+import static org.junit.Assert.assertEquals;
+
+import com.weighttracker.app.bench.Baseline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import model.WeightEntry;
+
+import org.junit.Test;
+
+/**
+ * Checks WeightSorter against the merge sort the app used before, on logs
+ * where many entries share a date. Newest first is checked against the old
+ * sort reversed, which is how the list showed it.
+ * Every entry has its own weight, so entries with the same date can be
+ * told apart and their order is checked too.
+ */
+public class WeightSorterTest {
+
+    private static final int[] SIZES = {0, 1, 2, 3, 7, 64, 1000, 4099};
+    private static final int SEEDS = 5;
+    private static final int FIRST_DAY = 10957;
+
+    @Test
+    public void oldestFirstMatchesTheOldMergeSort() {
+        WeightSorter sorter = new WeightSorter();
+        for (int size : SIZES) {
+            for (long seed = 1; seed <= SEEDS; seed++) {
+                checkSort(sorter, size, seed, true);
+            }
+        }
+    }
+
+    @Test
+    public void newestFirstMatchesTheOldMergeSortReversed() {
+        WeightSorter sorter = new WeightSorter();
+        for (int size : SIZES) {
+            for (long seed = 1; seed <= SEEDS; seed++) {
+                checkSort(sorter, size, seed, false);
+            }
+        }
+    }
+
+    @Test
+    public void reusedSorterGivesTheSameResultAtAnySize() {
+        // Big then small, so the buffers are left over from a longer list
+        WeightSorter sorter = new WeightSorter();
+        for (int i = SIZES.length - 1; i >= 0; i--) {
+            checkSort(sorter, SIZES[i], 42, true);
+            checkSort(sorter, SIZES[i], 43, false);
+        }
+    }
+
+    @Test
+    public void sortedOrderMatchesSort() {
+        WeightSorter sorter = new WeightSorter();
+        for (int size : SIZES) {
+            for (boolean ascending : new boolean[]{true, false}) {
+                List<WeightEntry> entries = entries(size, 7);
+                int[] days = new int[size + 3];
+                for (int i = 0; i < size; i++) {
+                    days[i] = entries.get(i).getEpochDay();
+                }
+
+                int[] order = sorter.sortedOrder(days, size, ascending).clone();
+                List<WeightEntry> sorted = new ArrayList<>(entries);
+                new WeightSorter().sort(sorted, ascending);
+                for (int i = 0; i < size; i++) {
+                    assertEquals("size " + size + " position " + i, sorted.get(i), entries.get(order[i]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts one log both ways, the old way and with the sorter, and checks every row.
+     */
+    private static void checkSort(WeightSorter sorter, int size, long seed, boolean oldestFirst) {
+        List<WeightEntry> entries = entries(size, seed);
+        List<Baseline.Row> rows = new ArrayList<>(size);
+        for (WeightEntry entry : entries) {
+            rows.add(new Baseline.Row(entry.getDate(), entry.getWeight()));
+        }
+
+        List<Baseline.Row> expected = Baseline.mergeSort(rows);
+        if (!oldestFirst) {
+            Collections.reverse(expected);
+        }
+        sorter.sort(entries, oldestFirst);
+
+        assertEquals(size, entries.size());
+        for (int i = 0; i < size; i++) {
+            String where = "size " + size + " seed " + seed + (oldestFirst ? " oldest" : " newest") + " first, position " + i;
+            assertEquals(where, expected.get(i).date, entries.get(i).getDate());
+            assertEquals(where, expected.get(i).weight, entries.get(i).getWeight());
+        }
+    }
+
+    /**
+     * Makes a log in random order with about three entries per date and no
+     * two weights the same.
+     */
+    private static List<WeightEntry> entries(int size, long seed) {
+        Random random = new Random(seed * 31 + size);
+        int days = Math.max(1, size / 3);
+        List<WeightEntry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new WeightEntry(i + 1, FIRST_DAY + random.nextInt(days), 1000 + i));
+        }
+        return entries;
+    }
+}